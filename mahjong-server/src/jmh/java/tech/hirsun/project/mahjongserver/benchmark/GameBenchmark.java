@@ -0,0 +1,87 @@
+package tech.hirsun.project.mahjongserver.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.Wall;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+/**
+ * Tile moves on a four player game.
+ * Each benchmark pairs a move with its inverse where one exists, so the game stays in the same state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    private static final List<String> PLAYERS = List.of("p0@test", "p1@test", "p2@test", "p3@test");
+
+    private static final String PLAYER = PLAYERS.get(0);
+
+    private final Random random = new Random(42);
+
+    private Game game;
+
+    private int[] revealCodes;
+
+    @Setup
+    public void setUp() {
+        newGame();
+    }
+
+    @Benchmark
+    public boolean drawAndDiscard() {
+        // A game runs out of tiles every ~80 calls; dealing a new one is part of the measured cost
+        if (game.getRemainingTilesCount() == 0) {
+            newGame();
+        }
+        int code = game.drawTile(PLAYER);
+        return game.discardTile(PLAYER, code);
+    }
+
+    @Benchmark
+    public boolean discardAndTake() {
+        int code = revealCodes[0];
+        game.discardTile(PLAYER, code);
+        return game.takeDiscardedTile(PLAYER, code);
+    }
+
+    @Benchmark
+    public Game revealAndHide() {
+        game.revealPlayerTiles(PLAYER, revealCodes);
+        game.hidePlayerTiles(PLAYER, revealCodes);
+        return game;
+    }
+
+    private void newGame() {
+        game = new Game();
+        game.initialize("bench", PLAYERS, PLAYER);
+        Wall wall = TileUtil.shuffledWall(random);
+        byte[][] hands = TileUtil.dealInitialTiles(wall, PLAYERS.size(), 0);
+        for (int i = 0; i < PLAYERS.size(); i++) {
+            for (byte code : hands[i]) {
+                game.addTileToPlayerHand(PLAYERS.get(i), code & 0xFF);
+            }
+        }
+        game.setWall(wall);
+        int[] hand = game.getPlayerHandCodes(PLAYER);
+        revealCodes = new int[] { hand[0], hand[1], hand[2] };
+    }
+}
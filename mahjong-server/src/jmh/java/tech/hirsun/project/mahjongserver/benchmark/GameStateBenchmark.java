@@ -0,0 +1,101 @@
+package tech.hirsun.project.mahjongserver.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.Tile;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+import tech.hirsun.project.mahjongserver.service.GameService;
+import tech.hirsun.project.mahjongserver.util.BinaryProtocolUtil;
+
+/**
+ * Building and serializing GAME_STATE for a four player game twenty turns in
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameStateBenchmark {
+
+    private static final String ROOM_ID = "123456";
+
+    private static final List<String> PLAYERS = List.of("p0@test", "p1@test", "p2@test", "p3@test");
+
+    // Same configuration as WebSocketService
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule());
+
+    private GameService gameService;
+
+    private Map<String, Object> gameState;
+
+    private Map<String, Integer> seats;
+
+    @Setup
+    public void setUp() {
+        RoomRepository roomRepository = new RoomRepository();
+        gameService = new GameService();
+        ReflectionTestUtils.setField(gameService, "roomRepository", roomRepository);
+
+        Room room = new Room(ROOM_ID, null, PLAYERS.get(0));
+        PLAYERS.forEach(room::addPlayer);
+        roomRepository.save(room);
+        gameService.initializeGame(ROOM_ID);
+
+        // Every player draws and discards five times to fill the discard pile and action log
+        for (int turn = 0; turn < 20; turn++) {
+            String player = PLAYERS.get(turn % PLAYERS.size());
+            Tile tile = gameService.drawTile(ROOM_ID, player);
+            gameService.discardTile(ROOM_ID, player, tile);
+        }
+        gameState = gameService.getGameState(ROOM_ID, PLAYERS.get(0));
+        seats = room.getCurrentGame().getPlayerPositions();
+    }
+
+    @Benchmark
+    public Map<String, Object> getGameStateCached() {
+        return gameService.getGameState(ROOM_ID, PLAYERS.get(0));
+    }
+
+    @Benchmark
+    public Map<String, Object> getGameStateRebuilt() {
+        gameService.evictGameState(ROOM_ID);
+        return gameService.getGameState(ROOM_ID, PLAYERS.get(0));
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws JsonProcessingException {
+        // Same envelope as WebSocketService
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", "GAME_STATE");
+        message.put("data", gameState);
+        message.put("timestamp", System.currentTimeMillis());
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return BinaryProtocolUtil.encode("GAME_STATE", gameState, seats);
+    }
+}
@@ -0,0 +1,51 @@
+package tech.hirsun.project.mahjongserver.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tech.hirsun.project.mahjongserver.model.Wall;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+/**
+ * Shuffling and dealing the wall at the start of a game
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TileBenchmark {
+
+    private byte[] wallOrder;
+
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        wallOrder = TileUtil.shuffledWall(new Random(42)).getInitialOrder();
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public Wall shuffledWall() {
+        return TileUtil.shuffledWall(random);
+    }
+
+    @Benchmark
+    public byte[][] dealInitialTiles() {
+        // Dealing draws from the wall, so every call deals from a fresh copy of the same order
+        return TileUtil.dealInitialTiles(new Wall(wallOrder.clone()), 4, 0);
+    }
+}
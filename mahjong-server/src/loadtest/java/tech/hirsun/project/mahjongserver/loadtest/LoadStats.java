@@ -0,0 +1,117 @@
+package tech.hirsun.project.mahjongserver.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Counters and the action-to-broadcast latency histogram shared by all simulated players.
+ * Latency is the time from a player sending a command to that player receiving the broadcast it causes.
+ */
+class LoadStats {
+
+    private final Recorder latency = new Recorder(3);
+
+    private final Histogram total = new Histogram(3);
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder received = new LongAdder();
+
+    private final LongAdder games = new LongAdder();
+
+    private final LongAdder stalls = new LongAdder();
+
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private long startNanos;
+
+    private long intervalStartNanos;
+
+    private long intervalStartSent;
+
+    void start() {
+        startNanos = System.nanoTime();
+        intervalStartNanos = startNanos;
+        latency.reset();
+    }
+
+    void recordLatency(long sentNanos) {
+        latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos));
+    }
+
+    void sent() {
+        sent.increment();
+    }
+
+    void received() {
+        received.increment();
+    }
+
+    void gameCompleted() {
+        games.increment();
+    }
+
+    void stalled() {
+        stalls.increment();
+    }
+
+    void error(String code) {
+        errors.computeIfAbsent(code, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Fold the latencies recorded since the last call into the total and describe the interval
+     * @return One progress line
+     */
+    synchronized String interval() {
+        Histogram histogram = latency.getIntervalHistogram();
+        total.add(histogram);
+        long now = System.nanoTime();
+        long sentNow = sent.sum();
+        double seconds = (now - intervalStartNanos) / 1e9;
+        String line = String.format("t=%4ds  actions/s=%8.1f  p50=%7.2fms  p99=%7.2fms  p999=%7.2fms  games=%d  errors=%d",
+                TimeUnit.NANOSECONDS.toSeconds(now - startNanos), (sentNow - intervalStartSent) / seconds,
+                millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9), games.sum(),
+                errors.values().stream().mapToLong(LongAdder::sum).sum());
+        intervalStartNanos = now;
+        intervalStartSent = sentNow;
+        return line;
+    }
+
+    /**
+     * Summarize the whole run
+     * @return Report values in a stable order
+     */
+    synchronized Map<String, Object> summary() {
+        total.add(latency.getIntervalHistogram());
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("durationSeconds", Math.round(seconds * 10) / 10.0);
+        summary.put("actionsSent", sent.sum());
+        summary.put("messagesReceived", received.sum());
+        summary.put("actionsPerSecond", Math.round(sent.sum() / seconds * 10) / 10.0);
+        summary.put("messagesPerSecond", Math.round(received.sum() / seconds * 10) / 10.0);
+        summary.put("gamesCompleted", games.sum());
+        summary.put("latencySamples", total.getTotalCount());
+        summary.put("latencyP50Ms", millis(total, 50));
+        summary.put("latencyP99Ms", millis(total, 99));
+        summary.put("latencyP999Ms", millis(total, 99.9));
+        summary.put("latencyMaxMs", total.getMaxValue() / 1000.0);
+        summary.put("stalls", stalls.sum());
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((code, count) -> errorCounts.put(code, count.sum()));
+        summary.put("errors", errorCounts);
+        return summary;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
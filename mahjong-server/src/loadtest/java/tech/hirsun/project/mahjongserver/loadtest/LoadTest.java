@@ -0,0 +1,175 @@
+package tech.hirsun.project.mahjongserver.loadtest;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.hirsun.project.mahjongserver.MahjongServerApplication;
+import tech.hirsun.project.mahjongserver.util.JwtUtil;
+
+/**
+ * Load test harness: boots the server in this JVM on a random port, creates rooms through the REST
+ * API, connects four simulated players per room to the game WebSocket and plays full games.
+ * Tokens are minted with the server's own JwtUtil, so no GitHub login is involved.
+ *
+ * <p>Options, other arguments are passed to Spring (e.g. --websocket.outbound.threads=8):
+ * <ul>
+ *   <li>--rooms=N           rooms to simulate (default 10)</li>
+ *   <li>--rate=R            commands per second per room (default 4)</li>
+ *   <li>--duration=S        seconds to run after all players connected (default 60)</li>
+ *   <li>--claim-at=T        wall size at which the player on turn claims a win (default 20)</li>
+ *   <li>--output=FILE       summary as JSON (default target/loadtest-result.json)</li>
+ * </ul>
+ * The simulated clients share the machine with the server, so results are a lower bound on capacity.
+ */
+public class LoadTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final int PLAYERS_PER_ROOM = 4;
+
+    private static final int REPORT_INTERVAL_SECONDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        // Command line arguments override the profile's properties; later arguments win
+        List<String> springArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                // Simulated hands are random, so claims must not be validated
+                "--game.win-validation.enabled=false",
+                "--logging.level.tech.hirsun.project.mahjongserver=WARN",
+                "--logging.level.tech.hirsun.project.mahjongserver.controller.WebSocketController=WARN",
+                "--logging.level.tech.hirsun.project.mahjongserver.service.GameService=WARN",
+                "--spring.security.oauth2.client.registration.github.client-id=loadtest",
+                "--spring.security.oauth2.client.registration.github.client-secret=loadtest"));
+        for (String arg : args) {
+            String[] option = arg.startsWith("--") ? arg.substring(2).split("=", 2) : new String[0];
+            if (option.length == 2 && List.of("rooms", "rate", "duration", "claim-at", "output").contains(option[0])) {
+                options.put(option[0], option[1]);
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        int roomCount = Integer.parseInt(options.getOrDefault("rooms", "10"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "4"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int claimAt = Integer.parseInt(options.getOrDefault("claim-at", "20"));
+        File output = new File(options.getOrDefault("output", "target/loadtest-result.json"));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MahjongServerApplication.class)
+                .run(springArgs.toArray(new String[0]));
+        int exitCode = 0;
+        try {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            String endpoint = context.getEnvironment().getProperty("websocket.endpoint", "/ws/game");
+            run(context.getBean(JwtUtil.class), "http://localhost:" + port, "ws://localhost:" + port + endpoint,
+                    roomCount, rate, duration, claimAt, output);
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static void run(JwtUtil jwtUtil, String baseUrl, String webSocketUrl, int roomCount, double rate,
+                            int duration, int claimAt, File output) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        LoadStats stats = new LoadStats();
+        List<SimulatedRoom> rooms = new ArrayList<>();
+
+        System.out.printf("Creating %d rooms with %d players each%n", roomCount, PLAYERS_PER_ROOM);
+        List<CompletableFuture<Void>> connections = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            String[] emails = new String[PLAYERS_PER_ROOM];
+            String[] tokens = new String[PLAYERS_PER_ROOM];
+            for (int seat = 0; seat < PLAYERS_PER_ROOM; seat++) {
+                emails[seat] = "load-" + i + "-" + seat + "@loadtest.local";
+                tokens[seat] = jwtUtil.generateToken(emails[seat]);
+            }
+            JsonNode created = post(httpClient, baseUrl + "/api/rooms", tokens[0], "{}").path("room");
+            String roomId = created.path("roomId").asText();
+            String joinBody = OBJECT_MAPPER.writeValueAsString(Map.of("password", created.path("password").asText()));
+            for (int seat = 1; seat < PLAYERS_PER_ROOM; seat++) {
+                post(httpClient, baseUrl + "/api/rooms/" + roomId + "/join", tokens[seat], joinBody);
+            }
+
+            SimulatedRoom room = new SimulatedRoom(roomId, stats, claimAt);
+            for (int seat = 0; seat < PLAYERS_PER_ROOM; seat++) {
+                SimulatedPlayer player = new SimulatedPlayer(emails[seat], room, stats);
+                room.addPlayer(player);
+                connections.add(player.connect(httpClient, URI.create(webSocketUrl + "?token=" + tokens[seat])));
+            }
+            rooms.add(room);
+        }
+        CompletableFuture.allOf(connections.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        System.out.printf("Connected %d players, running for %d s at %.1f commands/s per room%n",
+                connections.size(), duration, rate);
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        stats.start();
+        long periodMillis = (long) (1000 / rate);
+        for (SimulatedRoom room : rooms) {
+            room.start(scheduler, rate, ThreadLocalRandom.current().nextLong(Math.max(1, periodMillis)));
+        }
+        for (int elapsed = 0; elapsed < duration; elapsed += REPORT_INTERVAL_SECONDS) {
+            TimeUnit.SECONDS.sleep(Math.min(REPORT_INTERVAL_SECONDS, duration - elapsed));
+            System.out.println(stats.interval());
+        }
+        rooms.forEach(SimulatedRoom::stop);
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("rooms", roomCount);
+        summary.put("players", connections.size());
+        summary.put("commandsPerSecondPerRoom", rate);
+        summary.putAll(stats.summary());
+        System.out.println("Summary:");
+        summary.forEach((key, value) -> System.out.printf("  %-26s %s%n", key, value));
+        File directory = output.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            directory.mkdirs();
+        }
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(output, summary);
+        System.out.println("Summary written to " + output.getPath());
+
+        for (SimulatedRoom room : rooms) {
+            room.getPlayers().forEach(SimulatedPlayer::close);
+        }
+    }
+
+    private static JsonNode post(HttpClient httpClient, String url, String token, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("POST " + url + " failed with " + response.statusCode() + ": " + response.body());
+        }
+        return OBJECT_MAPPER.readTree(response.body());
+    }
+}
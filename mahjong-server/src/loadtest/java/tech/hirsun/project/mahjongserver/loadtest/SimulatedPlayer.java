@@ -0,0 +1,180 @@
+package tech.hirsun.project.mahjongserver.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * One WebSocket client playing in a simulated room.
+ * Commands are sent as JSON text; the broadcast a command causes is matched back to it by type
+ * to measure action-to-broadcast latency.
+ */
+class SimulatedPlayer implements WebSocket.Listener {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String email;
+
+    private final SimulatedRoom room;
+
+    private final LoadStats stats;
+
+    private final StringBuilder partial = new StringBuilder();
+
+    private final CompletableFuture<Void> connected = new CompletableFuture<>();
+
+    // Send times of commands waiting for their broadcast, by broadcast type
+    private final Map<String, Deque<Long>> pending = new ConcurrentHashMap<>();
+
+    private WebSocket webSocket;
+
+    SimulatedPlayer(String email, SimulatedRoom room, LoadStats stats) {
+        this.email = email;
+        this.room = room;
+        this.stats = stats;
+    }
+
+    String getEmail() {
+        return email;
+    }
+
+    /**
+     * Open the WebSocket
+     * @return Completes when the server has sent CONNECTED
+     */
+    CompletableFuture<Void> connect(HttpClient httpClient, URI uri) {
+        return httpClient.newWebSocketBuilder().buildAsync(uri, this)
+                .thenCompose(socket -> {
+                    webSocket = socket;
+                    return connected;
+                });
+    }
+
+    /**
+     * Send a command
+     * @param type Message type
+     * @param data Message data, the room ID is added
+     * @param broadcastType Broadcast that completes the command, or null if it is not timed
+     */
+    void send(String type, Map<String, Object> data, String broadcastType) {
+        Map<String, Object> payload = new HashMap<>(data);
+        payload.put("roomId", room.getRoomId());
+        String json;
+        try {
+            json = OBJECT_MAPPER.writeValueAsString(Map.of("type", type, "data", payload));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        if (broadcastType != null) {
+            pending.computeIfAbsent(broadcastType, key -> new ConcurrentLinkedDeque<>()).add(System.nanoTime());
+        }
+        // A WebSocket accepts the next frame only after the previous one was written
+        synchronized (this) {
+            webSocket.sendText(json, true).join();
+        }
+        stats.sent();
+    }
+
+    /**
+     * Forget the send time of the latest command awaiting a broadcast, once it failed or stalled,
+     * so the next broadcast of that type is not timed from it
+     * @param broadcastType Broadcast the abandoned command was waiting for
+     */
+    void abandon(String broadcastType) {
+        Deque<Long> sendTimes = pending.get(broadcastType);
+        if (sendTimes != null) {
+            sendTimes.pollLast();
+        }
+    }
+
+    void close() {
+        if (webSocket != null) {
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            String text = partial.toString();
+            partial.setLength(0);
+            try {
+                handle(OBJECT_MAPPER.readTree(text));
+            } catch (Exception e) {
+                stats.error("CLIENT_" + e.getClass().getSimpleName());
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        connected.completeExceptionally(new IllegalStateException("Closed: " + statusCode + " " + reason));
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        connected.completeExceptionally(error);
+        stats.error("CLIENT_" + error.getClass().getSimpleName());
+    }
+
+    private void handle(JsonNode message) {
+        stats.received();
+        String type = message.path("type").asText();
+        JsonNode data = message.path("data");
+        if (data.has("gameData")) {
+            // Room broadcasts wrap their payload
+            data = data.get("gameData");
+        }
+        switch (type) {
+            case "CONNECTED" -> connected.complete(null);
+            case "GAME_STARTED" -> {
+                acknowledge("GAME_STARTED");
+                room.onGameStarted(this);
+            }
+            case "TILE_DRAWN" -> room.onTileDrawn(this, data.path("tile"));
+            case "ACTION" -> {
+                if (email.equals(data.path("playerEmail").asText())) {
+                    acknowledge(data.path("type").asText());
+                    room.onOwnAction(this, data);
+                }
+            }
+            case "WIN_CLAIM" -> room.onWinClaim(this, data.path("claimerEmail").asText());
+            case "GAME_END" -> room.onGameEnd(this);
+            case "ERROR" -> {
+                String code = data.path("code").asText();
+                stats.error(code);
+                room.onError(this, code);
+            }
+            default -> {
+                // State updates and notifications only count as received
+            }
+        }
+    }
+
+    private void acknowledge(String broadcastType) {
+        Deque<Long> sendTimes = pending.get(broadcastType);
+        Long sentNanos = sendTimes != null ? sendTimes.poll() : null;
+        if (sentNanos != null) {
+            stats.recordLatency(sentNanos);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package tech.hirsun.project.mahjongserver.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Drives one room through full games: the creator starts a game, players take turns drawing and
+ * discarding, and when the wall runs low the player on turn claims a win that the others confirm.
+ * One command is issued per tick; the next one waits until the previous command's broadcast arrived.
+ */
+class SimulatedRoom {
+
+    private enum Phase { IDLE, STARTING, DRAW, DISCARD, CLAIMING }
+
+    // A command whose broadcast has not arrived by then is abandoned
+    private static final long STALL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final String roomId;
+
+    private final LoadStats stats;
+
+    private final int claimAt;
+
+    private final List<SimulatedPlayer> players = new ArrayList<>();
+
+    private Executor executor;
+
+    private ScheduledFuture<?> ticker;
+
+    private Phase phase = Phase.IDLE;
+
+    private int turn;
+
+    private boolean inFlight;
+
+    private long inFlightSince;
+
+    // Sender and awaited broadcast of the command in flight
+    private SimulatedPlayer inFlightPlayer;
+
+    private String inFlightBroadcast;
+
+    private JsonNode drawnTile;
+
+    private int remainingTiles = Integer.MAX_VALUE;
+
+    SimulatedRoom(String roomId, LoadStats stats, int claimAt) {
+        this.roomId = roomId;
+        this.stats = stats;
+        this.claimAt = claimAt;
+    }
+
+    String getRoomId() {
+        return roomId;
+    }
+
+    List<SimulatedPlayer> getPlayers() {
+        return players;
+    }
+
+    void addPlayer(SimulatedPlayer player) {
+        players.add(player);
+    }
+
+    /**
+     * Start issuing commands
+     * @param scheduler Scheduler for ticks and replies
+     * @param actionsPerSecond Commands per second for this room
+     * @param initialDelayMillis Delay before the first tick, to spread rooms over time
+     */
+    void start(ScheduledExecutorService scheduler, double actionsPerSecond, long initialDelayMillis) {
+        executor = scheduler;
+        long periodMicros = Math.max(1, (long) (1_000_000 / actionsPerSecond));
+        ticker = scheduler.scheduleAtFixedRate(this::tick, initialDelayMillis * 1000, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+        }
+    }
+
+    private synchronized void tick() {
+        if (inFlight) {
+            if (System.nanoTime() - inFlightSince < STALL_NANOS) {
+                return;
+            }
+            stats.stalled();
+            abandonInFlight();
+            phase = phase == Phase.STARTING ? Phase.IDLE : Phase.DRAW;
+        }
+        SimulatedPlayer current = players.get(turn);
+        switch (phase) {
+            case IDLE -> {
+                phase = Phase.STARTING;
+                issue(players.get(0), "START_GAME", Map.of(), "GAME_STARTED");
+            }
+            case DRAW -> issue(current, "DRAW_TILE", Map.of(), "DRAW");
+            case DISCARD -> {
+                if (remainingTiles <= claimAt || drawnTile == null) {
+                    phase = Phase.CLAIMING;
+                    issue(current, "CLAIM_WIN", Map.of(), "CLAIM_WIN");
+                } else {
+                    issue(current, "DISCARD_TILE", Map.of("tile", drawnTile), "DISCARD");
+                }
+            }
+            default -> {
+                // Starting or claiming, waiting for the server
+            }
+        }
+    }
+
+    private void issue(SimulatedPlayer player, String type, Map<String, Object> data, String broadcastType) {
+        inFlight = true;
+        inFlightSince = System.nanoTime();
+        inFlightPlayer = player;
+        inFlightBroadcast = broadcastType;
+        player.send(type, data, broadcastType);
+    }
+
+    // The command will not be acknowledged, a retry must not be timed from its send
+    private void abandonInFlight() {
+        inFlight = false;
+        inFlightPlayer.abandon(inFlightBroadcast);
+    }
+
+    synchronized void onGameStarted(SimulatedPlayer player) {
+        if (player == players.get(0)) {
+            phase = Phase.DRAW;
+            turn = 0;
+            remainingTiles = Integer.MAX_VALUE;
+            inFlight = false;
+        }
+    }
+
+    synchronized void onTileDrawn(SimulatedPlayer player, JsonNode tile) {
+        if (player == players.get(turn)) {
+            drawnTile = tile;
+        }
+    }
+
+    synchronized void onOwnAction(SimulatedPlayer player, JsonNode action) {
+        if (player != players.get(turn)) {
+            return;
+        }
+        switch (action.path("type").asText()) {
+            case "DRAW" -> {
+                remainingTiles = action.path("remainingTiles").asInt(Integer.MAX_VALUE);
+                phase = Phase.DISCARD;
+                inFlight = false;
+            }
+            case "DISCARD" -> {
+                drawnTile = null;
+                turn = (turn + 1) % players.size();
+                phase = Phase.DRAW;
+                inFlight = false;
+            }
+            default -> {
+                // CLAIM_WIN completes with GAME_END
+            }
+        }
+    }
+
+    void onWinClaim(SimulatedPlayer player, String claimerEmail) {
+        if (!player.getEmail().equals(claimerEmail)) {
+            // Reply off the WebSocket's listener thread
+            executor.execute(() -> player.send("CONFIRM_WIN", Map.of("confirm", true), "CONFIRM_WIN"));
+        }
+    }
+
+    synchronized void onGameEnd(SimulatedPlayer player) {
+        if (player == players.get(0)) {
+            stats.gameCompleted();
+            phase = Phase.IDLE;
+            inFlight = false;
+        }
+    }
+
+    synchronized void onError(SimulatedPlayer player, String code) {
+        if (!inFlight || player != players.get(turn) && phase != Phase.STARTING) {
+            return;
+        }
+        abandonInFlight();
+        switch (code) {
+            // The wall is empty, end the game with a claim
+            case "DRAW_FAILED" -> {
+                remainingTiles = 0;
+                phase = Phase.DISCARD;
+            }
+            case "CANNOT_START" -> phase = Phase.IDLE;
+            // ROOM_BUSY and anything else: retry on the next tick
+            default -> phase = switch (phase) {
+                case STARTING -> Phase.IDLE;
+                case CLAIMING -> Phase.DISCARD;
+                default -> phase;
+            };
+        }
+    }
+}
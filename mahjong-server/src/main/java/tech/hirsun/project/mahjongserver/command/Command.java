@@ -0,0 +1,25 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * A decoded inbound WebSocket command.
+ * Commands that name a room are run on that room's executor, one at a time.
+ */
+public interface Command {
+
+    /**
+     * Get the room the command applies to
+     * @return Room ID, or null if the command is not tied to a room
+     */
+    String roomId();
+
+    /**
+     * Check that a required field was sent
+     * @param value Field value
+     * @param field Field name, used in the error message
+     */
+    static void require(Object value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+    }
+}
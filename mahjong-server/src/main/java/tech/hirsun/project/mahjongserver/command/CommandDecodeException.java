@@ -0,0 +1,22 @@
+package tech.hirsun.project.mahjongserver.command;
+
+import lombok.Getter;
+
+/**
+ * An inbound message that cannot be turned into a command.
+ * The code is sent back to the client in the ERROR message.
+ */
+@Getter
+public class CommandDecodeException extends RuntimeException {
+
+    public static final String MALFORMED_MESSAGE = "MALFORMED_MESSAGE";
+    public static final String UNKNOWN_TYPE = "UNKNOWN_TYPE";
+    public static final String INVALID_COMMAND = "INVALID_COMMAND";
+
+    private final String code;
+
+    public CommandDecodeException(String code, String message) {
+        super(message);
+        this.code = code;
+    }
+}
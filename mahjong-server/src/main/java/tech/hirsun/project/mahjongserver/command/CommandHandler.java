@@ -0,0 +1,10 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * Handles one type of command for a user
+ */
+@FunctionalInterface
+public interface CommandHandler<T extends Command> {
+
+    void handle(String userEmail, T command);
+}
@@ -0,0 +1,207 @@
+package tech.hirsun.project.mahjongserver.command;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.ValueInstantiationException;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Decodes inbound WebSocket messages into typed commands and routes them to their handlers.
+ * Each command type is registered once with its record class and handler; the record's reader is
+ * built at registration, so decoding a message does not look up deserializers. JSON text is read
+ * with a streaming parser that binds {@code data} straight into the record without building a tree.
+ */
+@Component
+public class CommandRegistry {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Registration<?>> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Register the handler of a command type
+     * @param type Message type
+     * @param commandClass Record the message data binds to
+     * @param handler Handler of the command
+     */
+    public <T extends Command> void register(String type, Class<T> commandClass, CommandHandler<T> handler) {
+        registrations.put(type, new Registration<>(type, commandClass, objectMapper.readerFor(commandClass), handler));
+    }
+
+    /**
+     * Decode a JSON text message of the form {"type": ..., "data": {...}}
+     * @param payload Message text
+     * @return Decoded command bound to its handler
+     * @throws CommandDecodeException if the message is malformed, of unknown type, or has invalid data
+     */
+    public DecodedCommand<?> decode(String payload) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new CommandDecodeException(CommandDecodeException.MALFORMED_MESSAGE, "Message must be a JSON object");
+            }
+            String type = null;
+            TokenBuffer data = null;
+            DecodedCommand<?> decoded = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("type".equals(field)) {
+                    if (token != JsonToken.VALUE_STRING) {
+                        throw new CommandDecodeException(CommandDecodeException.MALFORMED_MESSAGE, "Message type must be a string");
+                    }
+                    type = parser.getText();
+                } else if ("data".equals(field) && type != null) {
+                    // Usual field order, bind straight from the stream
+                    decoded = lookup(type).bind(parser);
+                } else if ("data".equals(field)) {
+                    // Data before type, keep its tokens until the type is known
+                    data = new TokenBuffer(parser);
+                    data.copyCurrentStructure(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (type == null) {
+                throw new CommandDecodeException(CommandDecodeException.MALFORMED_MESSAGE, "Message type is missing");
+            }
+            if (decoded != null) {
+                return decoded;
+            }
+            Registration<?> registration = lookup(type);
+            if (data == null) {
+                return registration.bindEmpty();
+            }
+            try (JsonParser dataParser = data.asParser()) {
+                dataParser.nextToken();
+                return registration.bind(dataParser);
+            }
+        } catch (JsonProcessingException e) {
+            throw new CommandDecodeException(CommandDecodeException.MALFORMED_MESSAGE, "Malformed JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new CommandDecodeException(CommandDecodeException.MALFORMED_MESSAGE, "Unreadable message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Decode a command whose type and data were already read, e.g. from a binary protocol frame
+     * @param type Message type
+     * @param data Message data as maps, lists and scalars
+     * @return Decoded command bound to its handler
+     * @throws CommandDecodeException if the type is unknown or the data is invalid
+     */
+    public DecodedCommand<?> decode(String type, Object data) {
+        if (type == null) {
+            throw new CommandDecodeException(CommandDecodeException.MALFORMED_MESSAGE, "Message type is missing");
+        }
+        return lookup(type).convert(data);
+    }
+
+    private Registration<?> lookup(String type) {
+        Registration<?> registration = registrations.get(type);
+        if (registration == null) {
+            throw new CommandDecodeException(CommandDecodeException.UNKNOWN_TYPE, "Unknown message type: " + type);
+        }
+        return registration;
+    }
+
+    private class Registration<T extends Command> {
+        private final String type;
+        private final Class<T> commandClass;
+        private final ObjectReader reader;
+        private final CommandHandler<T> handler;
+
+        private Registration(String type, Class<T> commandClass, ObjectReader reader, CommandHandler<T> handler) {
+            this.type = type;
+            this.commandClass = commandClass;
+            this.reader = reader;
+            this.handler = handler;
+        }
+
+        private DecodedCommand<T> bind(JsonParser parser) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                return bindEmpty();
+            }
+            try {
+                return new DecodedCommand<>(type, reader.readValue(parser), handler);
+            } catch (JsonMappingException e) {
+                throw invalid(e);
+            }
+        }
+
+        // No data, the record's own checks decide whether that is allowed
+        private DecodedCommand<T> bindEmpty() {
+            return convert(Map.of());
+        }
+
+        private DecodedCommand<T> convert(Object data) {
+            try {
+                return new DecodedCommand<>(type, objectMapper.convertValue(data != null ? data : Map.of(), commandClass), handler);
+            } catch (IllegalArgumentException e) {
+                throw e.getCause() instanceof JsonMappingException mapping ? invalid(mapping) : invalid(e.getMessage());
+            }
+        }
+
+        private CommandDecodeException invalid(JsonMappingException e) {
+            if (e instanceof ValueInstantiationException && e.getCause() != null) {
+                // A record check failed, its message names the field
+                return invalid(e.getCause().getMessage());
+            }
+            StringBuilder path = new StringBuilder();
+            for (JsonMappingException.Reference reference : e.getPath()) {
+                if (reference.getFieldName() == null) {
+                    path.append('[').append(reference.getIndex()).append(']');
+                } else {
+                    path.append(path.isEmpty() ? "" : ".").append(reference.getFieldName());
+                }
+            }
+            return invalid((path.isEmpty() ? "" : path + ": ") + e.getOriginalMessage());
+        }
+
+        private CommandDecodeException invalid(String reason) {
+            return new CommandDecodeException(CommandDecodeException.INVALID_COMMAND, "Invalid " + type + " data: " + reason);
+        }
+    }
+
+    /**
+     * A decoded command together with the handler it was registered with
+     */
+    public static class DecodedCommand<T extends Command> {
+        private final String type;
+        private final T command;
+        private final CommandHandler<T> handler;
+
+        private DecodedCommand(String type, T command, CommandHandler<T> handler) {
+            this.type = type;
+            this.command = command;
+            this.handler = handler;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public T getCommand() {
+            return command;
+        }
+
+        /**
+         * Run the command's handler
+         * @param userEmail Sender's email
+         */
+        public void handle(String userEmail) {
+            handler.handle(userEmail, command);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * CONFIRM_WIN, confirms or denies a pending win claim.
+ * The winner is optional; the pending claim already identifies the claimer.
+ */
+public record ConfirmWinCommand(String roomId, Boolean confirm, String winnerEmail) implements Command {
+
+    public ConfirmWinCommand {
+        Command.require(roomId, "roomId");
+        Command.require(confirm, "confirm");
+    }
+}
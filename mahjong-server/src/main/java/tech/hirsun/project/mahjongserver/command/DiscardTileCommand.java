@@ -0,0 +1,15 @@
+package tech.hirsun.project.mahjongserver.command;
+
+import tech.hirsun.project.mahjongserver.model.Tile;
+
+/**
+ * DISCARD_TILE, the tile is identified by its id
+ */
+public record DiscardTileCommand(String roomId, Tile tile) implements Command {
+
+    public DiscardTileCommand {
+        Command.require(roomId, "roomId");
+        Command.require(tile, "tile");
+        Command.require(tile.getType(), "tile.type");
+    }
+}
@@ -0,0 +1,11 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * GET_GAME_STATE, the request id is echoed back so the client can match the response
+ */
+public record GetGameStateCommand(String roomId, String requestId) implements Command {
+
+    public GetGameStateCommand {
+        Command.require(roomId, "roomId");
+    }
+}
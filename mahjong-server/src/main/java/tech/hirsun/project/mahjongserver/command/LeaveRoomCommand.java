@@ -0,0 +1,7 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * LEAVE_ROOM, the room is optional because leaving is always refused
+ */
+public record LeaveRoomCommand(String roomId) implements Command {
+}
@@ -0,0 +1,16 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * REPLAY_SPEED, changes the speed of the sender's running replay
+ */
+public record ReplaySpeedCommand(Double speed) implements Command {
+
+    public ReplaySpeedCommand {
+        Command.require(speed, "speed");
+    }
+
+    @Override
+    public String roomId() {
+        return null;
+    }
+}
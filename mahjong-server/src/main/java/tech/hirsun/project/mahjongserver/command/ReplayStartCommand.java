@@ -0,0 +1,17 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * REPLAY_START, streams a finished game to the sender from an action on, at a speed relative to the original pace
+ */
+public record ReplayStartCommand(Long gameId, Integer fromAction, Double speed) implements Command {
+
+    public ReplayStartCommand {
+        Command.require(gameId, "gameId");
+    }
+
+    // Replays read a finished game's record and never touch the live room
+    @Override
+    public String roomId() {
+        return null;
+    }
+}
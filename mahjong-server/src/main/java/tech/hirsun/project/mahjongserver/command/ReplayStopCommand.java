@@ -0,0 +1,12 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * REPLAY_STOP, stops the sender's running replay
+ */
+public record ReplayStopCommand() implements Command {
+
+    @Override
+    public String roomId() {
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * A command that only names a room: JOIN_ROOM, START_GAME, DRAW_TILE, CLAIM_WIN, GET_HINT
+ */
+public record RoomCommand(String roomId) implements Command {
+
+    public RoomCommand {
+        Command.require(roomId, "roomId");
+    }
+}
@@ -0,0 +1,12 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * SET_HINTS, turns shanten hints on or off for a room
+ */
+public record SetHintsCommand(String roomId, Boolean enabled) implements Command {
+
+    public SetHintsCommand {
+        Command.require(roomId, "roomId");
+        Command.require(enabled, "enabled");
+    }
+}
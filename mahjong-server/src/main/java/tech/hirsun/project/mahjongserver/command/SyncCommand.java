@@ -0,0 +1,12 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * SYNC, sent by a delta client that detected a version gap.
+ * Without gameId and version the client gets the full state.
+ */
+public record SyncCommand(String roomId, Long gameId, Long version, Long actionSeq) implements Command {
+
+    public SyncCommand {
+        Command.require(roomId, "roomId");
+    }
+}
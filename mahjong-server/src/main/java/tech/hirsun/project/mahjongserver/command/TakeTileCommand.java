@@ -0,0 +1,12 @@
+package tech.hirsun.project.mahjongserver.command;
+
+/**
+ * TAKE_TILE, takes a tile from the discard pile
+ */
+public record TakeTileCommand(String roomId, Integer tileId) implements Command {
+
+    public TakeTileCommand {
+        Command.require(roomId, "roomId");
+        Command.require(tileId, "tileId");
+    }
+}
@@ -0,0 +1,19 @@
+package tech.hirsun.project.mahjongserver.command;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * REVEAL_TILES and HIDE_TILES, the tiles to move between hand and revealed area
+ */
+public record TileIdsCommand(String roomId, List<Integer> tileIds) implements Command {
+
+    public TileIdsCommand {
+        Command.require(roomId, "roomId");
+        Command.require(tileIds, "tileIds");
+        // contains(null) throws on immutable lists
+        if (tileIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("tileIds must not contain null");
+        }
+    }
+}
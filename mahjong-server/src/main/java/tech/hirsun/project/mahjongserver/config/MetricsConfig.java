@@ -0,0 +1,73 @@
+package tech.hirsun.project.mahjongserver.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.persistence.WriteAheadLog;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+import tech.hirsun.project.mahjongserver.repository.SessionRepository;
+import tech.hirsun.project.mahjongserver.service.OutboundMessageSender;
+import tech.hirsun.project.mahjongserver.service.RoomIdAllocator;
+import tech.hirsun.project.mahjongserver.util.JwtUtil;
+
+/**
+ * Gauges for the server's in-memory state, read when metrics are scraped.
+ * Timers and counters are recorded where the events happen.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder gameStateMetrics(RoomRepository roomRepository, SessionRepository sessionRepository,
+                                        OutboundMessageSender outboundMessageSender, RoomIdAllocator roomIdAllocator,
+                                        JwtUtil jwtUtil, WriteAheadLog writeAheadLog) {
+        return registry -> {
+            for (Room.RoomStatus status : Room.RoomStatus.values()) {
+                Gauge.builder("mahjong.rooms", roomRepository, rooms -> rooms.countByStatus(status))
+                        .description("Rooms by status")
+                        .tag("status", status.name())
+                        .register(registry);
+            }
+            Gauge.builder("mahjong.rooms.ids.free", roomIdAllocator, RoomIdAllocator::getFreeCount)
+                    .description("Room IDs that can still be allocated")
+                    .register(registry);
+            Gauge.builder("mahjong.sessions.open", sessionRepository, SessionRepository::getSessionCount)
+                    .description("Open WebSocket sessions")
+                    .register(registry);
+            // Per-session queues are summarized, a gauge per session would be unbounded
+            Gauge.builder("mahjong.ws.outbound.queue.depth", outboundMessageSender, OutboundMessageSender::getTotalQueueDepth)
+                    .description("Frames waiting to be written, across all sessions")
+                    .register(registry);
+            Gauge.builder("mahjong.ws.outbound.queue.depth.max", outboundMessageSender, OutboundMessageSender::getMaxQueueDepth)
+                    .description("Frames waiting to be written on the most backed up session")
+                    .register(registry);
+            FunctionCounter.builder("mahjong.ws.sessions.dropped", outboundMessageSender, OutboundMessageSender::getDroppedSessionCount)
+                    .description("Sessions closed for not keeping up with their outbound frames")
+                    .register(registry);
+            FunctionCounter.builder("mahjong.jwt.cache", jwtUtil, JwtUtil::getCacheHitCount)
+                    .description("Token lookups by whether the verified claims were cached")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("mahjong.jwt.cache", jwtUtil, JwtUtil::getCacheMissCount)
+                    .description("Token lookups by whether the verified claims were cached")
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("mahjong.jwt.cache.size", jwtUtil, JwtUtil::getCacheSize)
+                    .description("Verified tokens in the cache")
+                    .register(registry);
+            Gauge.builder("mahjong.wal.queue.depth", writeAheadLog, WriteAheadLog::getQueueDepth)
+                    .description("Log records waiting to be written")
+                    .register(registry);
+            Gauge.builder("mahjong.wal.unsynced", writeAheadLog, log -> log.getLastLsn() - log.getDurableLsn())
+                    .description("Log records appended but not yet synced to disk")
+                    .register(registry);
+            Gauge.builder("mahjong.wal.failed", writeAheadLog, log -> log.isFailed() ? 1 : 0)
+                    .description("1 once a log write failed and appends are rejected")
+                    .register(registry);
+        };
+    }
+}
@@ -2,6 +2,7 @@ package tech.hirsun.project.mahjongserver.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
@@ -33,6 +34,9 @@ public class WebSecurityConfig {
     @Value("${frontend.url:http://localhost:5173}")
     private String frontendUrl;
 
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -46,6 +50,9 @@ public class WebSecurityConfig {
                 .requestMatchers("/api/auth/github/**").permitAll()
                 .requestMatchers("/api/auth/github-callback").permitAll()
                 .requestMatchers("/api/auth/github-login-url").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                // Scrapes reach the management port from inside the network, elsewhere metrics need a token
+                .requestMatchers(request -> managementPort > 0 && request.getLocalPort() == managementPort).permitAll()
                 .anyRequest().authenticated()
             )
             .oauth2Login(oauth2 -> oauth2
@@ -60,6 +67,14 @@ public class WebSecurityConfig {
         return http.build();
     }
 
+    // The filter is a bean for injection, keep Spring Boot from also registering it with the servlet container
+    @Bean
+    public FilterRegistrationBean<JwtFilter> jwtFilterRegistration(JwtFilter filter) {
+        FilterRegistrationBean<JwtFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
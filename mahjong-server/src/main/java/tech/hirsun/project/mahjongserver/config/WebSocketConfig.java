@@ -8,6 +8,7 @@ import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 
 import tech.hirsun.project.mahjongserver.controller.WebSocketController;
+import tech.hirsun.project.mahjongserver.handler.CompressionHandshakeHandler;
 import tech.hirsun.project.mahjongserver.handler.WebSocketHandshakeInterceptor;
 
 @Configuration
@@ -23,9 +24,13 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private WebSocketHandshakeInterceptor handshakeInterceptor;
 
+    @Autowired
+    private CompressionHandshakeHandler handshakeHandler;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(webSocketController, websocketEndpoint)
+                .setHandshakeHandler(handshakeHandler)
                 .addInterceptors(handshakeInterceptor)
                 .setAllowedOrigins("*");  // 允许所有源，或者指定"http://localhost:5173"
     }
@@ -6,12 +6,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -58,24 +58,14 @@ public class AuthController {
     /**
      * Update nickname endpoint
      * @param request Nickname update request
-     * @param token JWT token
+     * @param user Authenticated user
      * @return Updated user
      */
     @PostMapping("/nickname")
     public ResponseEntity<Map<String, Object>> updateNickname(@RequestBody NicknameRequest request, 
-                                                             @RequestHeader("Authorization") String token) {
-        if (token == null || !token.startsWith("Bearer ")) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
-        }
-        
-        String jwtToken = token.substring(7);
-        if (!authService.validateToken(jwtToken)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
-        }
-        
-        User user = authService.getUserFromToken(jwtToken);
+                                                             @AuthenticationPrincipal User user) {
         if (user == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
         }
         
         if (request.getNickname() == null || request.getNickname().trim().isEmpty()) {
@@ -89,23 +79,13 @@ public class AuthController {
 
     /**
      * Validate token endpoint
-     * @param token JWT token
+     * @param user Authenticated user
      * @return User information if token is valid
      */
     @GetMapping("/validate")
-    public ResponseEntity<Map<String, Object>> validateToken(@RequestHeader("Authorization") String token) {
-        if (token == null || !token.startsWith("Bearer ")) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
-        }
-        
-        String jwtToken = token.substring(7);
-        if (!authService.validateToken(jwtToken)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
-        }
-        
-        User user = authService.getUserFromToken(jwtToken);
+    public ResponseEntity<Map<String, Object>> validateToken(@AuthenticationPrincipal User user) {
         if (user == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "User not found"));
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
         }
         
         return ResponseEntity.ok(Map.of("user", user));
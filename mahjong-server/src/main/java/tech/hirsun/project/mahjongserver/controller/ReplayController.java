@@ -0,0 +1,105 @@
+package tech.hirsun.project.mahjongserver.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import tech.hirsun.project.mahjongserver.model.GameRecord;
+import tech.hirsun.project.mahjongserver.model.User;
+import tech.hirsun.project.mahjongserver.service.ReplayService;
+
+@RestController
+@RequestMapping("/api/replays")
+public class ReplayController {
+
+    @Autowired
+    private ReplayService replayService;
+
+    /**
+     * Get the last finished game of a room
+     * @param user Authenticated user
+     * @param roomId Room ID
+     * @return Summary of the game, only for its players
+     */
+    @GetMapping("/rooms/{roomId}/last")
+    public ResponseEntity<Map<String, Object>> getLastReplay(@AuthenticationPrincipal User user, @PathVariable String roomId) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
+        }
+        return summaryOf(user, replayService.getLastRecord(roomId));
+    }
+
+    /**
+     * Get a finished game
+     * @param user Authenticated user
+     * @param gameId Game ID
+     * @return Summary of the game, only for its players
+     */
+    @GetMapping("/{gameId}")
+    public ResponseEntity<Map<String, Object>> getReplay(@AuthenticationPrincipal User user, @PathVariable long gameId) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
+        }
+        return summaryOf(user, replayService.getRecord(gameId));
+    }
+
+    /**
+     * Get the state of a finished game after some of its actions
+     * @param user Authenticated user
+     * @param gameId Game ID
+     * @param action Actions applied, 0 for the state right after the deal
+     * @return The frame, with every player's tiles shown
+     */
+    @GetMapping("/{gameId}/frames/{action}")
+    public ResponseEntity<Map<String, Object>> getFrame(@AuthenticationPrincipal User user, @PathVariable long gameId,
+                                                        @PathVariable int action) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
+        }
+        GameRecord record = replayService.getRecord(gameId);
+        if (record == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Replay not found"));
+        }
+        if (!record.hasPlayer(user.getEmail())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only players of the game can replay it"));
+        }
+        if (action < 0 || action > record.actions().size()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid action"));
+        }
+
+        Map<String, Object> frame = replayService.getFrame(gameId, action);
+        if (frame == null) {
+            // Dropped from the kept records meanwhile
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Replay not found"));
+        }
+        return ResponseEntity.ok(frame);
+    }
+
+    private static ResponseEntity<Map<String, Object>> summaryOf(User user, GameRecord record) {
+        if (record == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Replay not found"));
+        }
+        if (!record.hasPlayer(user.getEmail())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only players of the game can replay it"));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("gameId", record.gameId());
+        response.put("roomId", record.roomId());
+        response.put("dealerEmail", record.dealerEmail());
+        response.put("playerEmails", record.playersBySeat());
+        response.put("actionCount", record.actions().size());
+        response.put("startTime", record.startTime());
+        response.put("endTime", record.endTime());
+        response.put("winnerEmail", record.winnerEmail());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,6 +1,5 @@
 package tech.hirsun.project.mahjongserver.controller;
 
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,18 +8,20 @@ import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import lombok.Data;
 import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.RoomView;
 import tech.hirsun.project.mahjongserver.model.User;
-import tech.hirsun.project.mahjongserver.service.AuthService;
+import tech.hirsun.project.mahjongserver.service.RoomCommandExecutor;
 import tech.hirsun.project.mahjongserver.service.RoomService;
 import tech.hirsun.project.mahjongserver.service.WebSocketService;
 
@@ -28,28 +29,34 @@ import tech.hirsun.project.mahjongserver.service.WebSocketService;
 @RequestMapping("/api/rooms")
 public class RoomController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private RoomService roomService;
 
     @Autowired
-    private AuthService authService;
+    private WebSocketService webSocketService;
 
     @Autowired
-    private WebSocketService webSocketService;
+    private RoomCommandExecutor roomCommandExecutor;
 
     /**
      * Create a new room
-     * @param token JWT token
+     * @param user Authenticated user
      * @return Created room
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createRoom(@RequestHeader("Authorization") String token) {
-        User user = validateToken(token);
+    public ResponseEntity<Map<String, Object>> createRoom(@AuthenticationPrincipal User user) {
         if (user == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
         }
         
         Room room = roomService.createRoom(user.getEmail());
+        if (room == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "No room available, please try again later"));
+        }
         
         Map<String, Object> response = new HashMap<>();
         response.put("room", room);
@@ -58,33 +65,65 @@ public class RoomController {
     }
 
     /**
-     * Get all active rooms
-     * @param token JWT token
-     * @return List of active rooms
+     * Get active rooms, newest first. Without cursor and limit every active room is returned,
+     * as older clients expect; with either the rooms come a page at a time.
+     * @param user Authenticated user
+     * @param status Only rooms with this status (WAITING, PLAYING, FINISHED)
+     * @param joinable Only rooms that can still be joined
+     * @param cursor nextCursor of the previous page
+     * @param limit Page size, at most 100, 50 if only a cursor is given
+     * @return Rooms on the page and the cursor of the next page, null on the last page
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllRooms(@RequestHeader("Authorization") String token) {
-        User user = validateToken(token);
+    public ResponseEntity<Map<String, Object>> getAllRooms(@AuthenticationPrincipal User user,
+                                                           @RequestParam(required = false) String status,
+                                                           @RequestParam(defaultValue = "false") boolean joinable,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer limit) {
         if (user == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
         }
         
-        Collection<Room> rooms = roomService.getAllActiveRooms();
+        Room.RoomStatus roomStatus = null;
+        if (status != null) {
+            try {
+                roomStatus = Room.RoomStatus.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid status"));
+            }
+        }
+        boolean paged = cursor != null || limit != null;
+        int pageSize = !paged ? Integer.MAX_VALUE - 1
+                : limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        
+        // One extra room tells whether another page follows
+        List<RoomView> rooms;
+        try {
+            rooms = roomService.getActiveRooms(roomStatus, joinable, cursor, pageSize + 1);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
+        String nextCursor = null;
+        if (rooms.size() > pageSize) {
+            rooms = rooms.subList(0, pageSize);
+            nextCursor = roomService.getCursorAfter(rooms.get(pageSize - 1));
+        }
         
         // 移除所有房间的密码信息
         List<Map<String, Object>> roomsWithoutPasswords = rooms.stream().map(room -> {
             Map<String, Object> roomData = new HashMap<>();
-            roomData.put("roomId", room.getRoomId());
-            roomData.put("creationTime", room.getCreationTime());
-            roomData.put("creatorEmail", room.getCreatorEmail());
-            roomData.put("playerEmails", room.getPlayerEmails());
-            roomData.put("status", room.getStatus());
+            roomData.put("roomId", room.roomId());
+            roomData.put("creationTime", room.creationTime());
+            roomData.put("creatorEmail", room.creatorEmail());
+            roomData.put("playerEmails", room.playerEmails());
+            roomData.put("status", room.status());
             // 不包含密码
             return roomData;
         }).collect(Collectors.toList());
         
         Map<String, Object> response = new HashMap<>();
         response.put("rooms", roomsWithoutPasswords);
+        response.put("nextCursor", nextCursor);
         
         return ResponseEntity.ok(response);
     }
@@ -92,18 +131,17 @@ public class RoomController {
     /**
      * Get a room by ID
      * @param roomId Room ID
-     * @param token JWT token
+     * @param user Authenticated user
      * @return Room details
      */
     @GetMapping("/{roomId}")
     public ResponseEntity<Map<String, Object>> getRoomById(@PathVariable String roomId, 
-                                                          @RequestHeader("Authorization") String token) {
-        User user = validateToken(token);
+                                                          @AuthenticationPrincipal User user) {
         if (user == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
         }
         
-        Room room = roomService.getRoomById(roomId);
+        RoomView room = roomService.getRoomView(roomId);
         if (room == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Room not found"));
         }
@@ -112,15 +150,15 @@ public class RoomController {
         
         // 创建一个新的Room对象，如果不是房主，则隐藏密码
         Map<String, Object> roomData = new HashMap<>();
-        roomData.put("roomId", room.getRoomId());
-        roomData.put("creationTime", room.getCreationTime());
-        roomData.put("creatorEmail", room.getCreatorEmail());
-        roomData.put("playerEmails", room.getPlayerEmails());
-        roomData.put("status", room.getStatus());
+        roomData.put("roomId", room.roomId());
+        roomData.put("creationTime", room.creationTime());
+        roomData.put("creatorEmail", room.creatorEmail());
+        roomData.put("playerEmails", room.playerEmails());
+        roomData.put("status", room.status());
         
         // 只有房主可以看到密码
-        if (user.getEmail().equals(room.getCreatorEmail())) {
-            roomData.put("password", room.getPassword());
+        if (user.getEmail().equals(room.creatorEmail())) {
+            roomData.put("password", room.password());
         }
         
         Map<String, Object> response = new HashMap<>();
@@ -134,14 +172,13 @@ public class RoomController {
      * Join a room
      * @param roomId Room ID
      * @param request Join request containing password
-     * @param token JWT token
+     * @param user Authenticated user
      * @return Room details
      */
     @PostMapping("/{roomId}/join")
     public ResponseEntity<Map<String, Object>> joinRoom(@PathVariable String roomId, 
                                                        @RequestBody JoinRoomRequest request,
-                                                       @RequestHeader("Authorization") String token) {
-        User user = validateToken(token);
+                                                       @AuthenticationPrincipal User user) {
         if (user == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
         }
@@ -150,7 +187,10 @@ public class RoomController {
             return ResponseEntity.badRequest().body(Map.of("error", "Password is required"));
         }
         
-        Room room = roomService.joinRoom(roomId, request.getPassword(), user.getEmail());
+        // The view is taken on the room's executor, right after the join
+        RoomView room = roomCommandExecutor.call(roomId,
+                () -> roomService.joinRoom(roomId, request.getPassword(), user.getEmail()) != null
+                        ? roomService.getRoomView(roomId) : null);
         if (room == null) {
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to join room. Check room ID, password, and room capacity."));
         }
@@ -163,15 +203,15 @@ public class RoomController {
         
         // 创建一个新的Room对象，如果不是房主，则隐藏密码
         Map<String, Object> roomData = new HashMap<>();
-        roomData.put("roomId", room.getRoomId());
-        roomData.put("creationTime", room.getCreationTime());
-        roomData.put("creatorEmail", room.getCreatorEmail());
-        roomData.put("playerEmails", room.getPlayerEmails());
-        roomData.put("status", room.getStatus());
+        roomData.put("roomId", room.roomId());
+        roomData.put("creationTime", room.creationTime());
+        roomData.put("creatorEmail", room.creatorEmail());
+        roomData.put("playerEmails", room.playerEmails());
+        roomData.put("status", room.status());
         
         // 只有房主可以看到密码
-        if (user.getEmail().equals(room.getCreatorEmail())) {
-            roomData.put("password", room.getPassword());
+        if (user.getEmail().equals(room.creatorEmail())) {
+            roomData.put("password", room.password());
         }
         
         Map<String, Object> response = new HashMap<>();
@@ -184,19 +224,18 @@ public class RoomController {
     /**
      * Start a game in a room
      * @param roomId Room ID
-     * @param token JWT token
+     * @param user Authenticated user
      * @return Success status
      */
     @PostMapping("/{roomId}/start")
     public ResponseEntity<Map<String, Object>> startGame(@PathVariable String roomId, 
-                                                        @RequestHeader("Authorization") String token) {
-        User user = validateToken(token);
+                                                        @AuthenticationPrincipal User user) {
         if (user == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid token"));
         }
         
-        boolean started = roomService.startGame(roomId, user.getEmail());
-        if (!started) {
+        Boolean started = roomCommandExecutor.call(roomId, () -> roomService.startGame(roomId, user.getEmail()));
+        if (!Boolean.TRUE.equals(started)) {
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to start game. Check if you are the room creator and there are enough players."));
         }
         
@@ -207,24 +246,6 @@ public class RoomController {
         return ResponseEntity.ok(Map.of("success", true));
     }
 
-    /**
-     * Helper method to validate JWT token
-     * @param token JWT token
-     * @return User if token is valid, null otherwise
-     */
-    private User validateToken(String token) {
-        if (token == null || !token.startsWith("Bearer ")) {
-            return null;
-        }
-        
-        String jwtToken = token.substring(7);
-        if (!authService.validateToken(jwtToken)) {
-            return null;
-        }
-        
-        return authService.getUserFromToken(jwtToken);
-    }
-
     // Request classes
     @Data
     public static class JoinRoomRequest {
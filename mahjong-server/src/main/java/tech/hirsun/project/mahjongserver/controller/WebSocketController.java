@@ -1,36 +1,65 @@
 package tech.hirsun.project.mahjongserver.controller;
 
-import java.util.ArrayList;
+import static tech.hirsun.project.mahjongserver.logging.SamplingTurboFilter.SAMPLED;
+
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Logger;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 
+import tech.hirsun.project.mahjongserver.command.CommandDecodeException;
+import tech.hirsun.project.mahjongserver.command.CommandRegistry;
+import tech.hirsun.project.mahjongserver.command.CommandRegistry.DecodedCommand;
+import tech.hirsun.project.mahjongserver.command.ConfirmWinCommand;
+import tech.hirsun.project.mahjongserver.command.DiscardTileCommand;
+import tech.hirsun.project.mahjongserver.command.GetGameStateCommand;
+import tech.hirsun.project.mahjongserver.command.LeaveRoomCommand;
+import tech.hirsun.project.mahjongserver.command.ReplaySpeedCommand;
+import tech.hirsun.project.mahjongserver.command.ReplayStartCommand;
+import tech.hirsun.project.mahjongserver.command.ReplayStopCommand;
+import tech.hirsun.project.mahjongserver.command.RoomCommand;
+import tech.hirsun.project.mahjongserver.command.SetHintsCommand;
+import tech.hirsun.project.mahjongserver.command.SyncCommand;
+import tech.hirsun.project.mahjongserver.command.TakeTileCommand;
+import tech.hirsun.project.mahjongserver.command.TileIdsCommand;
 import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.GameRecord;
 import tech.hirsun.project.mahjongserver.model.Room;
 import tech.hirsun.project.mahjongserver.model.Tile;
+import tech.hirsun.project.mahjongserver.persistence.GameEventLog;
 import tech.hirsun.project.mahjongserver.repository.RoomRepository;
 import tech.hirsun.project.mahjongserver.repository.SessionRepository;
 import tech.hirsun.project.mahjongserver.service.GameService;
+import tech.hirsun.project.mahjongserver.service.GameSyncService;
+import tech.hirsun.project.mahjongserver.service.OutboundMessageSender;
+import tech.hirsun.project.mahjongserver.service.ReplayService;
+import tech.hirsun.project.mahjongserver.service.RoomCommandExecutor;
 import tech.hirsun.project.mahjongserver.service.RoomService;
+import tech.hirsun.project.mahjongserver.service.ShantenService;
 import tech.hirsun.project.mahjongserver.service.WebSocketService;
+import tech.hirsun.project.mahjongserver.util.BinaryProtocolUtil;
+import tech.hirsun.project.mahjongserver.util.DeflateUtil;
 
 @Component
-public class WebSocketController extends TextWebSocketHandler {
+public class WebSocketController extends AbstractWebSocketHandler {
 
-    private static final Logger LOGGER = Logger.getLogger(WebSocketController.class.getName());
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketController.class);
 
     @Autowired
     private SessionRepository sessionRepository;
@@ -47,8 +76,29 @@ public class WebSocketController extends TextWebSocketHandler {
     @Autowired
     private WebSocketService webSocketService;
 
-    private final ObjectMapper objectMapper = new ObjectMapper()
-        .registerModule(new JavaTimeModule());
+    @Autowired
+    private RoomCommandExecutor roomCommandExecutor;
+
+    @Autowired
+    private ShantenService shantenService;
+
+    @Autowired
+    private GameSyncService gameSyncService;
+
+    @Autowired
+    private OutboundMessageSender outboundMessageSender;
+
+    @Autowired
+    private ReplayService replayService;
+
+    @Autowired
+    private CommandRegistry commandRegistry;
+
+    @Autowired
+    private GameEventLog gameEventLog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     // 存储正在处理GET_GAME_STATE请求的用户
     private final Set<String> processingGameStateRequests = ConcurrentHashMap.newKeySet();
@@ -57,90 +107,162 @@ public class WebSocketController extends TextWebSocketHandler {
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String userEmail = (String) session.getAttributes().get("userEmail");
         if (userEmail != null) {
-            LOGGER.info("WebSocket connection established for user: " + userEmail);
+            LOGGER.info("WebSocket connection established for user: {}", userEmail);
             sessionRepository.registerSession(session, userEmail);
             
-            // Send welcome message
-            webSocketService.sendMessage(userEmail, "CONNECTED", Map.of("message", "Connected to game server"));
+            // Send welcome message; binary clients get the epoch their timestamps are relative to,
+            // compressing clients the preset dictionary their frames are deflated with
+            boolean binary = "binary".equals(session.getAttributes().get("protocol"));
+            Map<String, Object> connected = new HashMap<>();
+            connected.put("message", "Connected to game server");
+            connected.put("protocol", binary ? "binary" : "json");
+            connected.put("epoch", BinaryProtocolUtil.EPOCH);
+            if ("deflate".equals(session.getAttributes().get("compress"))) {
+                connected.put("compression", "deflate");
+                connected.put("dictionary", DeflateUtil.DICTIONARY_TEXT);
+            }
+            webSocketService.sendMessage(userEmail, "CONNECTED", connected);
         } else {
-            LOGGER.warning("WebSocket connection attempt without valid user email");
+            LOGGER.warn("WebSocket connection attempt without valid user email");
             session.close(CloseStatus.POLICY_VIOLATION);
         }
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        String userEmail = getRegisteredUser(session);
+        if (userEmail == null) {
+            return;
+        }
+        
+        DecodedCommand<?> command;
+        try {
+            command = commandRegistry.decode(message.getPayload());
+        } catch (CommandDecodeException e) {
+            rejectMessage(userEmail, e);
+            return;
+        }
+        handleCommand(userEmail, command);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        String userEmail = getRegisteredUser(session);
+        if (userEmail == null) {
+            return;
+        }
+        
+        DecodedCommand<?> command;
+        try {
+            BinaryProtocolUtil.Frame frame = BinaryProtocolUtil.decode(message.getPayload());
+            command = commandRegistry.decode(frame.getType(), frame.getData());
+        } catch (CommandDecodeException e) {
+            rejectMessage(userEmail, e);
+            return;
+        } catch (RuntimeException e) {
+            rejectMessage(userEmail, new CommandDecodeException(CommandDecodeException.MALFORMED_MESSAGE,
+                    "Malformed binary frame: " + e.getMessage()));
+            return;
+        }
+        handleCommand(userEmail, command);
+    }
+
+    // Get the user of a session, closing sessions that never registered
+    private String getRegisteredUser(WebSocketSession session) throws Exception {
         String userEmail = sessionRepository.getUserBySessionId(session.getId());
         if (userEmail == null) {
-            LOGGER.warning("Message received from unregistered session");
+            LOGGER.warn("Message received from unregistered session");
             session.close(CloseStatus.POLICY_VIOLATION);
+        }
+        return userEmail;
+    }
+
+    // Tell the sender why a message could not be decoded
+    private void rejectMessage(String userEmail, CommandDecodeException e) {
+        LOGGER.warn("Rejected message from user: {}, {}: {}", userEmail, e.getCode(), e.getMessage());
+        webSocketService.sendErrorMessage(userEmail, e.getCode(), e.getMessage());
+    }
+
+    /**
+     * Run a decoded command; commands for a room run one at a time on that room's executor
+     */
+    private void handleCommand(String userEmail, DecodedCommand<?> command) {
+        LOGGER.debug(SAMPLED, "Received message of type: {} from user: {}", command.getType(), userEmail);
+        
+        String roomId = command.getCommand().roomId();
+        if (roomId == null) {
+            runCommand(userEmail, command);
             return;
         }
         
+        if (!roomRepository.existsById(roomId)) {
+            webSocketService.sendErrorMessage(userEmail, "ROOM_NOT_FOUND", "Room not found");
+            return;
+        }
+        boolean queued = roomCommandExecutor.execute(roomId, () -> runCommand(userEmail, command));
+        if (!queued) {
+            webSocketService.sendErrorMessage(userEmail, "ROOM_BUSY", "Room is busy, please retry");
+        }
+    }
+
+    private void runCommand(String userEmail, DecodedCommand<?> command) {
+        // Every line logged while handling the command carries its room and user
+        MDC.put("roomId", command.getCommand().roomId());
+        MDC.put("user", userEmail);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
         try {
-            JsonNode jsonNode = objectMapper.readTree(message.getPayload());
-            String type = jsonNode.get("type").asText();
-            JsonNode data = jsonNode.get("data");
-            
-            LOGGER.info("Received message of type: " + type + " from user: " + userEmail);
-            
-            switch (type) {
-                case "JOIN_ROOM":
-                    handleJoinRoom(userEmail, data);
-                    break;
-                case "LEAVE_ROOM":
-                    handleLeaveRoom(userEmail, data);
-                    break;
-                case "START_GAME":
-                    handleStartGame(userEmail, data);
-                    break;
-                case "DRAW_TILE":
-                    handleDrawTile(userEmail, data);
-                    break;
-                case "DISCARD_TILE":
-                    handleDiscardTile(userEmail, data);
-                    break;
-                case "TAKE_TILE":
-                    handleTakeTile(userEmail, data);
-                    break;
-                case "REVEAL_TILES":
-                    handleRevealTiles(userEmail, data);
-                    break;
-                case "HIDE_TILES":
-                    handleHideTiles(userEmail, data);
-                    break;
-                case "CLAIM_WIN":
-                    handleClaimWin(userEmail, data);
-                    break;
-                case "CONFIRM_WIN":
-                    handleConfirmWin(userEmail, data);
-                    break;
-                case "GET_GAME_STATE":
-                    handleGetGameState(userEmail, data);
-                    break;
-                default:
-                    LOGGER.warning("Unknown message type: " + type);
-                    webSocketService.sendErrorMessage(userEmail, "UNKNOWN_TYPE", "Unknown message type: " + type);
-            }
+            command.handle(userEmail);
         } catch (Exception e) {
-            LOGGER.severe("Error handling message: " + e.getMessage());
+            outcome = "error";
+            LOGGER.error("Error handling {} from user: {}", command.getType(), userEmail, e);
             webSocketService.sendErrorMessage(userEmail, "ERROR", "Error processing message: " + e.getMessage());
+        } finally {
+            sample.stop(meterRegistry.timer("mahjong.command", "type", command.getType(), "outcome", outcome));
+            MDC.remove("roomId");
+            MDC.remove("user");
         }
     }
 
+    /**
+     * Register the handler of each message type
+     */
+    @PostConstruct
+    public void registerCommands() {
+        commandRegistry.register("JOIN_ROOM", RoomCommand.class, this::handleJoinRoom);
+        commandRegistry.register("LEAVE_ROOM", LeaveRoomCommand.class, this::handleLeaveRoom);
+        commandRegistry.register("START_GAME", RoomCommand.class, this::handleStartGame);
+        commandRegistry.register("DRAW_TILE", RoomCommand.class, this::handleDrawTile);
+        commandRegistry.register("DISCARD_TILE", DiscardTileCommand.class, this::handleDiscardTile);
+        commandRegistry.register("TAKE_TILE", TakeTileCommand.class, this::handleTakeTile);
+        commandRegistry.register("REVEAL_TILES", TileIdsCommand.class, this::handleRevealTiles);
+        commandRegistry.register("HIDE_TILES", TileIdsCommand.class, this::handleHideTiles);
+        commandRegistry.register("CLAIM_WIN", RoomCommand.class, this::handleClaimWin);
+        commandRegistry.register("CONFIRM_WIN", ConfirmWinCommand.class, this::handleConfirmWin);
+        commandRegistry.register("GET_GAME_STATE", GetGameStateCommand.class, this::handleGetGameState);
+        commandRegistry.register("SYNC", SyncCommand.class, this::handleSync);
+        commandRegistry.register("SET_HINTS", SetHintsCommand.class, this::handleSetHints);
+        commandRegistry.register("GET_HINT", RoomCommand.class, this::handleGetHint);
+        commandRegistry.register("REPLAY_START", ReplayStartCommand.class, this::handleReplayStart);
+        commandRegistry.register("REPLAY_SPEED", ReplaySpeedCommand.class, this::handleReplaySpeed);
+        commandRegistry.register("REPLAY_STOP", ReplayStopCommand.class, this::handleReplayStop);
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String userEmail = sessionRepository.getUserBySessionId(session.getId());
         if (userEmail != null) {
-            LOGGER.info("WebSocket connection closed for user: " + userEmail);
+            LOGGER.info("WebSocket connection closed for user: {}", userEmail);
             sessionRepository.removeSession(session.getId());
+            replayService.stopStream(userEmail);
         }
+        outboundMessageSender.remove(session.getId());
     }
 
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         String userEmail = sessionRepository.getUserBySessionId(session.getId());
-        LOGGER.severe("Transport error for user: " + userEmail + ", error: " + exception.getMessage());
+        LOGGER.error("Transport error for user: {}, error: {}", userEmail, exception.getMessage());
         
         if (session.isOpen()) {
             session.close(CloseStatus.SERVER_ERROR);
@@ -150,8 +272,8 @@ public class WebSocketController extends TextWebSocketHandler {
     /**
      * Handle join room message
      */
-    private void handleJoinRoom(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
+    private void handleJoinRoom(String userEmail, RoomCommand command) {
+        String roomId = command.roomId();
         
         // Check if user is in the room
         if (!roomService.isUserInRoom(roomId, userEmail)) {
@@ -176,7 +298,7 @@ public class WebSocketController extends TextWebSocketHandler {
     /**
      * Handle leave room message
      */
-    private void handleLeaveRoom(String userEmail, JsonNode data) {
+    private void handleLeaveRoom(String userEmail, LeaveRoomCommand command) {
         // Currently, users cannot leave a room once they've joined
         webSocketService.sendErrorMessage(userEmail, "CANNOT_LEAVE", "You cannot leave a room once you've joined");
     }
@@ -184,30 +306,30 @@ public class WebSocketController extends TextWebSocketHandler {
     /**
      * Handle start game message
      */
-    private void handleStartGame(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
+    private void handleStartGame(String userEmail, RoomCommand command) {
+        String roomId = command.roomId();
         
-        LOGGER.info("Handling START_GAME request for room: " + roomId + " from user: " + userEmail);
+        LOGGER.debug("Handling START_GAME request for room: {} from user: {}", roomId, userEmail);
         
         // Check if user is the room creator
         Room room = roomRepository.findById(roomId);
         if (room == null) {
-            LOGGER.warning("Room not found: " + roomId);
+            LOGGER.warn("Room not found: {}", roomId);
             webSocketService.sendErrorMessage(userEmail, "ROOM_NOT_FOUND", "Room not found");
             return;
         }
         
         // 增加详细日志
-        LOGGER.info("Room status: " + room.getStatus());
-        LOGGER.info("Room creator: " + room.getCreatorEmail());
-        LOGGER.info("Player count: " + room.getPlayerEmails().size());
-        LOGGER.info("Current game: " + (room.getCurrentGame() != null ? "present" : "null"));
+        LOGGER.debug("Room status: {}", room.getStatus());
+        LOGGER.debug("Room creator: {}", room.getCreatorEmail());
+        LOGGER.debug("Player count: {}", room.getPlayerEmails().size());
+        LOGGER.debug("Current game: {}", room.getCurrentGame() != null ? "present" : "null");
         if (room.getCurrentGame() != null) {
-            LOGGER.info("Game status: " + room.getCurrentGame().getStatus());
+            LOGGER.debug("Game status: {}", room.getCurrentGame().getStatus());
         }
         
         if (!room.getCreatorEmail().equals(userEmail)) {
-            LOGGER.warning("User " + userEmail + " is not the creator of room " + roomId);
+            LOGGER.warn("User {} is not the creator of room {}", userEmail, roomId);
             webSocketService.sendErrorMessage(userEmail, "NOT_CREATOR", "Only the room creator can start the game");
             return;
         }
@@ -220,6 +342,7 @@ public class WebSocketController extends TextWebSocketHandler {
             LOGGER.info("Room has finished game but status is not WAITING. Fixing status...");
             room.setStatus(Room.RoomStatus.WAITING);
             roomRepository.save(room);
+            gameEventLog.roomSaved(room);
             
             // 重新获取房间，以确保状态已更新
             room = roomRepository.findById(roomId);
@@ -227,15 +350,14 @@ public class WebSocketController extends TextWebSocketHandler {
         
         // Check if game can be started
         if (room.getStatus() == Room.RoomStatus.PLAYING) {
-            LOGGER.warning("Game is already in progress in room " + roomId);
+            LOGGER.warn("Game is already in progress in room {}", roomId);
             
             // 如果游戏已经在进行中，直接发送当前游戏状态
             if (room.getCurrentGame() != null) {
                 LOGGER.info("Game already in progress, sending game state");
                 // 向所有玩家发送游戏状态
                 for (String playerEmail : room.getPlayerEmails()) {
-                    Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-                    webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+                    gameSyncService.sendGameState(roomId, playerEmail);
                 }
                 return;
             } else {
@@ -243,26 +365,27 @@ public class WebSocketController extends TextWebSocketHandler {
                 LOGGER.info("Room status is PLAYING but game is null, resetting room status");
                 room.setStatus(Room.RoomStatus.WAITING);
                 roomRepository.save(room);
+                gameEventLog.roomSaved(room);
             }
         }
         
         if (!room.canStartGame()) {
-            LOGGER.warning("Cannot start game in room " + roomId + ". Need at least 2 players and room must be in waiting state");
+            LOGGER.warn("Cannot start game in room {}. Need at least 2 players and room must be in waiting state", roomId);
             webSocketService.sendErrorMessage(userEmail, "CANNOT_START", "Cannot start game. Need at least 2 players and room must be in waiting state");
             return;
         }
         
         // Initialize game
-        LOGGER.info("Initializing game in room " + roomId);
+        LOGGER.debug("Initializing game in room {}", roomId);
         Game game = gameService.initializeGame(roomId);
         if (game == null) {
-            LOGGER.severe("Failed to initialize game in room " + roomId);
+            LOGGER.error("Failed to initialize game in room {}", roomId);
             webSocketService.sendErrorMessage(userEmail, "GAME_INIT_FAILED", "Failed to initialize game");
             return;
         }
         
         // Notify all players
-        LOGGER.info("Game started in room " + roomId + " with dealer: " + game.getDealerEmail());
+        LOGGER.info("Game started in room {} with dealer: {}", roomId, game.getDealerEmail());
         webSocketService.sendGameMessage(roomId, "GAME_STARTED", Map.of(
             "dealerEmail", game.getDealerEmail(),
             "playerCount", room.getPlayerEmails().size()
@@ -270,19 +393,18 @@ public class WebSocketController extends TextWebSocketHandler {
         
         // Send game state to each player
         for (String playerEmail : room.getPlayerEmails()) {
-            Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-            if (gameState.isEmpty()) {
-                LOGGER.warning("Empty game state for user " + playerEmail + " in room " + roomId);
+            if (!gameSyncService.sendGameState(roomId, playerEmail)) {
+                LOGGER.warn("Failed to send game state to user {} in room {}", playerEmail, roomId);
             }
-            webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+            sendHint(room, playerEmail);
         }
     }
 
     /**
      * Handle draw tile message
      */
-    private void handleDrawTile(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
+    private void handleDrawTile(String userEmail, RoomCommand command) {
+        String roomId = command.roomId();
         
         // Draw tile
         Tile tile = gameService.drawTile(roomId, userEmail);
@@ -305,24 +427,18 @@ public class WebSocketController extends TextWebSocketHandler {
             
             // Send updated game state to each player
             for (String playerEmail : room.getPlayerEmails()) {
-                Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-                webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+                gameSyncService.sendGameUpdate(roomId, playerEmail);
             }
+            sendHint(room, userEmail);
         }
     }
 
     /**
      * Handle discard tile message
      */
-    private void handleDiscardTile(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
-        JsonNode tileNode = data.get("tile");
-        
-        // Create tile object from JSON
-        Tile tile = new Tile();
-        tile.setType(Tile.TileType.valueOf(tileNode.get("type").asText()));
-        tile.setValue(tileNode.get("value").asInt());
-        tile.setId(tileNode.get("id").asInt());
+    private void handleDiscardTile(String userEmail, DiscardTileCommand command) {
+        String roomId = command.roomId();
+        Tile tile = command.tile();
         
         // Discard tile
         boolean discarded = gameService.discardTile(roomId, userEmail, tile);
@@ -342,18 +458,18 @@ public class WebSocketController extends TextWebSocketHandler {
             
             // Send updated game state to each player
             for (String playerEmail : room.getPlayerEmails()) {
-                Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-                webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+                gameSyncService.sendGameUpdate(roomId, playerEmail);
             }
+            sendHint(room, userEmail);
         }
     }
 
     /**
      * Handle take tile message
      */
-    private void handleTakeTile(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
-        int tileId = data.get("tileId").asInt();
+    private void handleTakeTile(String userEmail, TakeTileCommand command) {
+        String roomId = command.roomId();
+        int tileId = command.tileId();
         
         // Take tile
         Tile takenTile = gameService.takeTile(roomId, userEmail, tileId);
@@ -374,24 +490,18 @@ public class WebSocketController extends TextWebSocketHandler {
             
             // Send updated game state to each player
             for (String playerEmail : room.getPlayerEmails()) {
-                Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-                webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+                gameSyncService.sendGameUpdate(roomId, playerEmail);
             }
+            sendHint(room, userEmail);
         }
     }
 
     /**
      * Handle reveal tiles message
      */
-    private void handleRevealTiles(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
-        JsonNode tileIdsNode = data.get("tileIds");
-        
-        // Convert JSON array to List
-        List<Integer> tileIds = new ArrayList<>();
-        for (JsonNode idNode : tileIdsNode) {
-            tileIds.add(idNode.asInt());
-        }
+    private void handleRevealTiles(String userEmail, TileIdsCommand command) {
+        String roomId = command.roomId();
+        List<Integer> tileIds = command.tileIds();
         
         // Reveal tiles
         boolean revealed = gameService.revealTiles(roomId, userEmail, tileIds);
@@ -411,24 +521,18 @@ public class WebSocketController extends TextWebSocketHandler {
             
             // Send updated game state to each player
             for (String playerEmail : room.getPlayerEmails()) {
-                Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-                webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+                gameSyncService.sendGameUpdate(roomId, playerEmail);
             }
+            sendHint(room, userEmail);
         }
     }
 
     /**
      * Handle hide tiles message
      */
-    private void handleHideTiles(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
-        JsonNode tileIdsNode = data.get("tileIds");
-        
-        // Convert JSON array to List
-        List<Integer> tileIds = new ArrayList<>();
-        for (JsonNode idNode : tileIdsNode) {
-            tileIds.add(idNode.asInt());
-        }
+    private void handleHideTiles(String userEmail, TileIdsCommand command) {
+        String roomId = command.roomId();
+        List<Integer> tileIds = command.tileIds();
         
         // Hide tiles
         boolean hidden = gameService.hideTiles(roomId, userEmail, tileIds);
@@ -448,50 +552,57 @@ public class WebSocketController extends TextWebSocketHandler {
             
             // Send updated game state to each player
             for (String playerEmail : room.getPlayerEmails()) {
-                Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-                webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+                gameSyncService.sendGameUpdate(roomId, playerEmail);
             }
+            sendHint(room, userEmail);
         }
     }
 
     /**
      * Handle claim win message
      */
-    private void handleClaimWin(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
-        LOGGER.info("Handling CLAIM_WIN message from user: " + userEmail + " for room: " + roomId);
+    private void handleClaimWin(String userEmail, RoomCommand command) {
+        String roomId = command.roomId();
+        LOGGER.debug("Handling CLAIM_WIN message from user: {} for room: {}", userEmail, roomId);
         
         // 检查房间是否存在
         Room room = roomService.getRoomById(roomId);
         if (room == null) {
-            LOGGER.warning("Room not found: " + roomId);
+            LOGGER.warn("Room not found: {}", roomId);
             webSocketService.sendErrorMessage(userEmail, "CLAIM_FAILED", "房间不存在");
             return;
         }
         
         // 验证用户是否在房间中
         if (!room.getPlayerEmails().contains(userEmail)) {
-            LOGGER.warning("User " + userEmail + " is not in room " + roomId);
+            LOGGER.warn("User {} is not in room {}", userEmail, roomId);
             webSocketService.sendErrorMessage(userEmail, "CLAIM_FAILED", "您不在此房间中");
             return;
         }
         
         // 验证房间是否在游戏中
         if (room.getStatus() != Room.RoomStatus.PLAYING) {
-            LOGGER.warning("Room " + roomId + " is not in playing state: " + room.getStatus());
+            LOGGER.warn("Room {} is not in playing state: {}", roomId, room.getStatus());
             webSocketService.sendErrorMessage(userEmail, "CLAIM_FAILED", "房间不在游戏中");
             return;
         }
         
+        // 服务器校验牌型时，不合法的声明直接拒绝
+        if (gameService.isWinValidationEnabled() && !gameService.isWinningHand(roomId, userEmail)) {
+            LOGGER.info("Victory claim rejected for user: {} in room: {}, not a winning hand", userEmail, roomId);
+            webSocketService.sendErrorMessage(userEmail, "CLAIM_FAILED", "牌型不满足和牌条件");
+            return;
+        }
+        
         // 声明胜利
         boolean claimed = gameService.claimVictory(roomId, userEmail);
         if (!claimed) {
-            LOGGER.warning("Failed to claim victory for user: " + userEmail + " in room: " + roomId);
+            LOGGER.warn("Failed to claim victory for user: {} in room: {}", userEmail, roomId);
             webSocketService.sendErrorMessage(userEmail, "CLAIM_FAILED", "胜利声明失败");
             return;
         }
         
-        LOGGER.info("Victory claim successful for user: " + userEmail + " in room: " + roomId);
+        LOGGER.info("Victory claim successful for user: {} in room: {}", userEmail, roomId);
         
         // 通知所有玩家有关操作
         webSocketService.sendGameMessage(roomId, "ACTION", Map.of(
@@ -499,46 +610,43 @@ public class WebSocketController extends TextWebSocketHandler {
             "playerEmail", userEmail
         ));
         
-        // 向每个玩家发送更新的游戏状态
+        // 向每个玩家发送完整的游戏状态（包含胜利确认信息）
         for (String playerEmail : room.getPlayerEmails()) {
-            Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-            webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+            gameSyncService.sendGameState(roomId, playerEmail);
         }
     }
 
     /**
      * Handle confirm win message
      */
-    private void handleConfirmWin(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
-        boolean confirm = data.get("confirm").asBoolean();
+    private void handleConfirmWin(String userEmail, ConfirmWinCommand command) {
+        String roomId = command.roomId();
+        boolean confirm = command.confirm();
         
         // winnerEmail参数是可选的，前端可能不提供
         // 在这种情况下，我们依赖后端的winConfirmations映射来确定谁是声明胜利的玩家
-        String winnerEmail = data.has("winnerEmail") ? data.get("winnerEmail").asText() : null;
+        String winnerEmail = command.winnerEmail();
         
-        LOGGER.info("Handling CONFIRM_WIN message from user: " + userEmail + 
-                   " for room: " + roomId + ", confirm: " + confirm + 
-                   (winnerEmail != null ? ", winner: " + winnerEmail : ""));
+        LOGGER.debug("Handling CONFIRM_WIN message from user: {} for room: {}, confirm: {}{}", userEmail, roomId, confirm, winnerEmail != null ? ", winner: " + winnerEmail : "");
         
         // 检查房间是否存在
         Room room = roomService.getRoomById(roomId);
         if (room == null) {
-            LOGGER.warning("Room not found: " + roomId);
+            LOGGER.warn("Room not found: {}", roomId);
             webSocketService.sendErrorMessage(userEmail, "CONFIRM_FAILED", "房间不存在");
             return;
         }
         
         // 验证用户是否在房间中
         if (!room.getPlayerEmails().contains(userEmail)) {
-            LOGGER.warning("User " + userEmail + " is not in room " + roomId);
+            LOGGER.warn("User {} is not in room {}", userEmail, roomId);
             webSocketService.sendErrorMessage(userEmail, "CONFIRM_FAILED", "您不在此房间中");
             return;
         }
         
         // 验证房间是否在游戏中
         if (room.getStatus() != Room.RoomStatus.PLAYING) {
-            LOGGER.warning("Room " + roomId + " is not in playing state: " + room.getStatus());
+            LOGGER.warn("Room {} is not in playing state: {}", roomId, room.getStatus());
             webSocketService.sendErrorMessage(userEmail, "CONFIRM_FAILED", "房间不在游戏中");
             return;
         }
@@ -546,15 +654,13 @@ public class WebSocketController extends TextWebSocketHandler {
         // 确认或拒绝胜利
         boolean processed = gameService.confirmVictory(roomId, userEmail, confirm);
         if (!processed) {
-            LOGGER.warning("Failed to process victory confirmation for user: " + userEmail + 
-                          " in room: " + roomId + ", confirm: " + confirm);
+            LOGGER.warn("Failed to process victory confirmation for user: {} in room: {}, confirm: {}", userEmail, roomId, confirm);
             webSocketService.sendErrorMessage(userEmail, "CONFIRM_FAILED", 
                                              confirm ? "确认胜利失败" : "拒绝胜利失败");
             return;
         }
         
-        LOGGER.info("Victory " + (confirm ? "confirmation" : "denial") + 
-                   " successful for user: " + userEmail + " in room: " + roomId);
+        LOGGER.info("Victory {} successful for user: {} in room: {}", confirm ? "confirmation" : "denial", userEmail, roomId);
         
         // 通知所有玩家有关操作
         webSocketService.sendGameMessage(roomId, "ACTION", Map.of(
@@ -562,26 +668,25 @@ public class WebSocketController extends TextWebSocketHandler {
             "playerEmail", userEmail
         ));
         
-        // 向每个玩家发送更新的游戏状态
+        // 向每个玩家发送完整的游戏状态（包含胜利确认信息）
         for (String playerEmail : room.getPlayerEmails()) {
-            Map<String, Object> gameState = gameService.getGameState(roomId, playerEmail);
-            webSocketService.sendMessage(playerEmail, "GAME_STATE", gameState);
+            gameSyncService.sendGameState(roomId, playerEmail);
         }
     }
 
     /**
      * Handle get game state message
      */
-    private void handleGetGameState(String userEmail, JsonNode data) {
-        String roomId = data.get("roomId").asText();
-        String requestId = data.has("requestId") ? data.get("requestId").asText() : "unknown";
+    private void handleGetGameState(String userEmail, GetGameStateCommand command) {
+        String roomId = command.roomId();
+        String requestId = command.requestId() != null ? command.requestId() : "unknown";
         
-        LOGGER.info("Handling GET_GAME_STATE request for room: " + roomId + " from user: " + userEmail + ", requestId: " + requestId);
+        LOGGER.debug(SAMPLED, "Handling GET_GAME_STATE request for room: {} from user: {}, requestId: {}", roomId, userEmail, requestId);
         
         // 检查这个用户是否已经在处理游戏状态请求
         String requestKey = userEmail + ":" + roomId;
         if (processingGameStateRequests.contains(requestKey)) {
-            LOGGER.info("Already processing GET_GAME_STATE for user: " + userEmail + " in room: " + roomId + ", skipping");
+            LOGGER.debug("Already processing GET_GAME_STATE for user: {} in room: {}, skipping", userEmail, roomId);
             return;
         }
         
@@ -592,17 +697,18 @@ public class WebSocketController extends TextWebSocketHandler {
             // 重新检查用户会话是否仍然有效
             WebSocketSession session = sessionRepository.getSessionByUser(userEmail);
             if (session == null || !session.isOpen()) {
-                LOGGER.warning("User session invalid or closed for: " + userEmail);
+                LOGGER.warn("User session invalid or closed for: {}", userEmail);
                 return;
             }
             
-            // Get game state
-            Map<String, Object> gameState = gameService.getGameState(roomId, userEmail);
-            if (gameState.isEmpty()) {
-                LOGGER.warning("Failed to get game state for user: " + userEmail);
+            // Get game state; the cached state is shared, so copy it before adding request fields
+            Map<String, Object> cachedState = gameService.getGameState(roomId, userEmail);
+            if (cachedState.isEmpty()) {
+                LOGGER.warn("Failed to get game state for user: {}", userEmail);
                 webSocketService.sendErrorMessage(userEmail, "STATE_FAILED", "Failed to get game state");
                 return;
             }
+            Map<String, Object> gameState = new HashMap<>(cachedState);
             
             // 确保包含房间ID
             if (!gameState.containsKey("roomId")) {
@@ -610,30 +716,152 @@ public class WebSocketController extends TextWebSocketHandler {
             }
             
             // 添加请求ID以便前端能够匹配请求和响应
-            if (data.has("requestId")) {
-                gameState.put("requestId", data.get("requestId").asText());
+            if (command.requestId() != null) {
+                gameState.put("requestId", command.requestId());
             }
             
             // Send game state to the player
-            LOGGER.info("Sending game state to user: " + userEmail + ", state size: " + gameState.size() + " entries, requestId: " + requestId);
+            LOGGER.debug(SAMPLED, "Sending game state to user: {}, state size: {} entries, requestId: {}", userEmail, gameState.size(), requestId);
             boolean sent = webSocketService.sendMessage(userEmail, "GAME_STATE", gameState);
+            if (sent) {
+                gameSyncService.recordSyncPoint(userEmail, gameState);
+            }
             
             if (!sent) {
-                LOGGER.warning("Failed to send game state to user: " + userEmail + ", session may be invalid");
+                LOGGER.warn("Failed to send game state to user: {}, session may be invalid", userEmail);
                 // 尝试重新发送一次
                 session = sessionRepository.getSessionByUser(userEmail);
                 if (session != null && session.isOpen()) {
                     LOGGER.info("Retrying to send game state...");
-                    webSocketService.sendMessage(userEmail, "GAME_STATE", gameState);
+                    if (webSocketService.sendMessage(userEmail, "GAME_STATE", gameState)) {
+                        gameSyncService.recordSyncPoint(userEmail, gameState);
+                    }
                 }
             }
         } catch (Exception e) {
-            LOGGER.severe("Error handling GET_GAME_STATE: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("Error handling GET_GAME_STATE for room {}", roomId, e);
             webSocketService.sendErrorMessage(userEmail, "STATE_ERROR", "Error processing game state: " + e.getMessage());
         } finally {
             // 移除处理标记
             processingGameStateRequests.remove(requestKey);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Handle sync message from a delta client that detected a version gap
+     */
+    private void handleSync(String userEmail, SyncCommand command) {
+        String roomId = command.roomId();
+        
+        if (!roomService.isUserInRoom(roomId, userEmail)) {
+            webSocketService.sendErrorMessage(userEmail, "NOT_IN_ROOM", "You are not a member of this room");
+            return;
+        }
+        
+        // Without a known version the client gets the full state
+        if (command.gameId() == null || command.version() == null) {
+            gameSyncService.sendGameState(roomId, userEmail);
+            return;
+        }
+        gameSyncService.resync(roomId, userEmail, command.gameId(), command.version(),
+                command.actionSeq() != null ? command.actionSeq() : 0);
+    }
+
+    /**
+     * Handle set hints message, only the room creator can toggle hints
+     */
+    private void handleSetHints(String userEmail, SetHintsCommand command) {
+        String roomId = command.roomId();
+        boolean enabled = command.enabled();
+        
+        Room room = roomRepository.findById(roomId);
+        if (room == null) {
+            webSocketService.sendErrorMessage(userEmail, "ROOM_NOT_FOUND", "Room not found");
+            return;
+        }
+        if (!room.getCreatorEmail().equals(userEmail)) {
+            webSocketService.sendErrorMessage(userEmail, "NOT_CREATOR", "Only the room creator can change hint settings");
+            return;
+        }
+        
+        room.setHintsEnabled(enabled);
+        roomRepository.save(room);
+        gameEventLog.roomSaved(room);
+        LOGGER.info("Hints {} in room {}", enabled ? "enabled" : "disabled", roomId);
+        
+        webSocketService.sendRoomStateUpdate(roomId);
+        if (enabled) {
+            for (String playerEmail : room.getPlayerEmails()) {
+                sendHint(room, playerEmail);
+            }
+        }
+    }
+
+    /**
+     * Handle get hint message
+     */
+    private void handleGetHint(String userEmail, RoomCommand command) {
+        String roomId = command.roomId();
+        
+        Room room = roomRepository.findById(roomId);
+        if (room == null || !room.isHintsEnabled()) {
+            webSocketService.sendErrorMessage(userEmail, "HINTS_DISABLED", "Hints are not enabled in this room");
+            return;
+        }
+        
+        Map<String, Object> hint = shantenService.getHint(roomId, userEmail);
+        if (hint == null) {
+            webSocketService.sendErrorMessage(userEmail, "HINT_FAILED", "No game in progress");
+            return;
+        }
+        webSocketService.sendMessage(userEmail, "HINT", hint);
+    }
+
+    /**
+     * Handle replay start message, only players of a finished game can replay it
+     */
+    private void handleReplayStart(String userEmail, ReplayStartCommand command) {
+        GameRecord record = replayService.getRecord(command.gameId());
+        if (record == null) {
+            webSocketService.sendErrorMessage(userEmail, "REPLAY_NOT_FOUND", "Replay not found");
+            return;
+        }
+        if (!record.hasPlayer(userEmail)) {
+            webSocketService.sendErrorMessage(userEmail, "NOT_IN_GAME", "Only players of the game can replay it");
+            return;
+        }
+        
+        replayService.startStream(userEmail, record.gameId(),
+                command.fromAction() != null ? command.fromAction() : 0,
+                command.speed() != null ? command.speed() : 1);
+    }
+
+    /**
+     * Handle replay speed message
+     */
+    private void handleReplaySpeed(String userEmail, ReplaySpeedCommand command) {
+        if (!replayService.setSpeed(userEmail, command.speed())) {
+            webSocketService.sendErrorMessage(userEmail, "NO_REPLAY", "No replay is running");
+        }
+    }
+
+    /**
+     * Handle replay stop message
+     */
+    private void handleReplayStop(String userEmail, ReplayStopCommand command) {
+        replayService.stopStream(userEmail);
+    }
+
+    /**
+     * Push a hint to a player if the room has hints enabled
+     */
+    private void sendHint(Room room, String playerEmail) {
+        if (room == null || !room.isHintsEnabled()) {
+            return;
+        }
+        Map<String, Object> hint = shantenService.getHint(room.getRoomId(), playerEmail);
+        if (hint != null) {
+            webSocketService.sendMessage(playerEmail, "HINT", hint);
+        }
+    }
+}
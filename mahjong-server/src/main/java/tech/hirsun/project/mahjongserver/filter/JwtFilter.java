@@ -17,14 +17,15 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import tech.hirsun.project.mahjongserver.model.User;
 import tech.hirsun.project.mahjongserver.service.AuthService;
-import tech.hirsun.project.mahjongserver.util.JwtUtil;
 
+/**
+ * Resolves the bearer token's user once per request and makes it the principal of the
+ * security context, controllers receive it with @AuthenticationPrincipal.
+ * Runs only in the security filter chain, see WebSecurityConfig.
+ */
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
     @Autowired
     private AuthService authService;
 
@@ -34,32 +35,20 @@ public class JwtFilter extends OncePerRequestFilter {
         
         final String authHeader = request.getHeader("Authorization");
         
-        String token = null;
-        String email = null;
-        
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            try {
-                email = jwtUtil.extractEmail(token);
-            } catch (Exception e) {
-                // Token is invalid
-            }
-        }
-        
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(token)) {
-                User user = authService.getUserFromToken(token);
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Null for invalid or expired tokens, the request then stays unauthenticated
+            User user = authService.getUserFromToken(authHeader.substring(7));
+            
+            if (user != null) {
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    user, null, Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
                 
-                if (user != null) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        user.getEmail(), null, Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
-                    
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         }
         
         filterChain.doFilter(request, response);
     }
-} 
\ No newline at end of file
+}
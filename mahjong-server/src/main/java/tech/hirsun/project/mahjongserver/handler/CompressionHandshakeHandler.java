@@ -0,0 +1,38 @@
+package tech.hirsun.project.mahjongserver.handler;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Decides whether a connection negotiates permessage-deflate.
+ * Tomcat accepts the extension whenever the browser offers it; it is dropped when disabled by
+ * configuration, and for clients using application-level compression ({@code ?compress=deflate})
+ * so their frames are not compressed twice.
+ */
+@Component
+public class CompressionHandshakeHandler extends DefaultHandshakeHandler {
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    @Value("${websocket.compression.permessage-deflate.enabled:true}")
+    private boolean permessageDeflateEnabled;
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+            List<WebSocketExtension> requestedExtensions, List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> extensions = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+        String compress = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("compress");
+        if (permessageDeflateEnabled && !"deflate".equals(compress)) {
+            return extensions;
+        }
+        return extensions.stream()
+                .filter(extension -> !PERMESSAGE_DEFLATE.equals(extension.getName()))
+                .toList();
+    }
+}
@@ -2,6 +2,8 @@ package tech.hirsun.project.mahjongserver.handler;
 
 import java.io.IOException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -20,6 +22,8 @@ import tech.hirsun.project.mahjongserver.util.JwtUtil;
 @Component
 public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(OAuth2AuthenticationSuccessHandler.class);
+
     @Value("${frontend.url:http://localhost:5173}")
     private String frontendUrl;
 
@@ -36,36 +40,36 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
         OAuth2User oAuth2User = (OAuth2User) authentication.getPrincipal();
         
         // 打印所有属性以便调试
-        System.out.println("=== GitHub OAuth2 响应属性 ===");
+        LOGGER.debug("=== GitHub OAuth2 响应属性 ===");
         oAuth2User.getAttributes().forEach((key, value) -> 
-            System.out.println(key + ": " + (value == null ? "null" : value.toString()))
+            LOGGER.debug("{}: {}", key, value == null ? "null" : value.toString())
         );
         
         String email = oAuth2User.getAttribute("email");
-        System.out.println("直接获取的email属性: " + email);
+        LOGGER.debug("直接获取的email属性: {}", email);
         
         // 尝试获取私有邮箱信息
         // 首先从不同可能的属性名称获取邮箱
         if (email == null) {
             email = oAuth2User.getAttribute("private_email");
-            System.out.println("尝试获取private_email: " + email);
+            LOGGER.debug("尝试获取private_email: {}", email);
         }
         
         // 如果GitHub没有返回email，尝试从其他属性获取
         if (email == null) {
             // 从GitHub返回的Map属性中获取邮箱列表
             Object emails = oAuth2User.getAttribute("emails");
-            System.out.println("emails属性: " + (emails == null ? "null" : emails.toString()));
+            LOGGER.debug("emails属性: {}", emails == null ? "null" : emails.toString());
             
             if (emails instanceof Iterable) {
                 for (Object emailObj : (Iterable<?>) emails) {
-                    System.out.println("邮箱对象: " + emailObj);
+                    LOGGER.debug("邮箱对象: {}", emailObj);
                     if (emailObj instanceof java.util.Map) {
                         java.util.Map<?, ?> emailMap = (java.util.Map<?, ?>) emailObj;
-                        System.out.println("邮箱Map: " + emailMap);
+                        LOGGER.debug("邮箱Map: {}", emailMap);
                         if (Boolean.TRUE.equals(emailMap.get("primary")) && emailMap.get("email") instanceof String) {
                             email = (String) emailMap.get("email");
-                            System.out.println("从emails列表找到主邮箱: " + email);
+                            LOGGER.debug("从emails列表找到主邮箱: {}", email);
                             break;
                         }
                     }
@@ -76,10 +80,10 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
         if (email == null) {
             // 如果仍然获取不到邮箱，使用login作为唯一标识
             String login = oAuth2User.getAttribute("login");
-            System.out.println("未能获取邮箱，使用登录名: " + login);
+            LOGGER.debug("未能获取邮箱，使用登录名: {}", login);
             if (login != null) {
                 email = login + "@github.com";
-                System.out.println("生成临时邮箱: " + email);
+                LOGGER.debug("生成临时邮箱: {}", email);
             }
         }
 
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -23,7 +24,8 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
                                   WebSocketHandler wsHandler, Map<String, Object> attributes) throws Exception {
         // Get JWT token from URL parameter
         String query = request.getURI().getQuery();
-        String token = UriComponentsBuilder.newInstance().query(query).build().getQueryParams().getFirst("token");
+        MultiValueMap<String, String> params = UriComponentsBuilder.newInstance().query(query).build().getQueryParams();
+        String token = params.getFirst("token");
 
         if (token == null || token.trim().isEmpty()) {
             return false;
@@ -35,6 +37,18 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
             if (email != null && jwtUtil.validateToken(token)) {
                 // Store user email in attributes
                 attributes.put("userEmail", email);
+                // Clients opt in to patch-based game state sync with ?sync=delta
+                if ("delta".equals(params.getFirst("sync"))) {
+                    attributes.put("syncMode", "delta");
+                }
+                // and to the compact binary protocol with ?protocol=binary
+                if ("binary".equals(params.getFirst("protocol"))) {
+                    attributes.put("protocol", "binary");
+                }
+                // and to dictionary-based frame compression with ?compress=deflate
+                if ("deflate".equals(params.getFirst("compress"))) {
+                    attributes.put("compress", "deflate");
+                }
                 return true;
             }
         } catch (Exception e) {
@@ -0,0 +1,68 @@
+package tech.hirsun.project.mahjongserver.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Rate limits log lines written once per message, such as inbound commands and outbound frames.
+ * Statements marked {@link #SAMPLED} are let through at most {@code permitsPerSecond} times per
+ * second for each logger and message format; the number of lines dropped is logged when the next
+ * second starts. Unmarked statements are not affected.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    /** Marker for log statements that may be sampled */
+    public static final Marker SAMPLED = MarkerFactory.getMarker("SAMPLED");
+
+    private int permitsPerSecond = 10;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public void setPermitsPerSecond(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker == null || format == null || !marker.contains(SAMPLED)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(logger.getName() + '|' + format, key -> new Window());
+        long second = System.currentTimeMillis() / 1000;
+        long suppressed;
+        boolean permitted;
+        synchronized (window) {
+            suppressed = 0;
+            if (window.second != second) {
+                suppressed = window.suppressed;
+                window.second = second;
+                window.count = 0;
+                window.suppressed = 0;
+            }
+            permitted = ++window.count <= permitsPerSecond;
+            if (!permitted) {
+                window.suppressed++;
+            }
+        }
+        if (suppressed > 0) {
+            // Unmarked, so it is not sampled itself
+            logger.info("Suppressed {} lines like: {}", suppressed, format);
+        }
+        return permitted ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private static class Window {
+        private long second;
+        private int count;
+        private long suppressed;
+    }
+}
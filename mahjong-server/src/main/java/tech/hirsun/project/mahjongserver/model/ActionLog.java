@@ -0,0 +1,120 @@
+package tech.hirsun.project.mahjongserver.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only, sequence-numbered log of game actions.
+ * Recent actions live in a fixed-size ring; actions that fall out of the ring are
+ * spilled to an archive of fixed-size chunks, so appending never copies earlier entries.
+ * Queries return read-only views over a fixed sequence range instead of copies.
+ * Not thread-safe, owned by its {@link Game}.
+ */
+public class ActionLog {
+
+    /** Number of recent actions kept in the ring */
+    public static final int RING_CAPACITY = 64;
+
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final GameAction[] ring = new GameAction[RING_CAPACITY];
+    private final List<GameAction[]> archive = new ArrayList<>();
+
+    // Sequence number of the last appended action; the first action gets 1
+    private long lastSeq;
+
+    /**
+     * Append an action and assign its sequence number
+     * @param action Action to append
+     * @return Assigned sequence number
+     */
+    public long append(GameAction action) {
+        long seq = ++lastSeq;
+        action.setSeq(seq);
+        int slot = (int) ((seq - 1) % RING_CAPACITY);
+        GameAction evicted = ring[slot];
+        if (evicted != null) {
+            spill(evicted);
+        }
+        ring[slot] = action;
+        return seq;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public int size() {
+        return (int) lastSeq;
+    }
+
+    /**
+     * Get an action by sequence number
+     * @param seq Sequence number, 1..lastSeq
+     * @return The action
+     */
+    public GameAction get(long seq) {
+        if (seq < 1 || seq > lastSeq) {
+            throw new IndexOutOfBoundsException("seq " + seq + " not in 1.." + lastSeq);
+        }
+        if (seq > lastSeq - RING_CAPACITY) {
+            return ring[(int) ((seq - 1) % RING_CAPACITY)];
+        }
+        int index = (int) (seq - 1);
+        return archive.get(index >>> CHUNK_SHIFT)[index & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Get the last n actions, oldest first
+     * @param count Maximum number of actions
+     * @return Read-only view of the actions
+     */
+    public List<GameAction> last(int count) {
+        long from = Math.max(1, lastSeq - count + 1);
+        return new Range(from, lastSeq);
+    }
+
+    /**
+     * Get every action after a sequence number, oldest first
+     * @param seq Last sequence number already known to the caller
+     * @return Read-only view of the actions
+     */
+    public List<GameAction> since(long seq) {
+        return new Range(Math.max(1, seq + 1), lastSeq);
+    }
+
+    private void spill(GameAction action) {
+        int index = (int) (action.getSeq() - 1);
+        int chunk = index >>> CHUNK_SHIFT;
+        if (chunk == archive.size()) {
+            archive.add(new GameAction[CHUNK_SIZE]);
+        }
+        archive.get(chunk)[index & (CHUNK_SIZE - 1)] = action;
+    }
+
+    // Entries are read through get(seq), so a view stays valid while later appends move them to the archive
+    private class Range extends AbstractList<GameAction> {
+        private final long from;
+        private final int size;
+
+        private Range(long from, long to) {
+            this.from = from;
+            this.size = (int) Math.max(0, to - from + 1);
+        }
+
+        @Override
+        public GameAction get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return ActionLog.this.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -6,25 +6,44 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.Getter;
 import lombok.Setter;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
 
+/**
+ * State of a single game. Not thread-safe: a game is only accessed from its room's
+ * {@link tech.hirsun.project.mahjongserver.service.RoomCommandExecutor} mailbox.
+ * Every mutation bumps the version; tile movements after the deal are journaled as
+ * {@link TileMove}s so clients can be sent patches instead of the full state.
+ */
 public class Game {
+    public static final int MAX_PLAYERS = 4;
+
+    // Number of recent tile moves kept for patches; older versions need a full state
+    public static final int MOVE_JOURNAL_CAPACITY = 256;
+
+    private static final AtomicLong NEXT_GAME_ID = new AtomicLong(System.currentTimeMillis());
+
+    // Distinguishes versions of successive games in the same room
+    @Getter private final long gameId;
+    @Getter private long version;
+
     @Getter @Setter private String roomId;
     @Getter @Setter private LocalDateTime startTime;
     @Getter @Setter private LocalDateTime endTime;
     @Getter @Setter private String dealerEmail;
-    private List<Tile> drawPile;
-    private List<Tile> discardPile;
-    private Map<String, List<Tile>> playerHands;
-    private Map<String, List<Tile>> playerRevealedTiles;
+    // Tile zones are kept as tile codes (see TileUtil); Tile objects are only built for the wire
+    private final TileTable tiles;
     @Getter private Map<String, Integer> playerPositions;
-    private List<GameAction> actionHistory;
-    @Getter @Setter private GameStatus status;
-    @Getter @Setter private String winnerEmail;
+    private final ActionLog actionLog;
+    private final TileMove[] moveJournal;
+    private int moveCount;
+    // Versions below this may have had moves evicted from the journal
+    private long journalFloor;
+    @Getter private GameStatus status;
+    @Getter private String winnerEmail;
 
     public enum GameStatus {
         WAITING,
@@ -33,13 +52,19 @@ public class Game {
     }
 
     public Game() {
+        this(NEXT_GAME_ID.incrementAndGet());
+    }
+
+    // Restore a game under the ID it was created with
+    public Game(long gameId) {
+        this.gameId = gameId;
+        // New games must not reuse a restored ID
+        NEXT_GAME_ID.accumulateAndGet(gameId, Math::max);
+        this.moveJournal = new TileMove[MOVE_JOURNAL_CAPACITY];
         this.startTime = LocalDateTime.now();
-        this.drawPile = new CopyOnWriteArrayList<>();
-        this.discardPile = new CopyOnWriteArrayList<>();
-        this.playerHands = new ConcurrentHashMap<>();
-        this.playerRevealedTiles = new ConcurrentHashMap<>();
-        this.playerPositions = new ConcurrentHashMap<>();
-        this.actionHistory = new CopyOnWriteArrayList<>();
+        this.tiles = new TileTable(MAX_PLAYERS, this::recordMove);
+        this.playerPositions = new HashMap<>();
+        this.actionLog = new ActionLog();
         this.status = GameStatus.WAITING;
     }
 
@@ -49,110 +74,232 @@ public class Game {
         this.status = GameStatus.IN_PROGRESS;
         
         // Assign positions
-        for (int i = 0; i < playerEmails.size(); i++) {
+        for (int i = 0; i < playerEmails.size() && i < MAX_PLAYERS; i++) {
             playerPositions.put(playerEmails.get(i), i);
-            playerHands.put(playerEmails.get(i), new ArrayList<>());
-            playerRevealedTiles.put(playerEmails.get(i), new ArrayList<>());
         }
     }
 
+    // Deal the players' hands from the head of a shuffled wall, the rest of the wall is drawn from during play
+    public void dealFrom(Wall wall) {
+        version += tiles.dealFrom(wall, playerPositions.size(), getPlayerPosition(dealerEmail));
+    }
+
+    public Wall getWall() {
+        return tiles.getWall();
+    }
+
+    public void setWall(Wall wall) {
+        tiles.setWall(wall);
+    }
+
+    // Get the players in seat order
+    public List<String> getPlayersBySeat() {
+        String[] players = new String[playerPositions.size()];
+        playerPositions.forEach((email, seat) -> players[seat] = email);
+        return List.of(players);
+    }
+
+    /**
+     * Re-apply a recorded action: move its tiles and append a copy of it to the log.
+     * Used to rebuild a game from its initial wall and its action sequence.
+     * @param action Recorded action; tile data is a Tile or a list of Tiles
+     * @return false if the tiles could not be moved, the action is still appended
+     */
+    public boolean replay(GameAction action) {
+        boolean applied = tiles.apply(action, getPlayerPosition(action.getPlayerEmail()));
+        GameAction copy = new GameAction(action.getPlayerEmail(), action.getType(), action.getData(), action.getTimestamp());
+        addAction(copy);
+        return applied;
+    }
+
+    public void setStatus(GameStatus status) {
+        this.status = status;
+        version++;
+    }
+
+    public void setWinnerEmail(String winnerEmail) {
+        this.winnerEmail = winnerEmail;
+        version++;
+    }
+
     public int getRemainingTilesCount() {
-        return drawPile.size();
+        return tiles.getRemainingTiles();
     }
 
+    // Get the last actions as a read-only view, oldest first
     public List<GameAction> getRecentActions(int count) {
-        if (actionHistory.size() <= count) {
-            return new ArrayList<>(actionHistory);
+        return actionLog.last(count);
+    }
+
+    // Get the actions after a sequence number as a read-only view, oldest first
+    public List<GameAction> getActionsSince(long seq) {
+        return actionLog.since(seq);
+    }
+
+    public long getLastActionSeq() {
+        return actionLog.getLastSeq();
+    }
+
+    // Append a new action to the log and return its sequence number
+    public long addAction(GameAction action) {
+        version++;
+        return actionLog.append(action);
+    }
+
+    // Get the tile moves made after a version, oldest first, or null if they are no longer journaled
+    public List<TileMove> getMovesSince(long sinceVersion) {
+        if (sinceVersion < journalFloor || sinceVersion > version) {
+            return null;
+        }
+        int count = 0;
+        while (count < Math.min(moveCount, MOVE_JOURNAL_CAPACITY)
+                && moveJournal[(moveCount - 1 - count) % MOVE_JOURNAL_CAPACITY].getVersion() > sinceVersion) {
+            count++;
         }
-        return new ArrayList<>(actionHistory.subList(actionHistory.size() - count, actionHistory.size()));
+        List<TileMove> moves = new ArrayList<>(count);
+        for (int i = moveCount - count; i < moveCount; i++) {
+            moves.add(moveJournal[i % MOVE_JOURNAL_CAPACITY]);
+        }
+        return moves;
     }
 
-    // Add a new action to the history
-    public void addAction(GameAction action) {
-        actionHistory.add(action);
+    private void recordMove(int code, TileMove.Zone from, int fromSeat, TileMove.Zone to, int toSeat) {
+        int slot = moveCount % MOVE_JOURNAL_CAPACITY;
+        if (moveJournal[slot] != null) {
+            journalFloor = moveJournal[slot].getVersion();
+        }
+        moveJournal[slot] = new TileMove(++version, code, from, fromSeat, to, toSeat);
+        moveCount++;
     }
 
-    // Get player's hand
+    // Get a player's seat index, or -1 if the player is not in this game
+    public int getPlayerPosition(String playerEmail) {
+        Integer position = playerEmail != null ? playerPositions.get(playerEmail) : null;
+        return position != null ? position : -1;
+    }
+
+    // Get player's hand in tile code order; the drawn tile is not kept last, clients learn it from TILE_DRAWN
     public List<Tile> getPlayerHand(String playerEmail) {
-        return playerHands.getOrDefault(playerEmail, new ArrayList<>());
+        int seat = getPlayerPosition(playerEmail);
+        return seat >= 0 ? tiles.getHand(seat).toTiles() : new ArrayList<>();
     }
 
-    // Add a tile to player's hand
-    public void addTileToPlayerHand(String playerEmail, Tile tile) {
-        playerHands.computeIfAbsent(playerEmail, k -> new ArrayList<>()).add(tile);
+    // Get the number of tiles in player's hand
+    public int getPlayerHandSize(String playerEmail) {
+        int seat = getPlayerPosition(playerEmail);
+        return seat >= 0 ? tiles.getHand(seat).size() : 0;
     }
 
-    // Remove a tile from player's hand
-    public boolean removeTileFromPlayerHand(String playerEmail, Tile tile) {
-        return playerHands.getOrDefault(playerEmail, new ArrayList<>()).remove(tile);
+    // Get the kind histogram of player's hand
+    public int[] getPlayerHandKindCounts(String playerEmail) {
+        int[] counts = new int[TileUtil.KIND_COUNT];
+        int seat = getPlayerPosition(playerEmail);
+        if (seat >= 0) {
+            tiles.getHand(seat).addKindCounts(counts);
+        }
+        return counts;
     }
 
-    // Draw a tile from the draw pile
-    public Tile drawTile() {
-        if (drawPile.isEmpty()) {
-            return null;
+    // Get the kind histogram of player's revealed tiles
+    public int[] getPlayerRevealedKindCounts(String playerEmail) {
+        int[] counts = new int[TileUtil.KIND_COUNT];
+        int seat = getPlayerPosition(playerEmail);
+        if (seat >= 0) {
+            tiles.getRevealed(seat).addKindCounts(counts);
         }
-        return drawPile.remove(0);
+        return counts;
+    }
+
+    // Get the codes of the tiles in player's hand
+    public int[] getPlayerHandCodes(String playerEmail) {
+        int seat = getPlayerPosition(playerEmail);
+        return seat >= 0 ? tiles.getHand(seat).codes() : new int[0];
+    }
+
+    // Get the kind histogram of all public tiles (discard pile and every player's revealed tiles)
+    public int[] getPublicKindCounts() {
+        return tiles.getPublicKindCounts();
+    }
+
+    // Check whether a tile is in player's hand
+    public boolean isTileInPlayerHand(String playerEmail, int code) {
+        int seat = getPlayerPosition(playerEmail);
+        return seat >= 0 && tiles.getHand(seat).contains(code);
     }
 
-    // Discard a tile to the discard pile
-    public void discardTile(Tile tile) {
-        discardPile.add(tile);
+    // Check whether a tile is among player's revealed tiles
+    public boolean isTileRevealedByPlayer(String playerEmail, int code) {
+        int seat = getPlayerPosition(playerEmail);
+        return seat >= 0 && tiles.getRevealed(seat).contains(code);
     }
 
-    // Remove a tile from the discard pile by its ID
-    public boolean removeTileFromDiscardPile(int tileId) {
-        for (int i = 0; i < discardPile.size(); i++) {
-            if (discardPile.get(i).getId() == tileId) {
-                discardPile.remove(i);
-                return true;
-            }
+    // Deal a tile into player's hand; the deal is not journaled, clients get it with the full state
+    public void addTileToPlayerHand(String playerEmail, int code) {
+        int seat = getPlayerPosition(playerEmail);
+        if (seat >= 0) {
+            tiles.deal(seat, code);
+            version++;
         }
-        return false;
     }
 
-    // Reveal player's tiles
-    public void revealPlayerTiles(String playerEmail, List<Tile> tiles) {
-        playerRevealedTiles.computeIfAbsent(playerEmail, k -> new ArrayList<>()).addAll(tiles);
-        playerHands.getOrDefault(playerEmail, new ArrayList<>()).removeAll(tiles);
+    // Draw a tile from the wall into player's hand, returns -1 if the wall is empty
+    public int drawTile(String playerEmail) {
+        return tiles.draw(getPlayerPosition(playerEmail));
     }
 
-    // Hide previously revealed tiles
-    public void hidePlayerTiles(String playerEmail, List<Tile> tiles) {
-        List<Tile> revealedTiles = playerRevealedTiles.getOrDefault(playerEmail, new ArrayList<>());
-        List<Tile> playerHand = playerHands.computeIfAbsent(playerEmail, k -> new ArrayList<>());
-        
-        revealedTiles.removeAll(tiles);
-        playerHand.addAll(tiles);
+    // Move a tile from player's hand to the discard pile
+    public boolean discardTile(String playerEmail, int code) {
+        return tiles.discard(getPlayerPosition(playerEmail), code);
     }
 
-    // Custom getters with defensive copying
-    public List<Tile> getDrawPile() {
-        return new ArrayList<>(drawPile);
+    // Move a tile from the discard pile to player's hand
+    public boolean takeDiscardedTile(String playerEmail, int code) {
+        return tiles.take(getPlayerPosition(playerEmail), code);
+    }
+
+    // Reveal player's tiles, only tiles currently in hand are moved
+    public void revealPlayerTiles(String playerEmail, int[] codes) {
+        tiles.reveal(getPlayerPosition(playerEmail), codes);
     }
 
-    public void setDrawPile(List<Tile> drawPile) {
-        this.drawPile = new CopyOnWriteArrayList<>(drawPile);
+    // Hide previously revealed tiles, only tiles currently revealed are moved
+    public void hidePlayerTiles(String playerEmail, int[] codes) {
+        tiles.hide(getPlayerPosition(playerEmail), codes);
+    }
+
+    // Wire views built from the tile codes
+    public List<Tile> getDrawPile() {
+        Wall wall = tiles.getWall();
+        List<Tile> drawPile = new ArrayList<>(wall.remaining());
+        for (int i = 0; i < wall.remaining(); i++) {
+            drawPile.add(TileUtil.toTile(wall.peek(i)));
+        }
+        return drawPile;
     }
 
     public List<Tile> getDiscardPile() {
-        return new ArrayList<>(discardPile);
+        return tiles.getDiscardPile();
+    }
+
+    public List<Tile> getPlayerRevealedTiles(String playerEmail) {
+        int seat = getPlayerPosition(playerEmail);
+        return seat >= 0 ? tiles.getRevealed(seat).toTiles() : new ArrayList<>();
     }
 
     public Map<String, List<Tile>> getPlayerHands() {
         Map<String, List<Tile>> result = new HashMap<>();
-        playerHands.forEach((email, tiles) -> result.put(email, new ArrayList<>(tiles)));
+        playerPositions.forEach((email, seat) -> result.put(email, tiles.getHand(seat).toTiles()));
         return result;
     }
 
     public Map<String, List<Tile>> getPlayerRevealedTiles() {
         Map<String, List<Tile>> result = new HashMap<>();
-        playerRevealedTiles.forEach((email, tiles) -> result.put(email, new ArrayList<>(tiles)));
+        playerPositions.forEach((email, seat) -> result.put(email, tiles.getRevealed(seat).toTiles()));
         return result;
     }
 
     public void setPlayerPositions(Map<String, Integer> playerPositions) {
-        this.playerPositions = new ConcurrentHashMap<>(playerPositions);
+        this.playerPositions = new HashMap<>(playerPositions);
     }
 
     @Override
@@ -6,10 +6,12 @@ import lombok.Data;
 
 @Data
 public class GameAction {
+    // Position in the game's ActionLog, assigned on append
+    private long seq;
     private String playerEmail;
     private ActionType type;
     private Object data;
-    private LocalDateTime timestamp = LocalDateTime.now();
+    private LocalDateTime timestamp;
 
     public enum ActionType {
         DRAW,          // Draw a tile from pile
@@ -23,20 +25,26 @@ public class GameAction {
     }
 
     public GameAction(String playerEmail, ActionType type) {
-        this.playerEmail = playerEmail;
-        this.type = type;
+        this(playerEmail, type, null);
     }
 
     public GameAction(String playerEmail, ActionType type, Object data) {
+        this(playerEmail, type, data, LocalDateTime.now());
+    }
+
+    // Restore an action that was recorded earlier
+    public GameAction(String playerEmail, ActionType type, Object data, LocalDateTime timestamp) {
         this.playerEmail = playerEmail;
         this.type = type;
         this.data = data;
+        this.timestamp = timestamp;
     }
 
     @Override
     public String toString() {
         return "GameAction{" +
-                "playerEmail='" + playerEmail + '\'' +
+                "seq=" + seq +
+                ", playerEmail='" + playerEmail + '\'' +
                 ", type=" + type +
                 ", timestamp=" + timestamp +
                 '}';
@@ -0,0 +1,33 @@
+package tech.hirsun.project.mahjongserver.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Everything needed to replay a finished game: its players, the wall in its initial order
+ * and every action in order. Taken once when the game ends and never changed afterwards.
+ */
+public record GameRecord(long gameId, String roomId, String dealerEmail, List<String> playersBySeat,
+                         byte[] wall, List<GameAction> actions, LocalDateTime startTime,
+                         LocalDateTime endTime, String winnerEmail) {
+
+    /**
+     * Record a game; must be called by the thread that owns the game's room
+     * @param game The game
+     * @return The game's record
+     */
+    public static GameRecord of(Game game) {
+        return new GameRecord(game.getGameId(), game.getRoomId(), game.getDealerEmail(), game.getPlayersBySeat(),
+                game.getWall().getInitialOrder(), List.copyOf(game.getActionsSince(0)), game.getStartTime(),
+                game.getEndTime(), game.getWinnerEmail());
+    }
+
+    /**
+     * Check whether a user played in this game
+     * @param playerEmail User's email
+     * @return true if the user had a seat
+     */
+    public boolean hasPlayer(String playerEmail) {
+        return playersBySeat.contains(playerEmail);
+    }
+}
@@ -1,5 +1,6 @@
 package tech.hirsun.project.mahjongserver.model;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,13 +11,19 @@ import lombok.Data;
 
 @Data
 public class Room {
+    // Used when the room is not created with the configured room.expiration
+    public static final Duration DEFAULT_LIFETIME = Duration.ofHours(24);
+
     private String roomId;
     private String password;
     private LocalDateTime creationTime;
+    private LocalDateTime expirationTime;
     private String creatorEmail;
     private List<String> playerEmails;
     private Game currentGame;
     private RoomStatus status;
+    // Beginner table: players receive shanten / waiting tile hints
+    private boolean hintsEnabled;
 
     public enum RoomStatus {
         WAITING, // Waiting for players to join
@@ -27,6 +34,7 @@ public class Room {
     public Room() {
         this.playerEmails = new CopyOnWriteArrayList<>();
         this.creationTime = LocalDateTime.now();
+        this.expirationTime = creationTime.plus(DEFAULT_LIFETIME);
         this.status = RoomStatus.WAITING;
     }
 
@@ -37,11 +45,12 @@ public class Room {
         this.playerEmails = new CopyOnWriteArrayList<>();
         this.playerEmails.add(creatorEmail);
         this.creationTime = LocalDateTime.now();
+        this.expirationTime = creationTime.plus(DEFAULT_LIFETIME);
         this.status = RoomStatus.WAITING;
     }
 
     public boolean isExpired() {
-        return LocalDateTime.now().isAfter(creationTime.plusHours(24));
+        return LocalDateTime.now().isAfter(expirationTime);
     }
 
     public boolean canStartGame() {
@@ -0,0 +1,66 @@
+package tech.hirsun.project.mahjongserver.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable copy of a room as of its last save.
+ * Rooms and games are only touched by their room's executor; other threads read these instead.
+ */
+public record RoomView(String roomId, String password, LocalDateTime creationTime, LocalDateTime expirationTime,
+                       String creatorEmail, List<String> playerEmails, Room.RoomStatus status, boolean hintsEnabled,
+                       Long gameId, Map<String, Integer> seats) {
+
+    /**
+     * Copy a room; must be called by the thread that owns the room
+     * @param room The room
+     * @return The room's view
+     */
+    public static RoomView of(Room room) {
+        Game game = room.getCurrentGame();
+        return new RoomView(room.getRoomId(), room.getPassword(), room.getCreationTime(), room.getExpirationTime(),
+                room.getCreatorEmail(), List.copyOf(room.getPlayerEmails()), room.getStatus(), room.isHintsEnabled(),
+                game != null ? game.getGameId() : null,
+                game != null ? Map.copyOf(game.getPlayerPositions()) : Map.of());
+    }
+
+    /**
+     * Check whether this view still matches a room, without copying the room
+     * @param room The room
+     * @return true if no viewed field changed
+     */
+    public boolean matches(Room room) {
+        Game game = room.getCurrentGame();
+        // A game's seats never change, the game ID stands for them
+        return status == room.getStatus()
+                && hintsEnabled == room.isHintsEnabled()
+                && Objects.equals(gameId, game != null ? game.getGameId() : null)
+                && Objects.equals(password, room.getPassword())
+                && Objects.equals(creatorEmail, room.getCreatorEmail())
+                && Objects.equals(creationTime, room.getCreationTime())
+                && Objects.equals(expirationTime, room.getExpirationTime())
+                && playerEmails.equals(room.getPlayerEmails());
+    }
+
+    /**
+     * Check whether a user is a member of the room
+     * @param playerEmail User's email
+     * @return true if the user joined the room
+     */
+    public boolean hasPlayer(String playerEmail) {
+        return playerEmails.contains(playerEmail);
+    }
+
+    public boolean isExpired() {
+        return LocalDateTime.now().isAfter(expirationTime);
+    }
+
+    /**
+     * @return true if the room is waiting for players and has a free seat
+     */
+    public boolean isJoinable() {
+        return status == Room.RoomStatus.WAITING && playerEmails.size() < 4;
+    }
+}
@@ -6,6 +6,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Wire view of a single tile. The game engine stores tiles as codes (0..135),
+ * see {@link tech.hirsun.project.mahjongserver.util.TileUtil}; the id sent to clients is code + 1.
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,51 @@
+package tech.hirsun.project.mahjongserver.model;
+
+import lombok.Getter;
+
+/**
+ * A single tile moving from one zone to another, the unit of the delta sync protocol.
+ * Seats are only meaningful for player zones (HAND, REVEALED) and are -1 otherwise.
+ */
+@Getter
+public class TileMove {
+
+    public enum Zone {
+        WALL,     // Undrawn tiles
+        HAND,     // A player's concealed hand
+        REVEALED, // A player's revealed tiles
+        DISCARD   // Discard pile
+    }
+
+    private final long version;
+    private final int code;
+    private final Zone from;
+    private final int fromSeat;
+    private final Zone to;
+    private final int toSeat;
+
+    public TileMove(long version, int code, Zone from, int fromSeat, Zone to, int toSeat) {
+        this.version = version;
+        this.code = code;
+        this.from = from;
+        this.fromSeat = fromSeat;
+        this.to = to;
+        this.toSeat = toSeat;
+    }
+
+    /**
+     * Check whether a player may see which tile moved.
+     * The tile is public when either end is a public zone; otherwise only the hand's owner sees it.
+     * @param seat Viewer's seat index
+     * @return true if the tile identity can be sent to this viewer
+     */
+    public boolean isVisibleTo(int seat) {
+        if (isPublic(from) || isPublic(to)) {
+            return true;
+        }
+        return (from == Zone.HAND && fromSeat == seat) || (to == Zone.HAND && toSeat == seat);
+    }
+
+    private static boolean isPublic(Zone zone) {
+        return zone == Zone.REVEALED || zone == Zone.DISCARD;
+    }
+}
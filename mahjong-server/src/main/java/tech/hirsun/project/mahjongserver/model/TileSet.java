@@ -0,0 +1,114 @@
+package tech.hirsun.project.mahjongserver.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+/**
+ * A set of physical tiles stored as one bit per tile code (0..135).
+ * Iteration is always in ascending code order, which is also kind order.
+ */
+public class TileSet {
+    private final long[] words = new long[TileUtil.TILE_SET_WORDS];
+    private int size;
+
+    public boolean add(int code) {
+        long mask = 1L << code;
+        int index = code >>> 6;
+        if ((words[index] & mask) != 0) {
+            return false;
+        }
+        words[index] |= mask;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int code) {
+        long mask = 1L << code;
+        int index = code >>> 6;
+        if ((words[index] & mask) == 0) {
+            return false;
+        }
+        words[index] &= ~mask;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int code) {
+        return code >= 0 && code < TileUtil.TILE_COUNT && (words[code >>> 6] & (1L << code)) != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copy this set
+     * @return An independent set with the same tiles
+     */
+    public TileSet copy() {
+        TileSet copy = new TileSet();
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        copy.size = size;
+        return copy;
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0L;
+        }
+        size = 0;
+    }
+
+    /**
+     * Get the tile codes in this set
+     * @return Codes in ascending order
+     */
+    public int[] codes() {
+        int[] codes = new int[size];
+        int n = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                codes[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Add the kind histogram of this set to the given counts
+     * @param counts Array of {@link TileUtil#KIND_COUNT} counters
+     */
+    public void addKindCounts(int[] counts) {
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                counts[TileUtil.kindOf((i << 6) + Long.numberOfTrailingZeros(word))]++;
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Build the wire view of this set
+     * @return List of shared tile DTOs in ascending code order
+     */
+    public List<Tile> toTiles() {
+        List<Tile> tiles = new ArrayList<>(size);
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                tiles.add(TileUtil.toTile((i << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        return tiles;
+    }
+}
@@ -0,0 +1,284 @@
+package tech.hirsun.project.mahjongserver.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+/**
+ * Where every tile of a game is: the wall, each seat's hand and revealed tiles, and the discard pile,
+ * with the rules for moving tiles between them. Live games, recovery and replays all move tiles here.
+ * <p>
+ * Moves after the deal are reported to an optional listener. A table without one is a few hundred
+ * bytes and cheap to copy. Not thread-safe.
+ */
+public class TileTable {
+
+    /**
+     * Receives every tile moved after the deal
+     */
+    @FunctionalInterface
+    public interface MoveListener {
+        void moved(int code, TileMove.Zone from, int fromSeat, TileMove.Zone to, int toSeat);
+    }
+
+    private Wall wall;
+    private final byte[] discardPile;
+    private int discardCount;
+    private final TileSet[] hands;
+    private final TileSet[] revealed;
+    private final MoveListener listener;
+
+    /**
+     * Create an empty table
+     * @param seats Number of seats
+     * @param listener Called for every move, or null
+     */
+    public TileTable(int seats, MoveListener listener) {
+        this.wall = new Wall(new byte[0]);
+        this.discardPile = new byte[TileUtil.TILE_COUNT];
+        this.hands = new TileSet[seats];
+        this.revealed = new TileSet[seats];
+        for (int seat = 0; seat < seats; seat++) {
+            hands[seat] = new TileSet();
+            revealed[seat] = new TileSet();
+        }
+        this.listener = listener;
+    }
+
+    private TileTable(TileTable other) {
+        this.wall = other.wall.copy();
+        this.discardPile = Arrays.copyOf(other.discardPile, other.discardPile.length);
+        this.discardCount = other.discardCount;
+        this.hands = new TileSet[other.hands.length];
+        this.revealed = new TileSet[other.revealed.length];
+        for (int seat = 0; seat < hands.length; seat++) {
+            hands[seat] = other.hands[seat].copy();
+            revealed[seat] = other.revealed[seat].copy();
+        }
+        this.listener = null;
+    }
+
+    /**
+     * Copy the table; the copy reports its moves to no one
+     * @return An independent copy
+     */
+    public TileTable copy() {
+        return new TileTable(this);
+    }
+
+    /**
+     * Deal the hands from the head of a shuffled wall, the rest of the wall is drawn from during play.
+     * The deal is not reported to the listener.
+     * @param wall The wall, owned by the table afterwards
+     * @param playerCount Number of seated players
+     * @param dealerSeat Dealer's seat, or -1 for none
+     * @return Number of tiles dealt
+     */
+    public int dealFrom(Wall wall, int playerCount, int dealerSeat) {
+        byte[][] dealt = TileUtil.dealInitialTiles(wall, playerCount, dealerSeat);
+        int count = 0;
+        for (int seat = 0; seat < playerCount; seat++) {
+            for (byte code : dealt[seat]) {
+                hands[seat].add(code & 0xFF);
+                count++;
+            }
+        }
+        this.wall = wall;
+        return count;
+    }
+
+    public Wall getWall() {
+        return wall;
+    }
+
+    public void setWall(Wall wall) {
+        this.wall = wall;
+    }
+
+    /**
+     * Put a tile into a hand without reporting a move
+     * @param seat Seat index
+     * @param code Tile code
+     */
+    public void deal(int seat, int code) {
+        hands[seat].add(code);
+    }
+
+    /**
+     * Apply the tile moves of a recorded action
+     * @param action The action; tile data is a Tile or a list of Tiles
+     * @param seat Seat of the acting player, or -1 if the player has no seat
+     * @return false if the tiles could not be moved
+     */
+    public boolean apply(GameAction action, int seat) {
+        return switch (action.getType()) {
+            case DRAW -> draw(seat) >= 0;
+            case DISCARD -> action.getData() instanceof Tile tile && discard(seat, TileUtil.codeOf(tile));
+            case TAKE_TILE -> action.getData() instanceof Tile tile && take(seat, TileUtil.codeOf(tile));
+            case REVEAL_TILES -> {
+                reveal(seat, codesOf(action.getData()));
+                yield true;
+            }
+            case HIDE_TILES -> {
+                hide(seat, codesOf(action.getData()));
+                yield true;
+            }
+            // Claims and confirmations do not move tiles
+            default -> true;
+        };
+    }
+
+    /**
+     * Draw a tile from the head of the wall into a hand
+     * @param seat Seat index, or -1
+     * @return Tile code, or -1 if the wall is empty or there is no seat
+     */
+    public int draw(int seat) {
+        int code = seat >= 0 ? wall.draw() : -1;
+        if (code >= 0) {
+            hands[seat].add(code);
+            moved(code, TileMove.Zone.WALL, -1, TileMove.Zone.HAND, seat);
+        }
+        return code;
+    }
+
+    /**
+     * Move a tile from a hand to the discard pile
+     * @param seat Seat index, or -1
+     * @param code Tile code
+     * @return false if the tile is not in the hand
+     */
+    public boolean discard(int seat, int code) {
+        if (seat < 0 || code < 0 || code >= TileUtil.TILE_COUNT || !hands[seat].remove(code)) {
+            return false;
+        }
+        discardPile[discardCount++] = (byte) code;
+        moved(code, TileMove.Zone.HAND, seat, TileMove.Zone.DISCARD, -1);
+        return true;
+    }
+
+    /**
+     * Move a tile from the discard pile to a hand
+     * @param seat Seat index, or -1
+     * @param code Tile code
+     * @return false if the tile is not in the discard pile
+     */
+    public boolean take(int seat, int code) {
+        if (seat < 0 || !removeFromDiscardPile(code)) {
+            return false;
+        }
+        hands[seat].add(code);
+        moved(code, TileMove.Zone.DISCARD, -1, TileMove.Zone.HAND, seat);
+        return true;
+    }
+
+    /**
+     * Reveal tiles of a hand, only tiles currently in the hand are moved
+     * @param seat Seat index, or -1
+     * @param codes Tile codes
+     */
+    public void reveal(int seat, int[] codes) {
+        if (seat < 0) {
+            return;
+        }
+        for (int code : codes) {
+            if (hands[seat].remove(code)) {
+                revealed[seat].add(code);
+                moved(code, TileMove.Zone.HAND, seat, TileMove.Zone.REVEALED, seat);
+            }
+        }
+    }
+
+    /**
+     * Hide revealed tiles, only tiles currently revealed are moved
+     * @param seat Seat index, or -1
+     * @param codes Tile codes
+     */
+    public void hide(int seat, int[] codes) {
+        if (seat < 0) {
+            return;
+        }
+        for (int code : codes) {
+            if (revealed[seat].remove(code)) {
+                hands[seat].add(code);
+                moved(code, TileMove.Zone.REVEALED, seat, TileMove.Zone.HAND, seat);
+            }
+        }
+    }
+
+    private boolean removeFromDiscardPile(int code) {
+        for (int i = 0; i < discardCount; i++) {
+            if ((discardPile[i] & 0xFF) == code) {
+                System.arraycopy(discardPile, i + 1, discardPile, i, discardCount - i - 1);
+                discardCount--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void moved(int code, TileMove.Zone from, int fromSeat, TileMove.Zone to, int toSeat) {
+        if (listener != null) {
+            listener.moved(code, from, fromSeat, to, toSeat);
+        }
+    }
+
+    private static int[] codesOf(Object tiles) {
+        if (!(tiles instanceof List<?> list)) {
+            return new int[0];
+        }
+        int[] codes = new int[list.size()];
+        int count = 0;
+        for (Object item : list) {
+            int code = item instanceof Tile tile ? TileUtil.codeOf(tile) : -1;
+            if (code >= 0) {
+                codes[count++] = code;
+            }
+        }
+        return Arrays.copyOf(codes, count);
+    }
+
+    /**
+     * Get a seat's hand; callers must not modify it
+     * @param seat Seat index
+     * @return The hand
+     */
+    public TileSet getHand(int seat) {
+        return hands[seat];
+    }
+
+    /**
+     * Get a seat's revealed tiles; callers must not modify them
+     * @param seat Seat index
+     * @return The revealed tiles
+     */
+    public TileSet getRevealed(int seat) {
+        return revealed[seat];
+    }
+
+    // Get the kind histogram of all public tiles (discard pile and every seat's revealed tiles)
+    public int[] getPublicKindCounts() {
+        int[] counts = new int[TileUtil.KIND_COUNT];
+        for (int i = 0; i < discardCount; i++) {
+            counts[TileUtil.kindOf(discardPile[i] & 0xFF)]++;
+        }
+        for (TileSet tiles : revealed) {
+            tiles.addKindCounts(counts);
+        }
+        return counts;
+    }
+
+    public List<Tile> getDiscardPile() {
+        List<Tile> tiles = new ArrayList<>(discardCount);
+        for (int i = 0; i < discardCount; i++) {
+            tiles.add(TileUtil.toTile(discardPile[i] & 0xFF));
+        }
+        return tiles;
+    }
+
+    public int getRemainingTiles() {
+        return wall.remaining();
+    }
+}
@@ -0,0 +1,70 @@
+package tech.hirsun.project.mahjongserver.model;
+
+import java.util.Arrays;
+
+/**
+ * The wall of undrawn tiles, stored as shuffled tile codes with a cursor at the head.
+ * Draws are constant-time and do not allocate. Codes are stored as unsigned bytes.
+ */
+public class Wall {
+    private final byte[] tiles;
+    private int head;
+
+    /**
+     * Create a wall over the given tile codes; the array is owned by the wall afterwards
+     * @param tiles Tile codes in draw order
+     */
+    public Wall(byte[] tiles) {
+        this.tiles = tiles;
+        this.head = 0;
+    }
+
+    private Wall(byte[] tiles, int head) {
+        this.tiles = tiles;
+        this.head = head;
+    }
+
+    /**
+     * Copy the wall with its cursor; the tiles are never written, so the copy shares them
+     * @return An independent wall
+     */
+    public Wall copy() {
+        return new Wall(tiles, head);
+    }
+
+    /**
+     * Draw a tile from the head of the wall
+     * @return Tile code, or -1 if the wall is empty
+     */
+    public int draw() {
+        if (head >= tiles.length) {
+            return -1;
+        }
+        return tiles[head++] & 0xFF;
+    }
+
+    public int remaining() {
+        return tiles.length - head;
+    }
+
+    public boolean isEmpty() {
+        return head >= tiles.length;
+    }
+
+    /**
+     * Get the tile code at an offset from the head without drawing it
+     * @param offset Offset from the head (0 is the next tile drawn)
+     * @return Tile code
+     */
+    public int peek(int offset) {
+        return tiles[head + offset] & 0xFF;
+    }
+
+    /**
+     * Get the full wall in its original order, including tiles already drawn
+     * @return Copy of the tile codes
+     */
+    public byte[] getInitialOrder() {
+        return Arrays.copyOf(tiles, tiles.length);
+    }
+}
@@ -0,0 +1,53 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.Room;
+
+/**
+ * A change to a room, its game or a user, as written to the write-ahead log.
+ * Replaying the events in log order rebuilds every room, game and user, see {@link GameRecovery}.
+ */
+public sealed interface GameEvent {
+
+    /**
+     * @return Room the event belongs to, or null for events outside of any room
+     */
+    String roomId();
+
+    /**
+     * Everything about a room except its game; written whenever a room changes outside of a game
+     */
+    record RoomSaved(String roomId, String password, String creatorEmail, LocalDateTime creationTime,
+                     LocalDateTime expirationTime, Room.RoomStatus status, boolean hintsEnabled,
+                     List<String> playerEmails) implements GameEvent {
+    }
+
+    record RoomDeleted(String roomId) implements GameEvent {
+    }
+
+    /**
+     * A new game; the hands are dealt again from the wall's initial order
+     */
+    record GameStarted(String roomId, long gameId, String dealerEmail, LocalDateTime startTime,
+                       List<String> playersBySeat, byte[] wall) implements GameEvent {
+    }
+
+    record ActionRecorded(String roomId, long gameId, GameAction action) implements GameEvent {
+    }
+
+    record GameEnded(String roomId, long gameId, String winnerEmail, LocalDateTime endTime) implements GameEvent {
+    }
+
+    /**
+     * A user created at login or renamed
+     */
+    record UserSaved(String email, String nickname) implements GameEvent {
+        @Override
+        public String roomId() {
+            return null;
+        }
+    }
+}
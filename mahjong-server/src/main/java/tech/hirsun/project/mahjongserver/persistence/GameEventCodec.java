@@ -0,0 +1,261 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.Tile;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+/**
+ * Binary encoding of {@link GameEvent}s.
+ * <p>
+ * An event is a type byte followed by its fields. Strings are a length-prefixed UTF-8 (length -1 = null),
+ * date-times are the nanoseconds of their UTC reading, tiles are one byte (tile code = id - 1).
+ * Action data is stored as tile codes or text, depending on the action type.
+ */
+public class GameEventCodec {
+
+    // Append only: type bytes are part of the log format
+    private static final int ROOM_SAVED = 1;
+    private static final int ROOM_DELETED = 2;
+    private static final int GAME_STARTED = 3;
+    private static final int ACTION_RECORDED = 4;
+    private static final int GAME_ENDED = 5;
+    private static final int USER_SAVED = 6;
+
+    /**
+     * Encode an event
+     * @param event The event
+     * @return Encoded bytes
+     */
+    public static byte[] encode(GameEvent event) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (event instanceof GameEvent.RoomSaved room) {
+                out.writeByte(ROOM_SAVED);
+                writeString(out, room.roomId());
+                writeString(out, room.password());
+                writeString(out, room.creatorEmail());
+                writeTime(out, room.creationTime());
+                writeTime(out, room.expirationTime());
+                out.writeByte(room.status() != null ? room.status().ordinal() : -1);
+                out.writeBoolean(room.hintsEnabled());
+                writeStrings(out, room.playerEmails());
+            } else if (event instanceof GameEvent.RoomDeleted deleted) {
+                out.writeByte(ROOM_DELETED);
+                writeString(out, deleted.roomId());
+            } else if (event instanceof GameEvent.GameStarted started) {
+                out.writeByte(GAME_STARTED);
+                writeString(out, started.roomId());
+                out.writeLong(started.gameId());
+                writeString(out, started.dealerEmail());
+                writeTime(out, started.startTime());
+                writeStrings(out, started.playersBySeat());
+                out.writeShort(started.wall().length);
+                out.write(started.wall());
+            } else if (event instanceof GameEvent.ActionRecorded recorded) {
+                GameAction action = recorded.action();
+                out.writeByte(ACTION_RECORDED);
+                writeString(out, recorded.roomId());
+                out.writeLong(recorded.gameId());
+                out.writeByte(action.getType().ordinal());
+                writeString(out, action.getPlayerEmail());
+                writeTime(out, action.getTimestamp());
+                writeActionData(out, action.getData());
+            } else if (event instanceof GameEvent.GameEnded ended) {
+                out.writeByte(GAME_ENDED);
+                writeString(out, ended.roomId());
+                out.writeLong(ended.gameId());
+                writeString(out, ended.winnerEmail());
+                writeTime(out, ended.endTime());
+            } else if (event instanceof GameEvent.UserSaved user) {
+                out.writeByte(USER_SAVED);
+                writeString(out, user.email());
+                writeString(out, user.nickname());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decode an event
+     * @param buffer Encoded bytes, read from its position
+     * @return The event
+     * @throws IllegalArgumentException if the bytes are not a known event
+     */
+    public static GameEvent decode(ByteBuffer buffer) {
+        int type = buffer.get();
+        switch (type) {
+            case ROOM_SAVED -> {
+                String roomId = readString(buffer);
+                String password = readString(buffer);
+                String creatorEmail = readString(buffer);
+                LocalDateTime creationTime = readTime(buffer);
+                LocalDateTime expirationTime = readTime(buffer);
+                int status = buffer.get();
+                boolean hintsEnabled = buffer.get() != 0;
+                List<String> playerEmails = readStrings(buffer);
+                return new GameEvent.RoomSaved(roomId, password, creatorEmail, creationTime, expirationTime,
+                        status >= 0 ? Room.RoomStatus.values()[status] : null, hintsEnabled, playerEmails);
+            }
+            case ROOM_DELETED -> {
+                return new GameEvent.RoomDeleted(readString(buffer));
+            }
+            case GAME_STARTED -> {
+                String roomId = readString(buffer);
+                long gameId = buffer.getLong();
+                String dealerEmail = readString(buffer);
+                LocalDateTime startTime = readTime(buffer);
+                List<String> players = readStrings(buffer);
+                byte[] wall = new byte[buffer.getShort()];
+                buffer.get(wall);
+                return new GameEvent.GameStarted(roomId, gameId, dealerEmail, startTime, players, wall);
+            }
+            case ACTION_RECORDED -> {
+                String roomId = readString(buffer);
+                long gameId = buffer.getLong();
+                GameAction.ActionType actionType = GameAction.ActionType.values()[buffer.get()];
+                String playerEmail = readString(buffer);
+                LocalDateTime timestamp = readTime(buffer);
+                GameAction action = new GameAction(playerEmail, actionType, readActionData(buffer, actionType), timestamp);
+                return new GameEvent.ActionRecorded(roomId, gameId, action);
+            }
+            case GAME_ENDED -> {
+                String roomId = readString(buffer);
+                long gameId = buffer.getLong();
+                String winnerEmail = readString(buffer);
+                return new GameEvent.GameEnded(roomId, gameId, winnerEmail, readTime(buffer));
+            }
+            case USER_SAVED -> {
+                String email = readString(buffer);
+                return new GameEvent.UserSaved(email, readString(buffer));
+            }
+            default -> throw new IllegalArgumentException("Unknown event type " + type);
+        }
+    }
+
+    /**
+     * Encode an action without its room and game, for a list of actions of the same game
+     * @param out Output
+     * @param action The action
+     * @param playersBySeat The game's players; seated players are written as their seat
+     */
+    static void writeAction(DataOutputStream out, GameAction action, List<String> playersBySeat) throws IOException {
+        out.writeByte(action.getType().ordinal());
+        int seat = playersBySeat.indexOf(action.getPlayerEmail());
+        out.writeByte(seat);
+        if (seat < 0) {
+            writeString(out, action.getPlayerEmail());
+        }
+        writeTime(out, action.getTimestamp());
+        writeActionData(out, action.getData());
+    }
+
+    /**
+     * Decode an action written by {@link #writeAction}
+     * @param buffer Encoded bytes, read from its position
+     * @param playersBySeat The game's players
+     * @return The action
+     */
+    static GameAction readAction(ByteBuffer buffer, List<String> playersBySeat) {
+        GameAction.ActionType actionType = GameAction.ActionType.values()[buffer.get()];
+        int seat = buffer.get();
+        String playerEmail = seat >= 0 ? playersBySeat.get(seat) : readString(buffer);
+        LocalDateTime timestamp = readTime(buffer);
+        return new GameAction(playerEmail, actionType, readActionData(buffer, actionType), timestamp);
+    }
+
+    // Tiles and tile lists as codes, anything else as text
+    private static void writeActionData(DataOutputStream out, Object data) throws IOException {
+        List<?> tiles = data instanceof Tile tile ? List.of(tile) : data instanceof List<?> list ? list : null;
+        if (tiles != null) {
+            out.writeByte(tiles.size());
+            for (Object tile : tiles) {
+                out.writeByte(tile instanceof Tile t ? TileUtil.codeOf(t) : -1);
+            }
+            return;
+        }
+        out.writeByte(-1);
+        writeString(out, data != null ? data.toString() : null);
+    }
+
+    private static Object readActionData(ByteBuffer buffer, GameAction.ActionType type) {
+        int count = buffer.get();
+        if (count < 0) {
+            return readString(buffer);
+        }
+        List<Tile> tiles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int code = buffer.get() & 0xFF;
+            if (code < TileUtil.TILE_COUNT) {
+                tiles.add(TileUtil.toTile(code));
+            }
+        }
+        // Discards and takes carry a single tile, reveals and hides a list
+        boolean single = type == GameAction.ActionType.DISCARD || type == GameAction.ActionType.TAKE_TILE;
+        return single ? (tiles.isEmpty() ? null : tiles.get(0)) : tiles;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeByte(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        int count = buffer.get();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time != null ? time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano() : Long.MIN_VALUE);
+    }
+
+    private static LocalDateTime readTime(ByteBuffer buffer) {
+        long nanos = buffer.getLong();
+        if (nanos == Long.MIN_VALUE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+}
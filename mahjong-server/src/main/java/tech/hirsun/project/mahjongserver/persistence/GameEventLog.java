@@ -0,0 +1,102 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.User;
+
+/**
+ * Records room and game changes in the write-ahead log. Events are encoded on the
+ * calling thread, which must own the room (see RoomCommandExecutor), so each event
+ * is a consistent view of the room at the time of the change.
+ * Does nothing while the log is not running.
+ */
+@Component
+public class GameEventLog {
+
+    @Autowired
+    private WriteAheadLog writeAheadLog;
+
+    /**
+     * Record a room change outside of its game: creation, joins, status and settings
+     * @param room The room after the change
+     */
+    public void roomSaved(Room room) {
+        if (writeAheadLog.isRunning()) {
+            append(roomSavedEvent(room));
+        }
+    }
+
+    /**
+     * Record that a room was deleted
+     * @param roomId Room ID
+     */
+    public void roomDeleted(String roomId) {
+        if (writeAheadLog.isRunning()) {
+            append(new GameEvent.RoomDeleted(roomId));
+        }
+    }
+
+    /**
+     * Record a new game, right after its hands were dealt
+     * @param game The game
+     */
+    public void gameStarted(Game game) {
+        if (writeAheadLog.isRunning()) {
+            append(gameStartedEvent(game));
+        }
+    }
+
+    /**
+     * Record an action appended to a game's action log
+     * @param game The game
+     * @param action The action
+     */
+    public void actionRecorded(Game game, GameAction action) {
+        if (writeAheadLog.isRunning()) {
+            append(new GameEvent.ActionRecorded(game.getRoomId(), game.getGameId(), action));
+        }
+    }
+
+    /**
+     * Record the end of a game, once its status and winner are set
+     * @param game The game
+     */
+    public void gameEnded(Game game) {
+        if (writeAheadLog.isRunning()) {
+            append(gameEndedEvent(game));
+        }
+    }
+
+    /**
+     * Record a user created at login or given a new nickname
+     * @param user The user after the change
+     */
+    public void userSaved(User user) {
+        if (writeAheadLog.isRunning()) {
+            append(new GameEvent.UserSaved(user.getEmail(), user.getNickname()));
+        }
+    }
+
+    static GameEvent.RoomSaved roomSavedEvent(Room room) {
+        return new GameEvent.RoomSaved(room.getRoomId(), room.getPassword(), room.getCreatorEmail(),
+                room.getCreationTime(), room.getExpirationTime(), room.getStatus(), room.isHintsEnabled(),
+                room.getPlayerEmails());
+    }
+
+    static GameEvent.GameStarted gameStartedEvent(Game game) {
+        return new GameEvent.GameStarted(game.getRoomId(), game.getGameId(), game.getDealerEmail(),
+                game.getStartTime(), game.getPlayersBySeat(), game.getWall().getInitialOrder());
+    }
+
+    static GameEvent.GameEnded gameEndedEvent(Game game) {
+        return new GameEvent.GameEnded(game.getRoomId(), game.getGameId(), game.getWinnerEmail(), game.getEndTime());
+    }
+
+    private void append(GameEvent event) {
+        writeAheadLog.append(GameEventCodec.encode(event));
+    }
+}
@@ -0,0 +1,221 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.GameRecord;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.User;
+import tech.hirsun.project.mahjongserver.model.Wall;
+import tech.hirsun.project.mahjongserver.repository.GameRecordRepository;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+import tech.hirsun.project.mahjongserver.repository.UserRepository;
+import tech.hirsun.project.mahjongserver.schedule.RoomCleanupTask;
+import tech.hirsun.project.mahjongserver.service.GameService;
+import tech.hirsun.project.mahjongserver.service.RoomIdAllocator;
+
+/**
+ * Rebuilds rooms and games at startup, before any request is served: from the latest snapshot,
+ * then from the write-ahead log records written after it. Starts the log for new records afterwards.
+ * Games are rebuilt by dealing from their recorded wall and replaying their actions, so they end up
+ * in the same state, version included.
+ */
+@Component
+public class GameRecovery {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GameRecovery.class);
+
+    @Autowired
+    private WriteAheadLog writeAheadLog;
+
+    @Autowired
+    private SnapshotStore snapshotStore;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GameRecordRepository gameRecordRepository;
+
+    @Autowired
+    private RoomIdAllocator roomIdAllocator;
+
+    @Autowired
+    private RoomCleanupTask roomCleanupTask;
+
+    @Autowired
+    private GameService gameService;
+
+    // Pending win confirmations by room, rebuilt along with the games
+    private final Map<String, Map<String, Boolean>> winConfirmations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void recover() {
+        if (!writeAheadLog.isEnabled() && !snapshotStore.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        SnapshotStore.Snapshot snapshot = snapshotStore.isEnabled()
+                ? snapshotStore.loadLatest(userRepository::save, this::apply)
+                : null;
+        if (snapshot != null) {
+            LOGGER.info("Loaded {} rooms and {} users from snapshot {} in {} ms", snapshot.roomCuts().size(),
+                    snapshot.userCount(), snapshot.path(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        if (writeAheadLog.isEnabled()) {
+            long afterLsn = snapshot != null ? snapshot.baseLsn() : 0;
+            Map<String, Long> roomCuts = snapshot != null ? snapshot.roomCuts() : Map.of();
+            long[] applied = {0};
+            long lastLsn = writeAheadLog.replay(afterLsn, (lsn, payload) -> {
+                try {
+                    GameEvent event = GameEventCodec.decode(payload);
+                    // Rooms were cut one by one after the base LSN, skip what a room's image already contains.
+                    // Users are dumped after the base LSN, re-applying their later saves in order is harmless.
+                    Long cutLsn = event.roomId() != null ? roomCuts.get(event.roomId()) : null;
+                    if (cutLsn == null || lsn > cutLsn) {
+                        apply(event);
+                        applied[0]++;
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Skipping log record {} that could not be applied", lsn, e);
+                }
+            });
+            LOGGER.info("Applied {} log records after LSN {} up to LSN {}", applied[0], afterLsn, lastLsn);
+        }
+        restoreServices();
+        if (writeAheadLog.isEnabled()) {
+            writeAheadLog.start();
+        }
+        LOGGER.info("Recovered {} rooms in {} ms", roomRepository.findAll().size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Apply one event to the repositories. Events of different rooms may be applied concurrently.
+     * @param event The event
+     */
+    public void apply(GameEvent event) {
+        if (event instanceof GameEvent.RoomSaved saved) {
+            Room room = roomRepository.findById(saved.roomId());
+            if (room == null) {
+                room = new Room();
+                room.setRoomId(saved.roomId());
+            }
+            room.setPassword(saved.password());
+            room.setCreatorEmail(saved.creatorEmail());
+            room.setCreationTime(saved.creationTime());
+            room.setExpirationTime(saved.expirationTime());
+            room.setStatus(saved.status());
+            room.setHintsEnabled(saved.hintsEnabled());
+            room.setPlayerEmails(new CopyOnWriteArrayList<>(saved.playerEmails()));
+            roomRepository.save(room);
+        } else if (event instanceof GameEvent.RoomDeleted deleted) {
+            roomRepository.deleteById(deleted.roomId());
+            winConfirmations.remove(deleted.roomId());
+        } else if (event instanceof GameEvent.GameStarted started) {
+            Room room = roomRepository.findById(started.roomId());
+            if (room == null) {
+                return;
+            }
+            Game game = new Game(started.gameId());
+            game.initialize(started.roomId(), started.playersBySeat(), started.dealerEmail());
+            game.dealFrom(new Wall(started.wall()));
+            game.setStartTime(started.startTime());
+            room.setCurrentGame(game);
+            room.setStatus(Room.RoomStatus.PLAYING);
+            roomRepository.save(room);
+            winConfirmations.remove(started.roomId());
+        } else if (event instanceof GameEvent.ActionRecorded recorded) {
+            Room room = roomRepository.findById(recorded.roomId());
+            Game game = currentGame(room, recorded.gameId());
+            if (game == null) {
+                return;
+            }
+            if (!game.replay(recorded.action())) {
+                LOGGER.warn("Replayed {} in room {} did not match the game state", recorded.action(), recorded.roomId());
+            }
+            trackConfirmations(room, game, recorded.action());
+        } else if (event instanceof GameEvent.UserSaved saved) {
+            userRepository.save(new User(saved.email(), saved.nickname()));
+        } else if (event instanceof GameEvent.GameEnded ended) {
+            Room room = roomRepository.findById(ended.roomId());
+            Game game = currentGame(room, ended.gameId());
+            if (game == null) {
+                return;
+            }
+            game.setEndTime(ended.endTime());
+            game.setStatus(Game.GameStatus.FINISHED);
+            if (ended.winnerEmail() != null) {
+                game.setWinnerEmail(ended.winnerEmail());
+            }
+            room.setStatus(Room.RoomStatus.WAITING);
+            roomRepository.save(room);
+            winConfirmations.remove(ended.roomId());
+        }
+    }
+
+    // Same bookkeeping as GameService.claimVictory and confirmVictory; a game end clears it
+    private void trackConfirmations(Room room, Game game, GameAction action) {
+        String roomId = room.getRoomId();
+        switch (action.getType()) {
+            case CLAIM_WIN -> {
+                if (game.getStatus() == Game.GameStatus.IN_PROGRESS) {
+                    Map<String, Boolean> confirmations = new HashMap<>();
+                    for (String playerEmail : room.getPlayerEmails()) {
+                        if (!playerEmail.equals(action.getPlayerEmail())) {
+                            confirmations.put(playerEmail, false);
+                        }
+                    }
+                    winConfirmations.put(roomId, confirmations);
+                }
+            }
+            case CONFIRM_WIN -> {
+                Map<String, Boolean> confirmations = winConfirmations.get(roomId);
+                if (confirmations != null) {
+                    confirmations.put(action.getPlayerEmail(), true);
+                }
+            }
+            case DENY_WIN -> winConfirmations.remove(roomId);
+            default -> {
+                // Tile moves do not affect claims
+            }
+        }
+    }
+
+    private static Game currentGame(Room room, long gameId) {
+        if (room == null || room.getCurrentGame() == null || room.getCurrentGame().getGameId() != gameId) {
+            return null;
+        }
+        return room.getCurrentGame();
+    }
+
+    // Hand the rebuilt rooms to the services that track them
+    private void restoreServices() {
+        for (Room room : roomRepository.findAll()) {
+            roomIdAllocator.reserve(room.getRoomId());
+            // Rooms that expired while the server was down are deleted at the next tick
+            roomCleanupTask.scheduleExpiry(room);
+            // The last finished game of each room stays replayable
+            Game game = room.getCurrentGame();
+            if (game != null && game.getStatus() == Game.GameStatus.FINISHED) {
+                gameRecordRepository.save(GameRecord.of(game));
+            }
+        }
+        winConfirmations.forEach(gameService::restoreWinConfirmations);
+        winConfirmations.clear();
+    }
+}
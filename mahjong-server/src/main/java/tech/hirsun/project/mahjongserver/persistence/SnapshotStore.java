@@ -0,0 +1,299 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.User;
+
+/**
+ * Snapshot files of all rooms and users.
+ * <p>
+ * Each room is stored as the events that rebuild it (room, game start, actions, game end), with the
+ * actions encoded per game instead of as separate events, together with the log sequence number (LSN) of its cut: every logged event of the room up to that LSN is part of the
+ * snapshot. Rooms are cut one at a time on their own executor, so the snapshot's base LSN, read before the
+ * first cut, is where the log has to be replayed from.
+ * <p>
+ * Files are named after their base LSN and creation time, written to a temporary file and renamed once
+ * synced, and end with a CRC32C of their content.
+ */
+@Component
+public class SnapshotStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int MAGIC = 0x4D4A5353;
+    private static final int FORMAT_VERSION = 1;
+
+    @Value("${persistence.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Value("${persistence.snapshot.dir:data/snapshot}")
+    private String directory;
+
+    @Value("${persistence.snapshot.retain:2}")
+    private int retain;
+
+    @Autowired
+    private WriteAheadLog writeAheadLog;
+
+    /**
+     * @return true if snapshots are configured to be written and loaded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cut a room: encode everything needed to rebuild it.
+     * Must run on the room's executor, so no command changes the room meanwhile.
+     * @param room The room
+     * @return The room's image
+     */
+    public RoomImage capture(Room room) {
+        // Read before the room, so an event at or below the cut is always reflected in the image
+        long cutLsn = writeAheadLog.getLastLsn();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeEvent(out, GameEventLog.roomSavedEvent(room));
+            Game game = room.getCurrentGame();
+            out.writeBoolean(game != null);
+            if (game != null) {
+                GameEvent.GameStarted started = GameEventLog.gameStartedEvent(game);
+                writeEvent(out, started);
+                // Actions are the bulk of a snapshot, they are written without their room and game
+                List<GameAction> actions = game.getActionsSince(0);
+                out.writeInt(actions.size());
+                for (GameAction action : actions) {
+                    GameEventCodec.writeAction(out, action, started.playersBySeat());
+                }
+                boolean ended = game.getStatus() == Game.GameStatus.FINISHED;
+                out.writeBoolean(ended);
+                if (ended) {
+                    writeEvent(out, GameEventLog.gameEndedEvent(game));
+                }
+                // Starting and ending the game changed the room status again
+                writeEvent(out, GameEventLog.roomSavedEvent(room));
+            }
+            return new RoomImage(room.getRoomId(), cutLsn, bytes.toByteArray());
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write a snapshot and delete the ones that are no longer retained
+     * @param baseLsn LSN read before the first room was cut
+     * @param users Users to store
+     * @param rooms Room images
+     * @return Base LSN of the oldest retained snapshot; log records up to it are no longer needed
+     */
+    public long write(long baseLsn, Collection<User> users, List<RoomImage> rooms) {
+        Path dir = Paths.get(directory);
+        String name = String.format("%020d-%020d%s", baseLsn, System.currentTimeMillis(), SNAPSHOT_SUFFIX);
+        Path path = dir.resolve(name);
+        Path temporary = dir.resolve(name + ".tmp");
+        try {
+            Files.createDirectories(dir);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32C crc = new CRC32C();
+                // Not closed here, closing would close the channel before it is synced
+                OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(stream, crc));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(baseLsn);
+                out.writeInt(users.size());
+                for (User user : users) {
+                    GameEventCodec.writeString(out, user.getEmail());
+                    GameEventCodec.writeString(out, user.getNickname());
+                }
+                out.writeInt(rooms.size());
+                for (RoomImage room : rooms) {
+                    GameEventCodec.writeString(out, room.roomId());
+                    out.writeLong(room.cutLsn());
+                    out.writeInt(room.data().length);
+                    out.write(room.data());
+                }
+                out.flush();
+                new DataOutputStream(stream).writeInt((int) crc.getValue());
+                stream.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + path, e);
+        }
+        List<Path> snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - Math.max(retain, 1); i++) {
+            try {
+                Files.deleteIfExists(snapshots.get(i));
+            } catch (IOException e) {
+                LOGGER.warn("Could not delete snapshot {}", snapshots.get(i), e);
+            }
+        }
+        List<Path> retained = listSnapshots();
+        return retained.isEmpty() ? baseLsn : snapshotLsn(retained.get(0));
+    }
+
+    /**
+     * Load the newest intact snapshot, falling back to older ones
+     * @param users Receives each stored user
+     * @param events Receives the events of each room in order; different rooms may be passed concurrently
+     * @return The loaded snapshot, or null if there is none
+     */
+    public Snapshot loadLatest(Consumer<User> users, Consumer<GameEvent> events) {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (!isIntact(buffer)) {
+                    LOGGER.warn("Snapshot {} is damaged, trying an older one", path);
+                    continue;
+                }
+                return read(path, buffer, users, events);
+            } catch (IOException e) {
+                LOGGER.warn("Could not read snapshot {}, trying an older one", path, e);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIntact(ByteBuffer buffer) {
+        int size = buffer.limit();
+        if (size < 20 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, size - 4));
+        return (int) crc.getValue() == buffer.getInt(size - 4);
+    }
+
+    // Only called on intact files, the content is trusted
+    private static Snapshot read(Path path, ByteBuffer buffer, Consumer<User> users, Consumer<GameEvent> events) {
+        buffer.position(8);
+        long baseLsn = buffer.getLong();
+        int userCount = buffer.getInt();
+        for (int i = 0; i < userCount; i++) {
+            String email = GameEventCodec.readString(buffer);
+            users.accept(new User(email, GameEventCodec.readString(buffer)));
+        }
+        int roomCount = buffer.getInt();
+        Map<String, Long> roomCuts = new HashMap<>(roomCount * 2);
+        List<ByteBuffer> roomData = new ArrayList<>(roomCount);
+        for (int i = 0; i < roomCount; i++) {
+            String roomId = GameEventCodec.readString(buffer);
+            roomCuts.put(roomId, buffer.getLong());
+            int length = buffer.getInt();
+            roomData.add(buffer.slice(buffer.position(), length));
+            buffer.position(buffer.position() + length);
+        }
+        // Rooms do not share state, so they are rebuilt in parallel
+        roomData.parallelStream().forEach(data -> readRoom(data, events));
+        return new Snapshot(path, baseLsn, userCount, roomCuts);
+    }
+
+    private static void writeEvent(DataOutputStream out, GameEvent event) throws IOException {
+        byte[] payload = GameEventCodec.encode(event);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    private static void readRoom(ByteBuffer buffer, Consumer<GameEvent> events) {
+        events.accept(readEvent(buffer));
+        if (buffer.get() != 0) {
+            GameEvent.GameStarted started = (GameEvent.GameStarted) readEvent(buffer);
+            events.accept(started);
+            int actionCount = buffer.getInt();
+            for (int i = 0; i < actionCount; i++) {
+                GameAction action = GameEventCodec.readAction(buffer, started.playersBySeat());
+                events.accept(new GameEvent.ActionRecorded(started.roomId(), started.gameId(), action));
+            }
+            if (buffer.get() != 0) {
+                events.accept(readEvent(buffer));
+            }
+            events.accept(readEvent(buffer));
+        }
+    }
+
+    private static GameEvent readEvent(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        GameEvent event = GameEventCodec.decode(buffer.slice(buffer.position(), length));
+        buffer.position(buffer.position() + length);
+        return event;
+    }
+
+    private List<Path> listSnapshots() {
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            // Zero padded names sort by base LSN, then by creation time
+            return new ArrayList<>(files.filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .sorted()
+                    .toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list snapshots in " + directory, e);
+        }
+    }
+
+    private static long snapshotLsn(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('-')));
+    }
+
+    /**
+     * A room cut for a snapshot
+     * @param roomId Room ID
+     * @param cutLsn Logged events of the room up to this LSN are part of the image
+     * @param data Encoded room, game and actions
+     */
+    public record RoomImage(String roomId, long cutLsn, byte[] data) {
+    }
+
+    /**
+     * A loaded snapshot
+     * @param path Snapshot file
+     * @param baseLsn The log has to be replayed after this LSN
+     * @param userCount Number of users loaded
+     * @param roomCuts Cut LSN of each room in the snapshot
+     */
+    public record Snapshot(Path path, long baseLsn, int userCount, Map<String, Long> roomCuts) {
+    }
+}
@@ -0,0 +1,444 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only log of records, split into segment files that are named after the
+ * log sequence number (LSN) of their first record and rotated at a configured size.
+ * <p>
+ * Records are framed as length, CRC32C and payload. Appending queues the record; a single
+ * writer thread writes everything that queued up while the previous batch was being synced,
+ * and syncs the whole batch with one fsync.
+ * <p>
+ * By default appends do not wait for the disk (asynchronous commit): a crash loses every
+ * record not yet synced, up to the queue capacity plus the batch being written, see
+ * {@link #getDurableLsn()}. With {@code persistence.wal.sync-commit} each append waits until
+ * its record is synced (group commit), so a crash loses no record whose append returned.
+ * <p>
+ * A failed write truncates the segment back to the end of the last synced batch and stops
+ * the log: later appends are rejected, so no record ever follows a torn one and replay
+ * only finds torn records at the end of a segment.
+ */
+@Component
+public class WriteAheadLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int HEADER_SIZE = 8;
+
+    // Queued by stop() after the last record
+    private static final Record STOP = new Record(-1, new byte[0]);
+
+    @Value("${persistence.wal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${persistence.wal.dir:data/wal}")
+    private String directory;
+
+    @Value("${persistence.wal.segment-size:67108864}")
+    private long segmentSize;
+
+    @Value("${persistence.wal.queue-capacity:65536}")
+    private int queueCapacity;
+
+    @Value("${persistence.wal.sync-commit:false}")
+    private boolean syncCommit;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<Record> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    // Guards LSN assignment, so records are queued in LSN order
+    private final Object appendLock = new Object();
+    private long lastLsn;
+    private volatile long durableLsn;
+    // Notified whenever durableLsn moves or the log fails
+    private final Object durableLock = new Object();
+    // Set by the writer when a write fails, appends are rejected from then on
+    private volatile boolean failed;
+
+    // Only touched by the writer thread once started
+    private FileChannel segment;
+    private long segmentBytes;
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(1 << 16);
+    private Timer syncTimer;
+    private DistributionSummary batchSummary;
+
+    /**
+     * @return true if the log is configured to be written
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true once the log accepts appends, and until it is stopped or a write fails
+     */
+    public boolean isRunning() {
+        return running && !failed;
+    }
+
+    /**
+     * @return true if a write failed and the log no longer accepts appends
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Read every intact record, in LSN order. Must be called before {@link #start()}.
+     * @param afterLsn Records up to this LSN are skipped
+     * @param handler Called with each record's LSN and payload; the payload is only valid during the call
+     * @return LSN of the last record in the log
+     */
+    public long replay(long afterLsn, RecordHandler handler) {
+        long lsn = 0;
+        for (Path path : listSegments()) {
+            long firstLsn = segmentLsn(path);
+            if (firstLsn <= lsn) {
+                LOGGER.warn("Segment {} overlaps the previous one, records from LSN {} are skipped", path, firstLsn);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                long segmentLsn = firstLsn - 1;
+                CRC32C crc = new CRC32C();
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (length <= 0 || length > buffer.remaining()) {
+                        LOGGER.warn("Torn record at the end of segment {} after LSN {}", path, segmentLsn);
+                        break;
+                    }
+                    ByteBuffer payload = buffer.slice(buffer.position(), length);
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        LOGGER.warn("Corrupt record in segment {} after LSN {}, rest of the segment ignored", path, segmentLsn);
+                        break;
+                    }
+                    buffer.position(buffer.position() + length);
+                    segmentLsn++;
+                    if (segmentLsn > afterLsn && segmentLsn > lsn) {
+                        handler.handle(segmentLsn, payload);
+                    }
+                }
+                lsn = Math.max(lsn, segmentLsn);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read segment " + path, e);
+            }
+        }
+        synchronized (appendLock) {
+            lastLsn = Math.max(lastLsn, Math.max(lsn, afterLsn));
+            durableLsn = lastLsn;
+        }
+        return lsn;
+    }
+
+    /**
+     * Open a new segment after the last replayed record and start the writer thread
+     */
+    public void start() {
+        synchronized (appendLock) {
+            if (running) {
+                return;
+            }
+            startWriter();
+        }
+        LOGGER.info("Write-ahead log started in {} at LSN {}", directory, lastLsn + 1);
+    }
+
+    private void startWriter() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        syncTimer = Timer.builder("mahjong.wal.sync")
+                .description("Time to write and fsync one batch of log records")
+                .register(meterRegistry);
+        batchSummary = DistributionSummary.builder("mahjong.wal.batch.records")
+                .description("Records written per fsync")
+                .register(meterRegistry);
+        openSegment(lastLsn + 1);
+        running = true;
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a record; blocks while the queue is full, and with sync commit until the record is synced
+     * @param payload Record payload
+     * @return The record's LSN, or -1 if the log is not running or, with sync commit, the record was not synced
+     */
+    public long append(byte[] payload) {
+        long lsn;
+        synchronized (appendLock) {
+            if (!running || failed) {
+                return -1;
+            }
+            lsn = ++lastLsn;
+            try {
+                queue.put(new Record(lsn, payload));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lastLsn--;
+                return -1;
+            }
+        }
+        // Waited for outside the lock, so records appended meanwhile join the same fsync
+        if (syncCommit && !awaitDurable(lsn)) {
+            return -1;
+        }
+        return lsn;
+    }
+
+    private boolean awaitDurable(long lsn) {
+        synchronized (durableLock) {
+            while (durableLsn < lsn && !failed) {
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return durableLsn >= lsn;
+        }
+    }
+
+    /**
+     * @return LSN of the last record assigned to an append
+     */
+    public long getLastLsn() {
+        synchronized (appendLock) {
+            return lastLsn;
+        }
+    }
+
+    /**
+     * @return LSN up to which records are synced to disk
+     */
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    /**
+     * @return Number of records waiting for the writer
+     */
+    public int getQueueDepth() {
+        BlockingQueue<Record> pending = queue;
+        return pending != null ? pending.size() : 0;
+    }
+
+    /**
+     * Delete the segments whose records all have an LSN of at most the given one
+     * @param lsn Records up to this LSN are no longer needed
+     * @return Number of segments deleted
+     */
+    public int deleteSegmentsUpTo(long lsn) {
+        List<Path> segments = listSegments();
+        int deleted = 0;
+        // A segment ends where the next one starts; the last segment is never deleted
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segmentLsn(segments.get(i + 1)) - 1 > lsn) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segments.get(i));
+                deleted++;
+            } catch (IOException e) {
+                LOGGER.warn("Could not delete segment {}", segments.get(i), e);
+            }
+        }
+        return deleted;
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread;
+        synchronized (appendLock) {
+            if (!running) {
+                return;
+            }
+            // No appends after this, the writer exits once it reaches the marker
+            running = false;
+            thread = writer;
+            try {
+                queue.put(STOP);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Write-ahead log stopped at LSN {}", durableLsn);
+    }
+
+    // Not interrupted on purpose: an interrupt during a write closes the file channel
+    private void writeLoop() {
+        List<Record> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch);
+            if (batch.get(batch.size() - 1) == STOP) {
+                batch.remove(batch.size() - 1);
+                stopping = true;
+            }
+            // After a failure the queue is still drained, so appends blocked on it return
+            if (!batch.isEmpty() && !failed) {
+                try {
+                    writeBatch(batch);
+                } catch (IOException | UncheckedIOException e) {
+                    LOGGER.error("Could not write {} log records up to LSN {}, the log no longer accepts appends",
+                            batch.size(), batch.get(batch.size() - 1).lsn(), e);
+                    fail();
+                }
+            }
+            batch.clear();
+        }
+        closeSegment();
+    }
+
+    private void writeBatch(List<Record> batch) throws IOException {
+        long start = System.nanoTime();
+        int size = 0;
+        for (Record record : batch) {
+            size += HEADER_SIZE + record.payload().length;
+        }
+        if (batchBuffer.capacity() < size) {
+            batchBuffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+        }
+        batchBuffer.clear();
+        CRC32C crc = new CRC32C();
+        for (Record record : batch) {
+            crc.reset();
+            crc.update(record.payload());
+            batchBuffer.putInt(record.payload().length);
+            batchBuffer.putInt((int) crc.getValue());
+            batchBuffer.put(record.payload());
+        }
+        batchBuffer.flip();
+        while (batchBuffer.hasRemaining()) {
+            segment.write(batchBuffer);
+        }
+        segment.force(false);
+        segmentBytes += size;
+        long last = batch.get(batch.size() - 1).lsn();
+        synchronized (durableLock) {
+            durableLsn = last;
+            durableLock.notifyAll();
+        }
+        syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSummary.record(batch.size());
+        if (segmentBytes >= segmentSize) {
+            closeSegment();
+            openSegment(last + 1);
+        }
+    }
+
+    // Cut off whatever part of the failed batch reached the segment, nothing is written after it
+    private void fail() {
+        failed = true;
+        try {
+            if (segment != null && segment.isOpen()) {
+                segment.truncate(segmentBytes);
+                segment.force(false);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not truncate the log segment back to {} bytes", segmentBytes, e);
+        }
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+    }
+
+    private void openSegment(long firstLsn) {
+        try {
+            Path dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            Path path = dir.resolve(String.format("%020d%s", firstLsn, SEGMENT_SUFFIX));
+            segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            segmentBytes = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open log segment in " + directory, e);
+        }
+    }
+
+    private void closeSegment() {
+        try {
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not close log segment", e);
+        }
+    }
+
+    private List<Path> listSegments() {
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            // Zero padded names sort in LSN order
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list log segments in " + directory, e);
+        }
+    }
+
+    private static long segmentLsn(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Receives replayed records
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(long lsn, ByteBuffer payload);
+    }
+
+    private record Record(long lsn, byte[] payload) {
+    }
+}
@@ -0,0 +1,134 @@
+package tech.hirsun.project.mahjongserver.replay;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.GameRecord;
+import tech.hirsun.project.mahjongserver.model.TileTable;
+import tech.hirsun.project.mahjongserver.model.Wall;
+
+/**
+ * Deterministic replay of a recorded game: the hands are dealt from the recorded wall exactly as
+ * the game dealt them, then the actions are applied in order.
+ * <p>
+ * Building a replay plays the game once and keeps a copy of the state every {@code checkpointInterval}
+ * actions, so the state after any action is found from the nearest checkpoint before it in at most
+ * {@code checkpointInterval - 1} steps. A replay is immutable once built and can be shared between threads.
+ */
+public class GameReplay {
+
+    private final GameRecord record;
+    private final int checkpointInterval;
+    private final Map<String, Integer> seats;
+    // checkpoints[i] is the state after i * checkpointInterval actions
+    private final ReplayState[] checkpoints;
+
+    /**
+     * Play a recorded game once and keep its checkpoints
+     * @param record The game
+     * @param checkpointInterval Actions between two checkpoints
+     */
+    public GameReplay(GameRecord record, int checkpointInterval) {
+        this.record = record;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+        this.seats = new HashMap<>();
+        List<String> players = record.playersBySeat();
+        for (int seat = 0; seat < players.size(); seat++) {
+            seats.put(players.get(seat), seat);
+        }
+
+        // Deal from a copy, Wall takes ownership of its array
+        TileTable tiles = new TileTable(players.size(), null);
+        tiles.dealFrom(new Wall(record.wall().clone()), players.size(), seats.getOrDefault(record.dealerEmail(), -1));
+        ReplayState state = new ReplayState(tiles);
+
+        List<GameAction> actions = record.actions();
+        this.checkpoints = new ReplayState[actions.size() / this.checkpointInterval + 1];
+        checkpoints[0] = state.copy();
+        for (int i = 0; i < actions.size(); i++) {
+            apply(state, actions.get(i));
+            if ((i + 1) % this.checkpointInterval == 0) {
+                checkpoints[(i + 1) / this.checkpointInterval] = state.copy();
+            }
+        }
+    }
+
+    public GameRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * @return Number of actions in the game
+     */
+    public int getActionCount() {
+        return record.actions().size();
+    }
+
+    /**
+     * Get the state after a number of actions
+     * @param actionCount Actions applied, 0 for the state right after the deal
+     * @return A new state that the caller may advance with {@link #advance}
+     * @throws IllegalArgumentException if the game has fewer actions
+     */
+    public ReplayState seek(int actionCount) {
+        if (actionCount < 0 || actionCount > getActionCount()) {
+            throw new IllegalArgumentException("Action " + actionCount + " is outside 0.." + getActionCount());
+        }
+        ReplayState state = checkpoints[actionCount / checkpointInterval].copy();
+        while (state.getActionCount() < actionCount) {
+            apply(state, record.actions().get(state.getActionCount()));
+        }
+        return state;
+    }
+
+    /**
+     * Apply the next action to a state obtained from {@link #seek}
+     * @param state The state
+     * @return false if the state was already at the end of the game
+     */
+    public boolean advance(ReplayState state) {
+        if (state.getActionCount() >= getActionCount()) {
+            return false;
+        }
+        apply(state, record.actions().get(state.getActionCount()));
+        return true;
+    }
+
+    private void apply(ReplayState state, GameAction action) {
+        state.apply(action, seats.getOrDefault(action.getPlayerEmail(), -1));
+    }
+
+    /**
+     * Build the wire view of a state: every player's tiles are shown
+     * @param state The state
+     * @return Frame data
+     */
+    public Map<String, Object> toFrame(ReplayState state) {
+        int action = state.getActionCount();
+        Map<String, Object> hands = new LinkedHashMap<>();
+        Map<String, Object> revealedTiles = new LinkedHashMap<>();
+        List<String> players = record.playersBySeat();
+        for (int seat = 0; seat < players.size(); seat++) {
+            hands.put(players.get(seat), state.getHand(seat));
+            revealedTiles.put(players.get(seat), state.getRevealedTiles(seat));
+        }
+        Map<String, Object> frame = new HashMap<>();
+        // No roomId: binary frames would seat players by the room's current game instead of this one
+        frame.put("gameId", record.gameId());
+        frame.put("playerEmails", players);
+        frame.put("action", action);
+        frame.put("actionCount", getActionCount());
+        frame.put("lastAction", action > 0 ? record.actions().get(action - 1) : null);
+        frame.put("hands", hands);
+        frame.put("revealedTiles", revealedTiles);
+        frame.put("discardPile", state.getDiscardPile());
+        frame.put("remainingTiles", state.getRemainingTiles());
+        if (action == getActionCount()) {
+            frame.put("winnerEmail", record.winnerEmail());
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,63 @@
+package tech.hirsun.project.mahjongserver.replay;
+
+import java.util.List;
+
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.Tile;
+import tech.hirsun.project.mahjongserver.model.TileTable;
+
+/**
+ * Where every tile of a replayed game is after some of its actions.
+ * Tiles move by the same {@link TileTable} rules as in {@link tech.hirsun.project.mahjongserver.model.Game},
+ * without its move journal and action log, so a state is a few hundred bytes and cheap to copy.
+ */
+public class ReplayState {
+    private final TileTable tiles;
+    private int actionCount;
+
+    ReplayState(TileTable tiles) {
+        this.tiles = tiles;
+    }
+
+    private ReplayState(ReplayState other) {
+        this.tiles = other.tiles.copy();
+        this.actionCount = other.actionCount;
+    }
+
+    ReplayState copy() {
+        return new ReplayState(this);
+    }
+
+    /**
+     * Apply the next action of the game
+     * @param action The action
+     * @param seat Seat of the acting player, or -1 if the player had no seat
+     */
+    void apply(GameAction action, int seat) {
+        actionCount++;
+        tiles.apply(action, seat);
+    }
+
+    /**
+     * @return Number of actions applied since the deal
+     */
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public List<Tile> getHand(int seat) {
+        return tiles.getHand(seat).toTiles();
+    }
+
+    public List<Tile> getRevealedTiles(int seat) {
+        return tiles.getRevealed(seat).toTiles();
+    }
+
+    public List<Tile> getDiscardPile() {
+        return tiles.getDiscardPile();
+    }
+
+    public int getRemainingTiles() {
+        return tiles.getRemainingTiles();
+    }
+}
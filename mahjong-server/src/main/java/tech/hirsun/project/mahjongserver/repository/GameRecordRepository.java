@@ -0,0 +1,75 @@
+package tech.hirsun.project.mahjongserver.repository;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import tech.hirsun.project.mahjongserver.model.GameRecord;
+
+/**
+ * Records of the most recently finished games, oldest dropped first
+ */
+@Repository
+public class GameRecordRepository {
+
+    @Value("${replay.records.max:10000}")
+    private int maxRecords;
+
+    // Store records by game ID in the order they were saved
+    private final LinkedHashMap<Long, GameRecord> recordMap = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GameRecord> eldest) {
+            if (size() <= maxRecords) {
+                return false;
+            }
+            lastGameByRoom.remove(eldest.getValue().roomId(), eldest.getKey());
+            return true;
+        }
+    };
+
+    // ID of the last finished game of each room
+    private final Map<String, Long> lastGameByRoom = new HashMap<>();
+
+    /**
+     * Save the record of a finished game
+     * @param record The record to save
+     * @return The saved record
+     */
+    public synchronized GameRecord save(GameRecord record) {
+        if (record != null) {
+            // Put last, eviction removes the room entry of the evicted game
+            lastGameByRoom.put(record.roomId(), record.gameId());
+            recordMap.put(record.gameId(), record);
+        }
+        return record;
+    }
+
+    /**
+     * Find a record by game ID
+     * @param gameId The game ID
+     * @return The record if found, null otherwise
+     */
+    public synchronized GameRecord findById(long gameId) {
+        return recordMap.get(gameId);
+    }
+
+    /**
+     * Find the record of the last finished game of a room
+     * @param roomId The room ID
+     * @return The record if found, null otherwise
+     */
+    public synchronized GameRecord findLastByRoomId(String roomId) {
+        Long gameId = lastGameByRoom.get(roomId);
+        return gameId != null ? recordMap.get(gameId) : null;
+    }
+
+    /**
+     * @return Number of stored records
+     */
+    public synchronized int count() {
+        return recordMap.size();
+    }
+}
@@ -1,28 +1,69 @@
 package tech.hirsun.project.mahjongserver.repository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.RoomView;
 
 @Repository
 public class RoomRepository {
     // Store rooms by room ID
     private final Map<String, Room> roomMap = new ConcurrentHashMap<>();
 
+    // Every room lives this long after creation, so expiry follows creation order
+    @Value("${room.expiration:86400000}")
+    private long roomExpiration = Room.DEFAULT_LIFETIME.toMillis();
+
+    // View of each room as of its last save, for threads other than the room's executor.
+    // Rooms are mutated in place, the view also tells which index keys are stale on the next save.
+    private final Map<String, RoomView> views = new ConcurrentHashMap<>();
+
+    // Secondary indexes over the views, ordered by creation time then room ID
+    private final ConcurrentNavigableMap<IndexKey, RoomView> byCreationTime = new ConcurrentSkipListMap<>();
+    private final Map<Room.RoomStatus, ConcurrentNavigableMap<IndexKey, RoomView>> byStatus = new EnumMap<>(Room.RoomStatus.class);
+    private final ConcurrentNavigableMap<IndexKey, RoomView> joinable = new ConcurrentSkipListMap<>();
+
+    // Sizes of the status indexes, a skip list's size() walks the whole list
+    private final Map<Room.RoomStatus, AtomicInteger> statusCounts = new EnumMap<>(Room.RoomStatus.class);
+
+    public RoomRepository() {
+        for (Room.RoomStatus status : Room.RoomStatus.values()) {
+            byStatus.put(status, new ConcurrentSkipListMap<>());
+            statusCounts.put(status, new AtomicInteger());
+        }
+    }
+
     /**
-     * Save or update a room
+     * Save or update a room and publish its view; must be called by the thread that owns the room
      * @param room The room to save
      * @return The saved room
      */
     public Room save(Room room) {
         if (room != null && room.getRoomId() != null) {
-            roomMap.put(room.getRoomId(), room);
+            // The map's per-key lock orders concurrent saves and deletes of the same room
+            roomMap.compute(room.getRoomId(), (roomId, previous) -> {
+                RoomView view = views.get(roomId);
+                // Most saves follow a game move and leave the viewed fields unchanged
+                if (previous != room || view == null || !view.matches(room)) {
+                    unindex(roomId);
+                    index(RoomView.of(room));
+                }
+                return room;
+            });
         }
         return room;
     }
@@ -36,6 +77,15 @@ public class RoomRepository {
         return roomMap.get(roomId);
     }
 
+    /**
+     * Find the view of a room, safe to read from any thread
+     * @param roomId The room ID to search for
+     * @return The room's view as of its last save if found, null otherwise
+     */
+    public RoomView findViewById(String roomId) {
+        return views.get(roomId);
+    }
+
     /**
      * Check if a room exists
      * @param roomId The room ID to check
@@ -54,35 +104,56 @@ public class RoomRepository {
     }
 
     /**
-     * Find all active rooms (not expired)
-     * @return Collection of active rooms
+     * Find all expired rooms
+     * @return Collection of expired rooms
      */
-    public Collection<Room> findAllActive() {
-        return roomMap.values().stream()
-                .filter(room -> !room.isExpired())
-                .collect(Collectors.toList());
+    public Collection<RoomView> findAllExpired() {
+        return new ArrayList<>(byCreationTime.headMap(expiryCutoff()).values());
     }
 
     /**
-     * Find all expired rooms
-     * @return Collection of expired rooms
+     * Count rooms with the given status, including expired rooms the cleanup has not deleted yet
+     * @param status Room status
+     * @return Number of rooms with that status
      */
-    public Collection<Room> findAllExpired() {
-        return roomMap.values().stream()
-                .filter(Room::isExpired)
-                .collect(Collectors.toList());
+    public int countByStatus(Room.RoomStatus status) {
+        return statusCounts.get(status).get();
     }
 
     /**
-     * Find all rooms that will expire within the given number of hours
-     * @param hours Number of hours
-     * @return Collection of rooms expiring soon
+     * Find a page of active rooms, newest first, reading only the rooms on the page
+     * @param status Only rooms with this status, or null for any status
+     * @param joinableOnly Only rooms that can still be joined
+     * @param afterCreationTime Creation time of the last room of the previous page, or null for the first page
+     * @param afterRoomId Room ID of the last room of the previous page, or null for the first page
+     * @param limit Maximum number of rooms to return
+     * @return Views of the rooms created before the cursor, newest first
      */
-    public Collection<Room> findAllExpiringWithin(int hours) {
-        LocalDateTime cutoff = LocalDateTime.now().plusHours(hours);
-        return roomMap.values().stream()
-                .filter(room -> room.getCreationTime().plusHours(24).isBefore(cutoff))
-                .collect(Collectors.toList());
+    public List<RoomView> findActivePage(Room.RoomStatus status, boolean joinableOnly,
+                                     LocalDateTime afterCreationTime, String afterRoomId, int limit) {
+        ConcurrentNavigableMap<IndexKey, RoomView> index;
+        if (joinableOnly) {
+            // Only waiting rooms are joinable
+            if (status != null && status != Room.RoomStatus.WAITING) {
+                return List.of();
+            }
+            index = joinable;
+        } else {
+            index = status != null ? byStatus.get(status) : byCreationTime;
+        }
+
+        NavigableMap<IndexKey, RoomView> range = afterCreationTime != null && afterRoomId != null
+                ? index.subMap(expiryCutoff(), true, new IndexKey(afterCreationTime, afterRoomId), false)
+                : index.tailMap(expiryCutoff(), true);
+
+        List<RoomView> page = new ArrayList<>();
+        for (RoomView room : range.descendingMap().values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(room);
+        }
+        return page;
     }
 
     /**
@@ -90,23 +161,59 @@ public class RoomRepository {
      * @param roomId The ID of the room to delete
      */
     public void deleteById(String roomId) {
-        roomMap.remove(roomId);
-    }
-
-    /**
-     * Delete all expired rooms
-     * @return The number of rooms deleted
-     */
-    public int deleteAllExpired() {
-        Collection<Room> expiredRooms = findAllExpired();
-        expiredRooms.forEach(room -> roomMap.remove(room.getRoomId()));
-        return expiredRooms.size();
+        roomMap.computeIfPresent(roomId, (id, room) -> {
+            unindex(id);
+            return null;
+        });
     }
 
     /**
      * Clear all rooms
      */
     public void clear() {
-        roomMap.clear();
+        roomMap.keySet().forEach(this::deleteById);
+    }
+
+    private void index(RoomView view) {
+        IndexKey key = new IndexKey(view.creationTime(), view.roomId());
+        views.put(view.roomId(), view);
+        byCreationTime.put(key, view);
+        if (view.status() != null && byStatus.get(view.status()).put(key, view) == null) {
+            statusCounts.get(view.status()).incrementAndGet();
+        }
+        // Expiry is left to the range queries, it changes with the clock rather than on save
+        if (view.isJoinable()) {
+            joinable.put(key, view);
+        }
+    }
+
+    private void unindex(String roomId) {
+        RoomView view = views.remove(roomId);
+        if (view == null) {
+            return;
+        }
+        IndexKey key = new IndexKey(view.creationTime(), view.roomId());
+        byCreationTime.remove(key);
+        if (view.status() != null && byStatus.get(view.status()).remove(key) != null) {
+            statusCounts.get(view.status()).decrementAndGet();
+        }
+        if (view.isJoinable()) {
+            joinable.remove(key);
+        }
+    }
+
+    // Lowest key of a room that has not expired yet
+    private IndexKey expiryCutoff() {
+        return new IndexKey(LocalDateTime.now().minusNanos(roomExpiration * 1_000_000), "");
+    }
+
+    private record IndexKey(LocalDateTime creationTime, String roomId) implements Comparable<IndexKey> {
+        private static final Comparator<IndexKey> ORDER = Comparator.comparing(IndexKey::creationTime)
+                .thenComparing(IndexKey::roomId);
+
+        @Override
+        public int compareTo(IndexKey other) {
+            return ORDER.compare(this, other);
+        }
     }
 } 
\ No newline at end of file
@@ -3,11 +3,15 @@ package tech.hirsun.project.mahjongserver.repository;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.socket.WebSocketSession;
 
 @Repository
 public class SessionRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionRepository.class);
     // Store sessions by session ID
     private final Map<String, WebSocketSession> sessionMap = new ConcurrentHashMap<>();
     
@@ -26,11 +30,11 @@ public class SessionRepository {
         if (session != null && userEmail != null) {
             // 检查是否已经有相同的会话ID
             if (sessionMap.containsKey(session.getId())) {
-                System.out.println("Session already registered with ID: " + session.getId() + " for user: " + sessionUserMap.get(session.getId()));
+                LOGGER.debug("Session already registered with ID: {} for user: {}", session.getId(), sessionUserMap.get(session.getId()));
                 // 如果已注册的会话属于不同用户，则先清理旧数据
                 String existingUser = sessionUserMap.get(session.getId());
                 if (!userEmail.equals(existingUser)) {
-                    System.out.println("Replacing existing session mapping from user " + existingUser + " to " + userEmail);
+                    LOGGER.debug("Replacing existing session mapping from user {} to {}", existingUser, userEmail);
                     if (existingUser != null) {
                         userSessionMap.remove(existingUser);
                     }
@@ -45,16 +49,16 @@ public class SessionRepository {
             // 检查该用户是否已有其他会话
             String oldSessionId = userSessionMap.get(userEmail);
             if (oldSessionId != null) {
-                System.out.println("User already has a session, replacing old session: " + oldSessionId + " with new session: " + session.getId());
+                LOGGER.info("User already has a session, replacing old session: {} with new session: {}", oldSessionId, session.getId());
                 
                 // 尝试关闭旧会话
                 WebSocketSession oldSession = sessionMap.get(oldSessionId);
                 if (oldSession != null && oldSession.isOpen()) {
                     try {
-                        System.out.println("Closing old session: " + oldSessionId);
+                        LOGGER.debug("Closing old session: {}", oldSessionId);
                         oldSession.close();
                     } catch (Exception e) {
-                        System.err.println("Error closing old session: " + e.getMessage());
+                        LOGGER.warn("Error closing old session: {}", e.getMessage());
                     }
                 }
                 
@@ -64,12 +68,12 @@ public class SessionRepository {
             }
             
             // 注册新会话
-            System.out.println("Registering new session: " + session.getId() + " for user: " + userEmail);
+            LOGGER.info("Registering new session: {} for user: {}", session.getId(), userEmail);
             sessionMap.put(session.getId(), session);
             userSessionMap.put(userEmail, session.getId());
             sessionUserMap.put(session.getId(), userEmail);
         } else {
-            System.err.println("Cannot register null session or user email");
+            LOGGER.warn("Cannot register null session or user email");
         }
     }
 
@@ -116,6 +120,14 @@ public class SessionRepository {
         return new ConcurrentHashMap<>(sessionMap);
     }
 
+    /**
+     * Get the number of open sessions
+     * @return Session count
+     */
+    public int getSessionCount() {
+        return sessionMap.size();
+    }
+
     /**
      * Check if a user is connected
      * @param userEmail The user's email
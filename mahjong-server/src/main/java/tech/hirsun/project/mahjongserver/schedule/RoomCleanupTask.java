@@ -1,21 +1,29 @@
 package tech.hirsun.project.mahjongserver.schedule;
 
-import java.util.Collection;
-import java.util.logging.Logger;
+import java.time.ZoneId;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.RoomView;
+import tech.hirsun.project.mahjongserver.persistence.GameEventLog;
 import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+import tech.hirsun.project.mahjongserver.service.GameService;
+import tech.hirsun.project.mahjongserver.service.RoomCommandExecutor;
+import tech.hirsun.project.mahjongserver.service.RoomIdAllocator;
 import tech.hirsun.project.mahjongserver.service.WebSocketService;
 
 @Component
 public class RoomCleanupTask {
 
-    private static final Logger LOGGER = Logger.getLogger(RoomCleanupTask.class.getName());
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomCleanupTask.class);
 
     @Autowired
     private RoomRepository roomRepository;
@@ -23,37 +31,116 @@ public class RoomCleanupTask {
     @Autowired
     private WebSocketService webSocketService;
 
-    @Value("${room.expiration}")
-    private long roomExpiration;
+    @Autowired
+    private RoomCommandExecutor roomCommandExecutor;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private RoomIdAllocator roomIdAllocator;
+
+    @Autowired
+    private GameEventLog gameEventLog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${room.expiration.warning:3600000}")
+    private long expirationWarning;
+
+    @Value("${room.expiry.tick:1000}")
+    private long expiryTick;
+
+    // Each room is scheduled twice: once for the warning and once for the expiry itself
+    private TimingWheel<ExpiryEvent> expiryWheel;
+
+    @PostConstruct
+    public void init() {
+        // 4096 one-second slots is about an hour per turn, a day-long room waits out 21 turns
+        expiryWheel = new TimingWheel<>(expiryTick, 4096, System.currentTimeMillis());
+    }
 
     /**
-     * Scheduled task to clean up expired rooms
+     * Schedule the expiry warning and the expiry of a room, each fires exactly once
+     * @param room Newly created room
+     */
+    public void scheduleExpiry(Room room) {
+        long expiresAt = room.getExpirationTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        expiryWheel.schedule(new ExpiryEvent(room, false), expiresAt - expirationWarning);
+        expiryWheel.schedule(new ExpiryEvent(room, true), expiresAt);
+    }
+
+    /**
+     * Fire the warnings and expiries that are due
+     */
+    @Scheduled(fixedRateString = "${room.expiry.tick:1000}")
+    public void advanceExpiryWheel() {
+        expiryWheel.advance(System.currentTimeMillis(), event -> {
+            String roomId = event.room().getRoomId();
+            boolean queued;
+            if (event.expire()) {
+                queued = expire(roomId, event.room());
+            } else {
+                queued = roomCommandExecutor.execute(roomId, () -> {
+                    // Deleted and recreated room IDs must not fire for the new room
+                    if (roomRepository.findById(roomId) == event.room()) {
+                        LOGGER.info("Room {} will expire soon", roomId);
+                        webSocketService.sendSystemNotification(roomId, "This room will expire soon. Please finish your game.");
+                    }
+                });
+            }
+            if (!queued && roomRepository.findById(roomId) == event.room()) {
+                // The sweep picks up an expiry that did not fit in the room's mailbox, a warning is dropped
+                LOGGER.warn("Room {} is too busy, its {} was not queued", roomId, event.expire() ? "expiry" : "expiry warning");
+            }
+        });
+    }
+
+    /**
+     * Scheduled task to clean up expired rooms that were never scheduled on the expiry wheel,
+     * or whose expiry could not be queued
      * Runs at the interval specified in application.properties
      */
     @Scheduled(fixedRateString = "${room.cleanup.interval}")
     public void cleanupExpiredRooms() {
-        LOGGER.info("Starting room cleanup task");
-        
-        // Find all expired rooms
-        Collection<Room> expiredRooms = roomRepository.findAllExpired();
-        
-        // Notify users in expired rooms
-        for (Room room : expiredRooms) {
-            LOGGER.info("Room " + room.getRoomId() + " has expired and will be deleted");
-            webSocketService.sendSystemNotification(room.getRoomId(), "This room has expired and will be deleted.");
+        int queued = 0;
+        for (RoomView room : roomRepository.findAllExpired()) {
+            if (expire(room.roomId(), null)) {
+                queued++;
+            }
         }
-        
-        // Delete expired rooms
-        int deletedCount = roomRepository.deleteAllExpired();
-        LOGGER.info("Deleted " + deletedCount + " expired rooms");
-        
-        // Find rooms that will expire soon (within 1 hour)
-        Collection<Room> expiringRooms = roomRepository.findAllExpiringWithin(1);
-        
-        // Notify users in rooms that will expire soon
-        for (Room room : expiringRooms) {
-            LOGGER.info("Room " + room.getRoomId() + " will expire soon");
-            webSocketService.sendSystemNotification(room.getRoomId(), "This room will expire soon. Please finish your game.");
+        if (queued > 0) {
+            LOGGER.info("Queued deletion of {} expired rooms", queued);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Queue the deletion of a room on its executor, so no command of the room runs after it
+     * and no snapshot is cut while it is deleted
+     * @param roomId Room ID
+     * @param scheduled The room the expiry was scheduled for, or null to delete the room if it has expired
+     * @return false if the room is gone or its mailbox is full
+     */
+    private boolean expire(String roomId, Room scheduled) {
+        return roomCommandExecutor.execute(roomId, () -> {
+            Room room = roomRepository.findById(roomId);
+            // Deleted and recreated room IDs must not fire for the new room
+            if (room == null || (scheduled != null ? room != scheduled : !room.isExpired())) {
+                return;
+            }
+            LOGGER.info("Room {} has expired and will be deleted", roomId);
+            webSocketService.sendSystemNotification(roomId, "This room has expired and will be deleted.");
+            roomRepository.deleteById(roomId);
+            gameEventLog.roomDeleted(roomId);
+            gameService.evictGameState(roomId);
+            roomIdAllocator.release(roomId);
+            // Commands queued behind this one still run, and find no room
+            roomCommandExecutor.retireRoom(roomId);
+            meterRegistry.counter("mahjong.rooms.cleanup.deleted").increment();
+        });
+    }
+
+    private record ExpiryEvent(Room room, boolean expire) {
+    }
+}
@@ -0,0 +1,153 @@
+package tech.hirsun.project.mahjongserver.schedule;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.User;
+import tech.hirsun.project.mahjongserver.persistence.SnapshotStore;
+import tech.hirsun.project.mahjongserver.persistence.WriteAheadLog;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+import tech.hirsun.project.mahjongserver.repository.UserRepository;
+import tech.hirsun.project.mahjongserver.service.RoomCommandExecutor;
+
+/**
+ * Writes snapshots of all rooms and users periodically and on shutdown, then drops the
+ * write-ahead log segments that the retained snapshots cover.
+ * Rooms keep running while they are cut: each room is cut by a command on its own executor.
+ */
+@Component
+public class SnapshotTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotTask.class);
+
+    @Autowired
+    private SnapshotStore snapshotStore;
+
+    @Autowired
+    private WriteAheadLog writeAheadLog;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomCommandExecutor roomCommandExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${persistence.snapshot.cut-timeout:10000}")
+    private long cutTimeout;
+
+    private Timer snapshotTimer;
+
+    @PostConstruct
+    public void init() {
+        snapshotTimer = Timer.builder("mahjong.snapshot")
+                .description("Time to cut all rooms and write a snapshot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Write a snapshot every interval
+     */
+    @Scheduled(fixedDelayString = "${persistence.snapshot.interval:300000}",
+            initialDelayString = "${persistence.snapshot.interval:300000}")
+    public void takeSnapshot() {
+        if (snapshotStore.isEnabled()) {
+            snapshot();
+        }
+    }
+
+    // A snapshot right before shutdown leaves almost no log to replay on the next start
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        if (snapshotStore.isEnabled()) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Cut every room and write a snapshot
+     * @return true if the snapshot was written
+     */
+    public synchronized boolean snapshot() {
+        long start = System.nanoTime();
+        // Every room is cut at or after this LSN, the log is replayed from here
+        long baseLsn = writeAheadLog.getLastLsn();
+        List<CompletableFuture<SnapshotStore.RoomImage>> cuts = new ArrayList<>();
+        for (Room room : roomRepository.findAll()) {
+            CompletableFuture<SnapshotStore.RoomImage> cut = new CompletableFuture<>();
+            boolean queued = roomCommandExecutor.execute(room.getRoomId(), () -> {
+                try {
+                    // Rooms deleted since the listing are left out
+                    cut.complete(roomRepository.findById(room.getRoomId()) == room ? snapshotStore.capture(room) : null);
+                } catch (RuntimeException e) {
+                    cut.completeExceptionally(e);
+                }
+            });
+            if (!queued && !roomRepository.existsById(room.getRoomId())) {
+                // Deleted since the listing
+                continue;
+            }
+            if (!queued) {
+                LOGGER.warn("Skipping snapshot, room {} is too busy to be cut", room.getRoomId());
+                return false;
+            }
+            cuts.add(cut);
+        }
+
+        List<SnapshotStore.RoomImage> rooms = new ArrayList<>(cuts.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cutTimeout);
+        try {
+            for (CompletableFuture<SnapshotStore.RoomImage> cut : cuts) {
+                SnapshotStore.RoomImage image = cut.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (image != null) {
+                    rooms.add(image);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.warn("Skipping snapshot, rooms could not be cut: {}", e.toString());
+            return false;
+        }
+
+        // Users are not part of any room, copies are consistent enough
+        List<User> users = userRepository.findAll().stream()
+                .map(user -> new User(user.getEmail(), user.getNickname()))
+                .toList();
+        try {
+            long retainedLsn = snapshotStore.write(baseLsn, users, rooms);
+            int deleted = writeAheadLog.deleteSegmentsUpTo(retainedLsn);
+            long elapsed = System.nanoTime() - start;
+            snapshotTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            LOGGER.info("Snapshot of {} rooms and {} users at LSN {} written in {} ms, {} log segments deleted",
+                    rooms.size(), users.size(), baseLsn, TimeUnit.NANOSECONDS.toMillis(elapsed), deleted);
+            return true;
+        } catch (UncheckedIOException e) {
+            LOGGER.error("Could not write snapshot", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package tech.hirsun.project.mahjongserver.schedule;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: scheduling is O(1) from any thread, and each tick only visits
+ * the deadlines hashed to one slot. Deadlines further away than one turn of the wheel
+ * wait out the remaining turns in their slot.
+ * Advanced by a single thread, which runs the handlers.
+ * @param <T> Type of the scheduled items
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final ArrayDeque<Timeout<T>>[] slots;
+    private final int mask;
+    // Scheduled items are handed over to the advancing thread at its next tick
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private long currentTick;
+
+    /**
+     * @param tickMillis Resolution of the wheel in milliseconds
+     * @param slotCount Number of slots, rounded up to a power of two
+     * @param startMillis Time of tick zero
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int slotCount, long startMillis) {
+        if (tickMillis <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("Tick and slot count must be positive");
+        }
+        int size = Integer.highestOneBit(slotCount);
+        if (size < slotCount) {
+            size <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.slots = new ArrayDeque[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedule an item, deadlines in the past fire at the next tick
+     * @param item Item handed to the handler when the deadline passes
+     * @param deadlineMillis Deadline in epoch milliseconds
+     */
+    public void schedule(T item, long deadlineMillis) {
+        size.incrementAndGet();
+        pending.add(new Timeout<>(item, deadlineMillis));
+    }
+
+    /**
+     * Fire every item whose deadline has passed, in tick order
+     * @param nowMillis Current time in epoch milliseconds
+     * @param handler Called with each expired item
+     * @return Number of items fired
+     */
+    public int advance(long nowMillis, Consumer<T> handler) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        int fired = 0;
+        while (currentTick <= targetTick) {
+            transferPending();
+            ArrayDeque<Timeout<T>> slot = slots[(int) (currentTick & mask)];
+            if (slot != null) {
+                for (Iterator<Timeout<T>> it = slot.iterator(); it.hasNext(); ) {
+                    Timeout<T> timeout = it.next();
+                    if (timeout.remainingRounds > 0) {
+                        timeout.remainingRounds--;
+                        continue;
+                    }
+                    it.remove();
+                    size.decrementAndGet();
+                    handler.accept(timeout.item);
+                    fired++;
+                }
+            }
+            currentTick++;
+        }
+        return fired;
+    }
+
+    /**
+     * @return Number of scheduled items that have not fired yet
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            // Round the deadline up to a tick so nothing fires early
+            long deadlineTick = Math.max(Math.floorDiv(timeout.deadlineMillis - startMillis + tickMillis - 1, tickMillis), currentTick);
+            timeout.remainingRounds = (deadlineTick - currentTick) / slots.length;
+            int index = (int) (deadlineTick & mask);
+            if (slots[index] == null) {
+                slots[index] = new ArrayDeque<>();
+            }
+            slots[index].add(timeout);
+        }
+    }
+
+    private static final class Timeout<T> {
+        private final T item;
+        private final long deadlineMillis;
+        private long remainingRounds;
+
+        private Timeout(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import tech.hirsun.project.mahjongserver.model.User;
+import tech.hirsun.project.mahjongserver.persistence.GameEventLog;
 import tech.hirsun.project.mahjongserver.repository.UserRepository;
 import tech.hirsun.project.mahjongserver.util.JwtUtil;
 
@@ -16,6 +17,9 @@ public class AuthService {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private GameEventLog gameEventLog;
+
     /**
      * Login a user with email only (no password required)
      * @param email User's email
@@ -27,6 +31,7 @@ public class AuthService {
         if (user == null) {
             user = new User(email);
             userRepository.save(user);
+            gameEventLog.userSaved(user);
         }
         
         // Generate JWT token
@@ -56,23 +61,19 @@ public class AuthService {
     }
 
     /**
-     * Get user from token
+     * Get user from token, verifying the token's signature and expiry
      * @param token JWT token
-     * @return User object if valid, null if invalid
+     * @return User object if valid, null if invalid; users not saved yet get default values and are not saved
      */
     public User getUserFromToken(String token) {
         try {
             String email = jwtUtil.extractEmail(token);
             if (email != null) {
                 User user = userRepository.findByEmail(email);
-                if (user == null) {
-                    user = new User(email);
-                    userRepository.save(user);
-                }
-                return user;
+                return user != null ? user : new User(email);
             }
         } catch (Exception e) {
-            // Invalid token
+            // Invalid or expired token
         }
         return null;
     }
@@ -92,6 +93,7 @@ public class AuthService {
             user = new User(email, nickname);
             userRepository.save(user);
         }
+        gameEventLog.userSaved(user);
         return user;
     }
 } 
\ No newline at end of file
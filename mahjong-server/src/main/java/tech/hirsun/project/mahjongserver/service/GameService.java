@@ -2,32 +2,62 @@ package tech.hirsun.project.mahjongserver.service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import tech.hirsun.project.mahjongserver.model.Game;
 import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.GameRecord;
 import tech.hirsun.project.mahjongserver.model.Room;
 import tech.hirsun.project.mahjongserver.model.Tile;
+import tech.hirsun.project.mahjongserver.model.TileMove;
+import tech.hirsun.project.mahjongserver.persistence.GameEventLog;
+import tech.hirsun.project.mahjongserver.repository.GameRecordRepository;
 import tech.hirsun.project.mahjongserver.repository.RoomRepository;
 import tech.hirsun.project.mahjongserver.util.TileUtil;
+import tech.hirsun.project.mahjongserver.util.WinningHandUtil;
 
+/**
+ * Game commands. Every method taking a room ID must run on that room's
+ * {@link RoomCommandExecutor} mailbox, which makes each room single-writer.
+ */
 @Service
 public class GameService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(GameService.class);
+
     @Autowired
     private RoomRepository roomRepository;
     
     @Autowired
     private WebSocketService webSocketService;
+
+    @Autowired
+    private GameEventLog gameEventLog;
+
+    @Autowired
+    private GameRecordRepository gameRecordRepository;
+
+    // When enabled, claims are checked against the winning hand tables instead of asking other players
+    @Value("${game.win-validation.enabled:true}")
+    private boolean winValidationEnabled;
     
-    // Store win confirmations by room ID
+    // Store win confirmations by room ID; each inner map is only touched by its room's executor
     private final Map<String, Map<String, Boolean>> winConfirmations = new ConcurrentHashMap<>();
+    
+    // Game state views per room, reused until the game's version changes.
+    // Win confirmations only change together with a recorded action, which bumps the version.
+    private final Map<String, GameStateCache> gameStateCache = new ConcurrentHashMap<>();
 
     /**
      * Initialize a new game in a room
@@ -49,29 +79,12 @@ public class GameService {
         Game game = new Game();
         game.initialize(roomId, playerEmails, dealerEmail);
         
-        // Create and shuffle tiles
-        List<Tile> tiles = TileUtil.shuffle(TileUtil.createFullSet());
-        
-        // Find dealer index
-        int dealerIndex = playerEmails.indexOf(dealerEmail);
-        
-        // Deal tiles to players
-        List<List<Tile>> playerHands = TileUtil.dealInitialTiles(tiles, playerEmails.size(), dealerIndex);
-        
-        // Set player hands
-        for (int i = 0; i < playerEmails.size(); i++) {
-            String email = playerEmails.get(i);
-            List<Tile> hand = playerHands.get(i);
-            for (Tile tile : hand) {
-                game.addTileToPlayerHand(email, tile);
-            }
-        }
-        
-        // Set remaining tiles as draw pile
-        game.setDrawPile(tiles);
+        // Deal tiles to players from a shuffled wall, the remaining tiles stay in the wall
+        game.dealFrom(TileUtil.shuffledWall());
         
         // Set game start time
         game.setStartTime(LocalDateTime.now());
+        gameEventLog.gameStarted(game);
         
         // Update room with new game
         room.setCurrentGame(game);
@@ -101,14 +114,11 @@ public class GameService {
             return null;
         }
         
-        // Draw a tile
-        Tile tile = game.drawTile();
-        if (tile != null) {
-            // Add tile to player's hand
-            game.addTileToPlayerHand(userEmail, tile);
-            
+        // Draw a tile into player's hand
+        int code = game.drawTile(userEmail);
+        if (code >= 0) {
             // Record action
-            game.addAction(new GameAction(userEmail, GameAction.ActionType.DRAW));
+            recordAction(game, new GameAction(userEmail, GameAction.ActionType.DRAW));
             
             // Check if game is over (no more tiles)
             if (game.getRemainingTilesCount() == 0) {
@@ -117,9 +127,10 @@ public class GameService {
             
             // Save room with updated game
             roomRepository.save(room);
+            return TileUtil.toTile(code);
         }
         
-        return tile;
+        return null;
     }
 
     /**
@@ -140,14 +151,11 @@ public class GameService {
             return false;
         }
         
-        // Remove tile from player's hand
-        boolean removed = game.removeTileFromPlayerHand(userEmail, tile);
-        if (removed) {
-            // Add tile to discard pile
-            game.discardTile(tile);
-            
+        // Move tile from player's hand to the discard pile
+        int code = TileUtil.codeOf(tile);
+        if (code >= 0 && game.discardTile(userEmail, code)) {
             // Record action
-            game.addAction(new GameAction(userEmail, GameAction.ActionType.DISCARD, tile));
+            recordAction(game, new GameAction(userEmail, GameAction.ActionType.DISCARD, TileUtil.toTile(code)));
             
             // Save room with updated game
             roomRepository.save(room);
@@ -175,28 +183,13 @@ public class GameService {
             return null;
         }
         
-        // Find tile in discard pile - 需要在移除前找到牌对象，用于记录和添加到玩家手牌
-        List<Tile> discardPile = game.getDiscardPile();
-        Tile tileToTake = null;
-        for (Tile tile : discardPile) {
-            if (tile.getId() == tileId) {
-                tileToTake = tile;
-                break;
-            }
-        }
-        
-        if (tileToTake != null) {
-            // Remove tile from discard pile
-            boolean removed = game.removeTileFromDiscardPile(tileId);
-            if (!removed) {
-                return null;
-            }
-            
-            // Add tile to player's hand
-            game.addTileToPlayerHand(userEmail, tileToTake);
+        // Move tile from discard pile to player's hand
+        int code = TileUtil.codeOf(tileId);
+        if (code >= 0 && game.takeDiscardedTile(userEmail, code)) {
+            Tile tileToTake = TileUtil.toTile(code);
             
             // Record action
-            game.addAction(new GameAction(userEmail, GameAction.ActionType.TAKE_TILE, tileToTake));
+            recordAction(game, new GameAction(userEmail, GameAction.ActionType.TAKE_TILE, tileToTake));
             
             // Save room with updated game
             roomRepository.save(room);
@@ -225,24 +218,24 @@ public class GameService {
         }
         
         // Find tiles in player's hand
-        List<Tile> playerHand = game.getPlayerHand(userEmail);
+        int[] codes = new int[tileIds.size()];
+        int count = 0;
         List<Tile> tilesToReveal = new ArrayList<>();
         
         for (Integer tileId : tileIds) {
-            for (Tile tile : playerHand) {
-                if (tile.getId() == tileId) {
-                    tilesToReveal.add(tile);
-                    break;
-                }
+            int code = tileId != null ? TileUtil.codeOf(tileId) : -1;
+            if (code >= 0 && game.isTileInPlayerHand(userEmail, code)) {
+                codes[count++] = code;
+                tilesToReveal.add(TileUtil.toTile(code));
             }
         }
         
-        if (!tilesToReveal.isEmpty()) {
+        if (count > 0) {
             // Reveal tiles
-            game.revealPlayerTiles(userEmail, tilesToReveal);
+            game.revealPlayerTiles(userEmail, Arrays.copyOf(codes, count));
             
             // Record action
-            game.addAction(new GameAction(userEmail, GameAction.ActionType.REVEAL_TILES, tilesToReveal));
+            recordAction(game, new GameAction(userEmail, GameAction.ActionType.REVEAL_TILES, tilesToReveal));
             
             // Save room with updated game
             roomRepository.save(room);
@@ -271,24 +264,24 @@ public class GameService {
         }
         
         // Find tiles in player's revealed tiles
-        List<Tile> revealedTiles = game.getPlayerRevealedTiles().getOrDefault(userEmail, new ArrayList<>());
+        int[] codes = new int[tileIds.size()];
+        int count = 0;
         List<Tile> tilesToHide = new ArrayList<>();
         
         for (Integer tileId : tileIds) {
-            for (Tile tile : revealedTiles) {
-                if (tile.getId() == tileId) {
-                    tilesToHide.add(tile);
-                    break;
-                }
+            int code = tileId != null ? TileUtil.codeOf(tileId) : -1;
+            if (code >= 0 && game.isTileRevealedByPlayer(userEmail, code)) {
+                codes[count++] = code;
+                tilesToHide.add(TileUtil.toTile(code));
             }
         }
         
-        if (!tilesToHide.isEmpty()) {
+        if (count > 0) {
             // Hide tiles
-            game.hidePlayerTiles(userEmail, tilesToHide);
+            game.hidePlayerTiles(userEmail, Arrays.copyOf(codes, count));
             
             // Record action
-            game.addAction(new GameAction(userEmail, GameAction.ActionType.HIDE_TILES, tilesToHide));
+            recordAction(game, new GameAction(userEmail, GameAction.ActionType.HIDE_TILES, tilesToHide));
             
             // Save room with updated game
             roomRepository.save(room);
@@ -298,6 +291,30 @@ public class GameService {
         return false;
     }
 
+    /**
+     * Check whether claims are validated by the server
+     * @return true if server-side win validation is enabled
+     */
+    public boolean isWinValidationEnabled() {
+        return winValidationEnabled;
+    }
+
+    /**
+     * Check whether a player's hand plus revealed tiles form a winning hand
+     * @param roomId Room ID
+     * @param userEmail User's email
+     * @return true if the player currently holds a winning hand
+     */
+    public boolean isWinningHand(String roomId, String userEmail) {
+        Room room = roomRepository.findById(roomId);
+        if (room == null || room.getCurrentGame() == null) {
+            return false;
+        }
+        Game game = room.getCurrentGame();
+        return WinningHandUtil.isWinningHand(game.getPlayerHandKindCounts(userEmail),
+                game.getPlayerRevealedKindCounts(userEmail));
+    }
+
     /**
      * Process a victory claim from a player
      * @param roomId Room ID
@@ -305,42 +322,57 @@ public class GameService {
      * @return true if claim processed successfully, false otherwise
      */
     public boolean claimVictory(String roomId, String userEmail) {
-        System.out.println("Processing victory claim for room: " + roomId + ", from user: " + userEmail);
+        LOGGER.debug("Processing victory claim for room: {}, from user: {}", roomId, userEmail);
         
         // 验证房间和玩家
         Room room = roomRepository.findById(roomId);
         if (room == null) {
-            System.err.println("Room not found: " + roomId);
+            LOGGER.warn("Room not found: {}", roomId);
             return false;
         }
         
         if (room.getStatus() != Room.RoomStatus.PLAYING) {
-            System.err.println("Room " + roomId + " is not in PLAYING state. Current status: " + room.getStatus());
+            LOGGER.warn("Room {} is not in PLAYING state. Current status: {}", roomId, room.getStatus());
             return false;
         }
         
         if (!room.getPlayerEmails().contains(userEmail)) {
-            System.err.println("User " + userEmail + " is not in room " + roomId);
+            LOGGER.warn("User {} is not in room {}", userEmail, roomId);
             return false;
         }
         
         Game game = room.getCurrentGame();
         if (game == null) {
-            System.err.println("Room " + roomId + " has no current game");
+            LOGGER.warn("Room {} has no current game", roomId);
             return false;
         }
         
         if (game.getStatus() != Game.GameStatus.IN_PROGRESS) {
-            System.err.println("Game in room " + roomId + " is not in progress. Current status: " + game.getStatus());
+            LOGGER.warn("Game in room {} is not in progress. Current status: {}", roomId, game.getStatus());
             return false;
         }
         
+        // 服务器校验牌型：合法的胜利直接结束游戏，不合法的声明直接拒绝
+        if (winValidationEnabled) {
+            if (!WinningHandUtil.isWinningHand(game.getPlayerHandKindCounts(userEmail),
+                    game.getPlayerRevealedKindCounts(userEmail))) {
+                LOGGER.warn("Rejected victory claim from {} in room {}: not a winning hand", userEmail, roomId);
+                return false;
+            }
+            
+            LOGGER.info("Victory claim from {} verified, ending game in room {}", userEmail, roomId);
+            recordAction(game, new GameAction(userEmail, GameAction.ActionType.CLAIM_WIN));
+            endGame(roomId, userEmail);
+            webSocketService.sendSystemNotification(roomId, userEmail + " 和牌，牌型已由服务器验证！");
+            return true;
+        }
+        
         // 记录胜利声明操作
-        System.out.println("Recording CLAIM_WIN action for user: " + userEmail);
-        game.addAction(new GameAction(userEmail, GameAction.ActionType.CLAIM_WIN));
+        LOGGER.debug("Recording CLAIM_WIN action for user: {}", userEmail);
+        recordAction(game, new GameAction(userEmail, GameAction.ActionType.CLAIM_WIN));
         
         // 初始化或重置胜利确认映射
-        winConfirmations.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>());
+        winConfirmations.computeIfAbsent(roomId, k -> new HashMap<>());
         Map<String, Boolean> confirmations = winConfirmations.get(roomId);
         confirmations.clear();
         
@@ -348,20 +380,20 @@ public class GameService {
         for (String playerEmail : room.getPlayerEmails()) {
             if (!playerEmail.equals(userEmail)) {
                 confirmations.put(playerEmail, false);
-                System.out.println("Setting confirmation status for player " + playerEmail + " to false");
+                LOGGER.debug("Setting confirmation status for player {} to false", playerEmail);
             }
         }
         
         // 保存房间状态
         roomRepository.save(room);
-        System.out.println("Room state saved after victory claim");
+        LOGGER.debug("Room state saved after victory claim");
         
         // 获取宣告胜利玩家的所有牌信息（明牌和暗牌）
         List<Tile> handTiles = game.getPlayerHand(userEmail);
-        List<Tile> revealedTiles = game.getPlayerRevealedTiles().getOrDefault(userEmail, new ArrayList<>());
+        List<Tile> revealedTiles = game.getPlayerRevealedTiles(userEmail);
         
         // 通知所有玩家有人声明胜利
-        System.out.println("Sending WIN_CLAIM notification to all players in room " + roomId);
+        LOGGER.debug("Sending WIN_CLAIM notification to all players in room {}", roomId);
         Map<String, Object> claimData = new HashMap<>();
         claimData.put("claimerEmail", userEmail);
         claimData.put("timestamp", LocalDateTime.now().toString());
@@ -386,64 +418,63 @@ public class GameService {
      * @return true if confirmation processed, false otherwise
      */
     public boolean confirmVictory(String roomId, String userEmail, boolean confirm) {
-        System.out.println("Processing victory " + (confirm ? "confirmation" : "denial") + 
-                          " for room: " + roomId + ", from user: " + userEmail);
+        LOGGER.debug("Processing victory {} for room: {}, from user: {}", confirm ? "confirmation" : "denial", roomId, userEmail);
         
         // 验证房间和玩家
         Room room = roomRepository.findById(roomId);
         if (room == null) {
-            System.err.println("Room not found: " + roomId);
+            LOGGER.warn("Room not found: {}", roomId);
             return false;
         }
         
         if (room.getStatus() != Room.RoomStatus.PLAYING) {
-            System.err.println("Room " + roomId + " is not in PLAYING state. Current status: " + room.getStatus());
+            LOGGER.warn("Room {} is not in PLAYING state. Current status: {}", roomId, room.getStatus());
             return false;
         }
         
         if (!room.getPlayerEmails().contains(userEmail)) {
-            System.err.println("User " + userEmail + " is not in room " + roomId);
+            LOGGER.warn("User {} is not in room {}", userEmail, roomId);
             return false;
         }
         
         Game game = room.getCurrentGame();
         if (game == null) {
-            System.err.println("Room " + roomId + " has no current game");
+            LOGGER.warn("Room {} has no current game", roomId);
             return false;
         }
         
         if (game.getStatus() != Game.GameStatus.IN_PROGRESS) {
-            System.err.println("Game in room " + roomId + " is not in progress. Current status: " + game.getStatus());
+            LOGGER.warn("Game in room {} is not in progress. Current status: {}", roomId, game.getStatus());
             return false;
         }
         
         // 检查是否有等待确认的胜利声明
         Map<String, Boolean> confirmations = winConfirmations.get(roomId);
         if (confirmations == null) {
-            System.err.println("No pending victory confirmations for room: " + roomId);
+            LOGGER.warn("No pending victory confirmations for room: {}", roomId);
             return false;
         }
         
         if (!confirmations.containsKey(userEmail)) {
-            System.err.println("User " + userEmail + " is not required to confirm victory in room " + roomId);
+            LOGGER.warn("User {} is not required to confirm victory in room {}", userEmail, roomId);
             return false;
         }
         
         // 记录确认/拒绝操作
         GameAction.ActionType actionType = confirm ? GameAction.ActionType.CONFIRM_WIN : GameAction.ActionType.DENY_WIN;
-        System.out.println("Recording " + actionType + " action for user: " + userEmail);
-        game.addAction(new GameAction(userEmail, actionType));
+        LOGGER.debug("Recording {} action for user: {}", actionType, userEmail);
+        recordAction(game, new GameAction(userEmail, actionType));
         
         // 更新确认状态
         confirmations.put(userEmail, confirm);
-        System.out.println("Updated confirmation status for player " + userEmail + " to " + confirm);
+        LOGGER.debug("Updated confirmation status for player {} to {}", userEmail, confirm);
         
         // 确认是否所有玩家都已确认
         boolean allConfirmed = true;
         for (Map.Entry<String, Boolean> entry : confirmations.entrySet()) {
             if (!entry.getValue()) {
                 allConfirmed = false;
-                System.out.println("Player " + entry.getKey() + " has not confirmed victory");
+                LOGGER.debug("Player {} has not confirmed victory", entry.getKey());
                 break;
             }
         }
@@ -458,20 +489,20 @@ public class GameService {
         }
         
         if (claimerEmail == null) {
-            System.err.println("Unable to determine who claimed victory in room " + roomId);
+            LOGGER.warn("Unable to determine who claimed victory in room {}", roomId);
             return false;
         }
         
         // 如果所有玩家都确认，游戏结束，宣布胜利者
         if (allConfirmed) {
-            System.out.println("All players confirmed victory for " + claimerEmail + " in room " + roomId);
+            LOGGER.info("All players confirmed victory for {} in room {}", claimerEmail, roomId);
             endGame(roomId, claimerEmail);
             
             // 发送系统通知
             webSocketService.sendSystemNotification(roomId, claimerEmail + " 的胜利已被所有玩家确认！");
         } else if (!confirm) {
             // 如果任何玩家拒绝，清空确认状态，游戏继续
-            System.out.println("Player " + userEmail + " denied victory for " + claimerEmail + " in room " + roomId);
+            LOGGER.info("Player {} denied victory for {} in room {}", userEmail, claimerEmail, roomId);
             confirmations.clear();
             winConfirmations.remove(roomId);
             
@@ -486,8 +517,7 @@ public class GameService {
             webSocketService.sendSystemNotification(roomId, userEmail + " 拒绝了 " + claimerEmail + " 的胜利声明！游戏继续。");
         } else {
             // 部分玩家已确认，但还有玩家未确认
-            System.out.println("Player " + userEmail + " confirmed victory for " + claimerEmail + 
-                              " in room " + roomId + ", waiting for other players");
+            LOGGER.debug("Player {} confirmed victory for {} in room {}, waiting for other players", userEmail, claimerEmail, roomId);
             
             // 发送系统通知
             webSocketService.sendSystemNotification(roomId, userEmail + " 确认了 " + claimerEmail + " 的胜利，等待其他玩家确认。");
@@ -495,7 +525,7 @@ public class GameService {
         
         // 保存房间状态
         roomRepository.save(room);
-        System.out.println("Room state saved after processing victory confirmation");
+        LOGGER.debug("Room state saved after processing victory confirmation");
         
         return true;
     }
@@ -506,22 +536,22 @@ public class GameService {
      * @param winnerEmail Email of the winner, or null for a draw
      */
     public void endGame(String roomId, String winnerEmail) {
-        System.out.println("Ending game in room: " + roomId + ", winner: " + (winnerEmail != null ? winnerEmail : "DRAW"));
+        LOGGER.info("Ending game in room: {}, winner: {}", roomId, winnerEmail != null ? winnerEmail : "DRAW");
         
         Room room = roomRepository.findById(roomId);
         if (room == null) {
-            System.err.println("Room not found: " + roomId);
+            LOGGER.warn("Room not found: {}", roomId);
             return;
         }
         
         if (room.getStatus() != Room.RoomStatus.PLAYING) {
-            System.err.println("Room " + roomId + " is not in PLAYING state. Current status: " + room.getStatus());
+            LOGGER.warn("Room {} is not in PLAYING state. Current status: {}", roomId, room.getStatus());
             return;
         }
         
         Game game = room.getCurrentGame();
         if (game == null) {
-            System.err.println("Room " + roomId + " has no current game");
+            LOGGER.warn("Room {} has no current game", roomId);
             return;
         }
         
@@ -532,35 +562,39 @@ public class GameService {
         // 设置胜利者（如果有）
         if (winnerEmail != null) {
             game.setWinnerEmail(winnerEmail);
-            System.out.println("设置胜利者为: " + winnerEmail);
-            
-            // 添加胜利操作到历史记录
-            game.addAction(new GameAction(winnerEmail, GameAction.ActionType.CLAIM_WIN, "游戏胜利"));
+            LOGGER.debug("设置胜利者为: {}", winnerEmail);
         } else {
-            System.out.println("游戏以平局结束");
+            LOGGER.debug("游戏以平局结束");
         }
+        gameEventLog.gameEnded(game);
+        
+        if (winnerEmail != null) {
+            // 添加胜利操作到历史记录
+            recordAction(game, new GameAction(winnerEmail, GameAction.ActionType.CLAIM_WIN, "游戏胜利"));
+        }
+        // The game no longer changes, its record can be replayed off the room's executor
+        gameRecordRepository.save(GameRecord.of(game));
         
         // 更新房间状态
-        System.out.println("将房间状态从PLAYING更改为WAITING");
+        LOGGER.debug("将房间状态从PLAYING更改为WAITING");
         room.setStatus(Room.RoomStatus.WAITING);
         
         // 保存房间状态
         roomRepository.save(room);
-        System.out.println("游戏结束后房间状态已保存");
+        LOGGER.debug("游戏结束后房间状态已保存");
         
         // 确认状态已更新
         Room updatedRoom = roomRepository.findById(roomId);
         if (updatedRoom != null) {
-            System.out.println("保存后的房间状态: " + updatedRoom.getStatus());
-            System.out.println("保存后的游戏状态: " + 
-                (updatedRoom.getCurrentGame() != null ? updatedRoom.getCurrentGame().getStatus() : "NULL"));
+            LOGGER.debug("保存后的房间状态: {}", updatedRoom.getStatus());
+            LOGGER.debug("保存后的游戏状态: {}", updatedRoom.getCurrentGame() != null ? updatedRoom.getCurrentGame().getStatus() : "NULL");
         } else {
-            System.err.println("警告：无法在保存后找到房间");
+            LOGGER.warn("警告：无法在保存后找到房间");
         }
         
         // 清除该房间的胜利确认状态
         winConfirmations.remove(roomId);
-        System.out.println("已清除房间 " + roomId + " 的胜利确认状态");
+        LOGGER.debug("已清除房间 {} 的胜利确认状态", roomId);
         
         // 通知所有玩家游戏结束
         Map<String, Object> data = new HashMap<>();
@@ -577,7 +611,7 @@ public class GameService {
             webSocketService.sendSystemNotification(roomId, "游戏结束！结果是平局。");
         }
         
-        System.out.println("房间 " + roomId + " 的游戏结束通知已发送");
+        LOGGER.debug("房间 {} 的游戏结束通知已发送", roomId);
     }
 
     /**
@@ -595,6 +629,68 @@ public class GameService {
         return room.getCurrentGame().getRecentActions(count);
     }
 
+    /**
+     * Get the changes to a game since a version, projected for one player.
+     * Tiles moving between zones the player cannot see are sent without their identity.
+     * @param roomId Room ID
+     * @param userEmail User's email
+     * @param gameId Game the version belongs to
+     * @param sinceVersion Version the player already has
+     * @param sinceActionSeq Sequence number of the last action the player already has
+     * @return Patch data, or null if the player needs the full state instead
+     */
+    public Map<String, Object> getGamePatch(String roomId, String userEmail, long gameId,
+                                            long sinceVersion, long sinceActionSeq) {
+        Room room = roomRepository.findById(roomId);
+        if (room == null || room.getCurrentGame() == null) {
+            return null;
+        }
+        
+        Game game = room.getCurrentGame();
+        int seat = game.getPlayerPosition(userEmail);
+        if (seat < 0 || game.getGameId() != gameId) {
+            return null;
+        }
+        
+        List<TileMove> moves = game.getMovesSince(sinceVersion);
+        if (moves == null || sinceActionSeq > game.getLastActionSeq()) {
+            return null;
+        }
+        
+        List<Map<String, Object>> moveViews = new ArrayList<>(moves.size());
+        for (TileMove move : moves) {
+            Map<String, Object> view = new HashMap<>();
+            if (move.isVisibleTo(seat)) {
+                view.put("tile", TileUtil.toTile(move.getCode()));
+            }
+            view.put("from", move.getFrom());
+            view.put("to", move.getTo());
+            if (move.getFromSeat() >= 0) {
+                view.put("fromSeat", move.getFromSeat());
+            }
+            if (move.getToSeat() >= 0) {
+                view.put("toSeat", move.getToSeat());
+            }
+            moveViews.add(view);
+        }
+        
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("roomId", roomId);
+        patch.put("gameId", game.getGameId());
+        patch.put("fromVersion", sinceVersion);
+        patch.put("version", game.getVersion());
+        patch.put("actionSeq", game.getLastActionSeq());
+        patch.put("moves", moveViews);
+        patch.put("actions", game.getActionsSince(sinceActionSeq));
+        patch.put("status", game.getStatus().toString());
+        patch.put("remainingTiles", game.getRemainingTilesCount());
+        if (game.getStatus() == Game.GameStatus.FINISHED) {
+            patch.put("winnerEmail", game.getWinnerEmail());
+            patch.put("isDraw", game.getWinnerEmail() == null);
+        }
+        return patch;
+    }
+
     /**
      * Get game state for a player
      * @param roomId Room ID
@@ -604,21 +700,21 @@ public class GameService {
     public Map<String, Object> getGameState(String roomId, String userEmail) {
         Room room = roomRepository.findById(roomId);
         if (room == null) {
-            System.out.println("GameService.getGameState: Room not found: " + roomId);
+            LOGGER.debug("GameService.getGameState: Room not found: {}", roomId);
             return Map.of();
         }
         
         if (!room.getPlayerEmails().contains(userEmail)) {
-            System.out.println("GameService.getGameState: User not in room: " + userEmail);
+            LOGGER.debug("GameService.getGameState: User not in room: {}", userEmail);
             return Map.of();
         }
         
         // 处理房间状态为PLAYING但游戏实例为null的情况
         if (room.getStatus() == Room.RoomStatus.PLAYING && room.getCurrentGame() == null) {
-            System.out.println("GameService.getGameState: Room status is PLAYING but game is null, initializing game");
+            LOGGER.debug("GameService.getGameState: Room status is PLAYING but game is null, initializing game");
             Game game = initializeGame(roomId);
             if (game == null) {
-                System.out.println("GameService.getGameState: Failed to initialize game");
+                LOGGER.debug("GameService.getGameState: Failed to initialize game");
                 return Map.of();
             }
         }
@@ -626,7 +722,7 @@ public class GameService {
         Game game = room.getCurrentGame();
         if (game == null) {
             // 如果游戏为null但房间状态不是PLAYING，返回空状态而不是空Map
-            System.out.println("GameService.getGameState: Game is null, returning waiting state");
+            LOGGER.debug("GameService.getGameState: Game is null, returning waiting state");
             Map<String, Object> waitingState = new HashMap<>();
             waitingState.put("roomId", roomId);
             waitingState.put("status", "WAITING");
@@ -638,6 +734,62 @@ public class GameService {
             return waitingState;
         }
         
+        GameStateCache cache = gameStateCache.get(roomId);
+        if (cache == null || cache.gameId != game.getGameId() || cache.version != game.getVersion()) {
+            Map<String, Object> publicState = buildPublicState(room, game);
+            if (publicState == null) {
+                return Map.of();
+            }
+            cache = new GameStateCache(game.getGameId(), game.getVersion(), publicState);
+            gameStateCache.put(roomId, cache);
+            LOGGER.debug("GameService.getGameState: Rebuilt state for room: {}, status: {}, version: {}, remainingTiles: {}", roomId, game.getStatus(), game.getVersion(), game.getRemainingTilesCount());
+        }
+        
+        int seat = game.getPlayerPosition(userEmail);
+        if (seat < 0) {
+            // Room member who is not seated in this game
+            Map<String, Object> state = new HashMap<>(cache.publicState);
+            state.put("hand", new ArrayList<>());
+            return Collections.unmodifiableMap(state);
+        }
+        
+        Map<String, Object> state = cache.seatStates[seat];
+        if (state == null) {
+            Map<String, Object> seatState = new HashMap<>(cache.publicState);
+            // Current player's hand
+            seatState.put("hand", game.getPlayerHand(userEmail));
+            state = Collections.unmodifiableMap(seatState);
+            cache.seatStates[seat] = state;
+        }
+        return state;
+    }
+
+    /**
+     * Restore the pending confirmations of a victory claim, after the game was rebuilt from the log
+     * @param roomId Room ID
+     * @param confirmations Whether each player other than the claimer has confirmed
+     */
+    public void restoreWinConfirmations(String roomId, Map<String, Boolean> confirmations) {
+        winConfirmations.put(roomId, new HashMap<>(confirmations));
+    }
+
+    /**
+     * Drop the cached game state of a room
+     * @param roomId Room ID
+     */
+    public void evictGameState(String roomId) {
+        gameStateCache.remove(roomId);
+    }
+
+    // Append an action to the game's log and to the write-ahead log
+    private void recordAction(Game game, GameAction action) {
+        game.addAction(action);
+        gameEventLog.actionRecorded(game, action);
+    }
+
+    // Build the part of the game state that is the same for every player, or null on error
+    private Map<String, Object> buildPublicState(Room room, Game game) {
+        String roomId = room.getRoomId();
         Map<String, Object> state = new HashMap<>();
         
         try {
@@ -647,19 +799,21 @@ public class GameService {
             state.put("remainingTiles", game.getRemainingTilesCount());
             state.put("dealerEmail", game.getDealerEmail());
             
+            // Sync position for delta clients
+            state.put("gameId", game.getGameId());
+            state.put("version", game.getVersion());
+            state.put("actionSeq", game.getLastActionSeq());
+            
             // Player positions
             state.put("playerPositions", game.getPlayerPositions());
             
-            // Current player's hand
-            state.put("hand", game.getPlayerHand(userEmail));
-            
             // Revealed tiles for all players
             state.put("revealedTiles", game.getPlayerRevealedTiles());
             
             // 添加每个玩家的手牌数量信息
             Map<String, Integer> playerHandCounts = new HashMap<>();
-            game.getPlayerHands().forEach((email, tiles) -> {
-                playerHandCounts.put(email, tiles.size());
+            game.getPlayerPositions().keySet().forEach(email -> {
+                playerHandCounts.put(email, game.getPlayerHandSize(email));
             });
             state.put("playerHandCounts", playerHandCounts);
             
@@ -695,16 +849,27 @@ public class GameService {
                     state.put("winConfirmations", confirmationStatus);
                 }
             }
-            
-            System.out.println("GameService.getGameState: Returning state for user: " + userEmail + 
-                    ", status: " + game.getStatus() + 
-                    ", handSize: " + game.getPlayerHand(userEmail).size() + 
-                    ", remainingTiles: " + game.getRemainingTilesCount());
         } catch (Exception e) {
-            System.err.println("GameService.getGameState: Error building game state: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.error("Error building game state for room {}", room.getRoomId(), e);
+            return null;
         }
         
         return state;
     }
+
+    // Game state views built for one version of a room's game
+    private static class GameStateCache {
+        private final long gameId;
+        private final long version;
+        private final Map<String, Object> publicState;
+        private final Map<String, Object>[] seatStates;
+
+        @SuppressWarnings("unchecked")
+        private GameStateCache(long gameId, long version, Map<String, Object> publicState) {
+            this.gameId = gameId;
+            this.version = version;
+            this.publicState = publicState;
+            this.seatStates = new Map[Game.MAX_PLAYERS];
+        }
+    }
 } 
\ No newline at end of file
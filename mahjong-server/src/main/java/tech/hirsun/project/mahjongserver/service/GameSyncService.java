@@ -0,0 +1,126 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketSession;
+
+import tech.hirsun.project.mahjongserver.repository.SessionRepository;
+
+/**
+ * Keeps clients' game state up to date after each command.
+ * Sessions that opted in with {@code ?sync=delta} get a GAME_PATCH with the changes since the
+ * last state they were sent; the full GAME_STATE is only sent on first contact, when the game
+ * changed, or when the patch can no longer be built. Other sessions always get the full state.
+ * The last state sent is remembered per session, so a reconnect starts over with the full state.
+ */
+@Service
+public class GameSyncService {
+
+    private static final String SYNC_POINT_ATTRIBUTE = "syncPoint";
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private WebSocketService webSocketService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    /**
+     * Send a player the changes to the game in a room
+     * @param roomId Room ID
+     * @param userEmail User's email
+     * @return true if a message was sent
+     */
+    public boolean sendGameUpdate(String roomId, String userEmail) {
+        WebSocketSession session = sessionRepository.getSessionByUser(userEmail);
+        if (session != null && webSocketService.isDeltaSync(userEmail)) {
+            SyncPoint point = (SyncPoint) session.getAttributes().get(SYNC_POINT_ATTRIBUTE);
+            if (point != null && point.roomId.equals(roomId)) {
+                Map<String, Object> patch = gameService.getGamePatch(roomId, userEmail,
+                        point.gameId, point.version, point.actionSeq);
+                if (patch != null) {
+                    boolean sent = webSocketService.sendMessage(userEmail, "GAME_PATCH", patch);
+                    if (sent) {
+                        recordSyncPoint(userEmail, patch);
+                    }
+                    return sent;
+                }
+            }
+        }
+        return sendGameState(roomId, userEmail);
+    }
+
+    /**
+     * Resync a delta client from the version it reports having
+     * @param roomId Room ID
+     * @param userEmail User's email
+     * @param gameId Game the client's version belongs to
+     * @param version Client's game version
+     * @param actionSeq Sequence number of the client's last action
+     * @return true if a message was sent
+     */
+    public boolean resync(String roomId, String userEmail, long gameId, long version, long actionSeq) {
+        Map<String, Object> patch = gameService.getGamePatch(roomId, userEmail, gameId, version, actionSeq);
+        if (patch == null) {
+            return sendGameState(roomId, userEmail);
+        }
+        boolean sent = webSocketService.sendMessage(userEmail, "GAME_PATCH", patch);
+        if (sent) {
+            recordSyncPoint(userEmail, patch);
+        }
+        return sent;
+    }
+
+    /**
+     * Send a player the full game state
+     * @param roomId Room ID
+     * @param userEmail User's email
+     * @return true if a message was sent
+     */
+    public boolean sendGameState(String roomId, String userEmail) {
+        Map<String, Object> gameState = gameService.getGameState(roomId, userEmail);
+        boolean sent = webSocketService.sendMessage(userEmail, "GAME_STATE", gameState);
+        if (sent) {
+            recordSyncPoint(userEmail, gameState);
+        }
+        return sent;
+    }
+
+    /**
+     * Remember the version carried by a GAME_STATE or GAME_PATCH that was sent to a player
+     * @param userEmail User's email
+     * @param state State or patch data that was sent
+     */
+    public void recordSyncPoint(String userEmail, Map<String, Object> state) {
+        WebSocketSession session = sessionRepository.getSessionByUser(userEmail);
+        if (session == null) {
+            return;
+        }
+        if (!(state.get("version") instanceof Long version)) {
+            // Waiting room state without a game
+            session.getAttributes().remove(SYNC_POINT_ATTRIBUTE);
+            return;
+        }
+        session.getAttributes().put(SYNC_POINT_ATTRIBUTE, new SyncPoint((String) state.get("roomId"),
+                (Long) state.get("gameId"), version, (Long) state.get("actionSeq")));
+    }
+
+    // Last game version sent to a session
+    private static class SyncPoint {
+        private final String roomId;
+        private final long gameId;
+        private final long version;
+        private final long actionSeq;
+
+        private SyncPoint(String roomId, long gameId, long version, long actionSeq) {
+            this.roomId = roomId;
+            this.gameId = gameId;
+            this.version = version;
+            this.actionSeq = actionSeq;
+        }
+    }
+}
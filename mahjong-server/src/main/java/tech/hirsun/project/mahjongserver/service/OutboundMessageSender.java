@@ -0,0 +1,294 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Non-blocking outbound layer for WebSocket sessions.
+ * Each session has a bounded queue drained by a writer from a shared pool, one frame at a time,
+ * so callers (room commands) never wait on network I/O. A session that cannot keep up, because
+ * a send takes longer than the send-time limit or its queue exceeds the buffer limits, is closed;
+ * the client reconnects and gets the full state again.
+ * <p>
+ * Writes are blocking, so a stalled client holds a writer. The container's blocking send timeout is set
+ * to the send-time limit, and a monitor closes sessions whose send in progress has run past it, so a
+ * writer is held for at most that long. Sessions are closed on their own threads, never on a writer.
+ */
+@Component
+public class OutboundMessageSender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundMessageSender.class);
+
+    // Frames sent per drain before the writer yields to other sessions
+    private static final int DRAIN_BATCH_SIZE = 16;
+
+    // Tomcat session property bounding a blocking write (ms)
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    @Value("${websocket.outbound.threads:0}")
+    private int threads;
+
+    @Value("${websocket.outbound.send-time-limit:10000}")
+    private long sendTimeLimit;
+
+    @Value("${websocket.outbound.buffer-size-limit:524288}")
+    private long bufferSizeLimit;
+
+    @Value("${websocket.outbound.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private final Map<String, Outbound> outbounds = new ConcurrentHashMap<>();
+
+    private final AtomicLong droppedSessions = new AtomicLong();
+
+    private ThreadPoolExecutor pool;
+
+    // Enforces the send-time limit on sends in progress
+    private ScheduledExecutorService monitor;
+
+    // Closes sessions, a close may wait for the stalled write it interrupts
+    private ThreadPoolExecutor closer;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        // Each session has at most one drain task queued, so the pool queue is bounded by open sessions
+        pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ws-writer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-outbound-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkInterval = Math.max(100, Math.min(1000, sendTimeLimit / 2));
+        monitor.scheduleWithFixedDelay(this::closeStalledSessions, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        AtomicInteger closerCount = new AtomicInteger();
+        // At most one stalled write per writer, so as many closers never leave a close waiting on another;
+        // each session is closed at most once, so the queue is bounded by open sessions
+        closer = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ws-closer-" + closerCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        closer.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        monitor.shutdownNow();
+        pool.shutdown();
+        pool.awaitTermination(sendTimeLimit, TimeUnit.MILLISECONDS);
+        closer.shutdown();
+    }
+
+    /**
+     * Queue a frame for a session without waiting for it to be written
+     * @param session Target session
+     * @param message Frame to send
+     * @return true if queued, false if the session is closed or was closed for being too slow
+     */
+    public boolean send(WebSocketSession session, WebSocketMessage<?> message) {
+        if (!session.isOpen()) {
+            return false;
+        }
+        // A closed session's outbound stays until remove(), so it never gets a second writer
+        Outbound outbound = outbounds.computeIfAbsent(session.getId(), id -> new Outbound(limitBlockingSend(session)));
+        if (!session.isOpen()) {
+            // Closed after the first check: remove() may already have run, so drop what was just created
+            outbound.closing.set(true);
+            outbounds.remove(session.getId(), outbound);
+            return false;
+        }
+        if (outbound.closing.get()) {
+            return false;
+        }
+
+        int length = message.getPayloadLength();
+        if (outbound.size.incrementAndGet() > queueCapacity
+                || outbound.bufferSize.addAndGet(length) > bufferSizeLimit) {
+            outbound.size.decrementAndGet();
+            outbound.bufferSize.addAndGet(-length);
+            terminate(outbound, "outbound buffer limit exceeded (" + outbound.size.get() + " frames, "
+                    + outbound.bufferSize.get() + " bytes)");
+            return false;
+        }
+        outbound.messages.add(message);
+        schedule(outbound);
+        return true;
+    }
+
+    /**
+     * Forget a session's queue after it has closed; frames still queued are discarded.
+     * Must only be called once the session is closed.
+     * @param sessionId Session ID
+     */
+    public void remove(String sessionId) {
+        Outbound outbound = outbounds.remove(sessionId);
+        if (outbound != null) {
+            outbound.closing.set(true);
+        }
+    }
+
+    /**
+     * Get the number of frames waiting for a session
+     * @param sessionId Session ID
+     * @return Queued frame count
+     */
+    public int getQueueDepth(String sessionId) {
+        Outbound outbound = outbounds.get(sessionId);
+        return outbound != null ? outbound.size.get() : 0;
+    }
+
+    /**
+     * Get the number of frames waiting across all sessions
+     * @return Total queued frame count
+     */
+    public int getTotalQueueDepth() {
+        int total = 0;
+        for (Outbound outbound : outbounds.values()) {
+            total += outbound.size.get();
+        }
+        return total;
+    }
+
+    /**
+     * Get the deepest session queue
+     * @return Largest queued frame count of any session
+     */
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (Outbound outbound : outbounds.values()) {
+            max = Math.max(max, outbound.size.get());
+        }
+        return max;
+    }
+
+    /**
+     * Get the number of sessions closed for being too slow since startup
+     * @return Dropped session count
+     */
+    public long getDroppedSessionCount() {
+        return droppedSessions.get();
+    }
+
+    // Bound the container's blocking write, so a writer is not held longer than the send-time limit
+    private WebSocketSession limitBlockingSend(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativeSession
+                && nativeSession.getNativeSession() instanceof jakarta.websocket.Session standardSession) {
+            standardSession.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimit);
+        }
+        return session;
+    }
+
+    private void closeStalledSessions() {
+        long now = System.currentTimeMillis();
+        for (Outbound outbound : outbounds.values()) {
+            long sendStart = outbound.sendStart;
+            if (sendStart > 0 && now - sendStart > sendTimeLimit) {
+                terminate(outbound, "send time limit of " + sendTimeLimit + " ms exceeded");
+            }
+        }
+    }
+
+    private void schedule(Outbound outbound) {
+        if (outbound.scheduled.compareAndSet(false, true)) {
+            pool.execute(() -> drain(outbound));
+        }
+    }
+
+    private void drain(Outbound outbound) {
+        try {
+            for (int i = 0; i < DRAIN_BATCH_SIZE && !outbound.closing.get(); i++) {
+                WebSocketMessage<?> message = outbound.messages.poll();
+                if (message == null) {
+                    break;
+                }
+                // Binary payloads are consumed by the send, so take the length first
+                int length = message.getPayloadLength();
+                outbound.sendStart = System.currentTimeMillis();
+                try {
+                    if (outbound.session.isOpen()) {
+                        outbound.session.sendMessage(message);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Error sending WebSocket message on session {}: {}", outbound.session.getId(), e.getMessage());
+                    terminate(outbound, "send failed");
+                } finally {
+                    outbound.sendStart = 0;
+                    outbound.size.decrementAndGet();
+                    outbound.bufferSize.addAndGet(-length);
+                }
+            }
+        } finally {
+            outbound.scheduled.set(false);
+        }
+        // Frames may have arrived after the last poll and before the flag was cleared
+        if (!outbound.messages.isEmpty() && !outbound.closing.get()) {
+            schedule(outbound);
+        }
+    }
+
+    private void terminate(Outbound outbound, String reason) {
+        if (!outbound.closing.compareAndSet(false, true)) {
+            return;
+        }
+        droppedSessions.incrementAndGet();
+        LOGGER.warn("Closing slow WebSocket session {}: {}", outbound.session.getId(), reason);
+        // Kept in the map as a tombstone until the session's close is handled
+        outbound.messages.clear();
+        // Not on a writer: the close may wait for the stalled write
+        closer.execute(() -> {
+            try {
+                outbound.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                LOGGER.warn("Error closing WebSocket session {}: {}", outbound.session.getId(), e.getMessage());
+            }
+        });
+    }
+
+    private static class Outbound {
+        private final WebSocketSession session;
+        private final Queue<WebSocketMessage<?>> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLong bufferSize = new AtomicLong();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closing = new AtomicBoolean();
+        // Start time of the send in progress, 0 when idle
+        private volatile long sendStart;
+
+        private Outbound(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.GameRecord;
+import tech.hirsun.project.mahjongserver.replay.GameReplay;
+import tech.hirsun.project.mahjongserver.replay.ReplayState;
+import tech.hirsun.project.mahjongserver.repository.GameRecordRepository;
+
+/**
+ * Replays of finished games, as single frames and as streams that follow the game's original pace.
+ * Replays are built from game records on their own threads and never touch a live room.
+ */
+@Service
+public class ReplayService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayService.class);
+
+    private static final double MIN_SPEED = 0.1;
+
+    private static final double MAX_SPEED = 20;
+
+    @Autowired
+    private GameRecordRepository gameRecordRepository;
+
+    @Autowired
+    private WebSocketService webSocketService;
+
+    @Value("${replay.threads:2}")
+    private int threads;
+
+    // Actions between two checkpoints, seeking applies at most this many actions
+    @Value("${replay.checkpoint-interval:16}")
+    private int checkpointInterval;
+
+    @Value("${replay.cache-size:256}")
+    private int cacheSize;
+
+    // Bounds of the pause between two streamed frames, whatever the original pace was
+    @Value("${replay.frame.min-delay:50}")
+    private long minFrameDelay;
+
+    @Value("${replay.frame.max-delay:3000}")
+    private long maxFrameDelay;
+
+    // Replays built recently, by game ID, least recently used dropped first
+    private final Map<Long, GameReplay> replayCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GameReplay> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    // Running stream of each user, a user watches one replay at a time
+    private final Map<String, ReplayStream> streams = new ConcurrentHashMap<>();
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        scheduler = new ScheduledThreadPoolExecutor(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "replay-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Stopped streams must not keep their next frame queued
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Find the record of a finished game
+     * @param gameId Game ID
+     * @return The record, or null if the game is unknown or no longer kept
+     */
+    public GameRecord getRecord(long gameId) {
+        return gameRecordRepository.findById(gameId);
+    }
+
+    /**
+     * Find the record of the last finished game of a room
+     * @param roomId Room ID
+     * @return The record, or null if the room has no kept finished game
+     */
+    public GameRecord getLastRecord(String roomId) {
+        return gameRecordRepository.findLastByRoomId(roomId);
+    }
+
+    /**
+     * Get the state of a finished game after some of its actions, with every player's tiles shown
+     * @param gameId Game ID
+     * @param actionCount Actions applied, 0 for the state right after the deal
+     * @return Frame data, or null if the game is unknown or has fewer actions
+     */
+    public Map<String, Object> getFrame(long gameId, int actionCount) {
+        GameReplay replay = getReplay(gameId);
+        if (replay == null || actionCount < 0 || actionCount > replay.getActionCount()) {
+            return null;
+        }
+        return replay.toFrame(replay.seek(actionCount));
+    }
+
+    /**
+     * Stream a finished game to a user, replacing the user's running stream.
+     * Frames are sent as REPLAY_FRAME messages, then REPLAY_END once the last action was sent.
+     * @param userEmail User's email
+     * @param gameId Game ID
+     * @param fromAction Actions already applied in the first frame
+     * @param speed Pace relative to the original game, 1 for the original pace
+     */
+    public void startStream(String userEmail, long gameId, int fromAction, double speed) {
+        stopStream(userEmail);
+        ReplayStream stream = new ReplayStream(userEmail, gameId, clampSpeed(speed));
+        streams.put(userEmail, stream);
+        // Building the replay plays the whole game, which is done on a replay thread
+        stream.schedule(() -> stream.begin(fromAction), 0);
+    }
+
+    /**
+     * Change the speed of a user's running stream, from the next frame on
+     * @param userEmail User's email
+     * @param speed Pace relative to the original game
+     * @return false if the user has no running stream
+     */
+    public boolean setSpeed(String userEmail, double speed) {
+        ReplayStream stream = streams.get(userEmail);
+        if (stream == null) {
+            return false;
+        }
+        stream.speed = clampSpeed(speed);
+        return true;
+    }
+
+    /**
+     * Stop a user's running stream
+     * @param userEmail User's email
+     * @return false if the user had no running stream
+     */
+    public boolean stopStream(String userEmail) {
+        ReplayStream stream = streams.remove(userEmail);
+        if (stream == null) {
+            return false;
+        }
+        stream.cancel();
+        return true;
+    }
+
+    /**
+     * @return Number of running streams
+     */
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    // Get a cached replay or build it from the game's record
+    private GameReplay getReplay(long gameId) {
+        synchronized (replayCache) {
+            GameReplay replay = replayCache.get(gameId);
+            if (replay != null) {
+                return replay;
+            }
+        }
+        GameRecord record = gameRecordRepository.findById(gameId);
+        if (record == null) {
+            return null;
+        }
+        // Built outside the lock, two callers may build the same replay once
+        GameReplay replay = new GameReplay(record, checkpointInterval);
+        synchronized (replayCache) {
+            replayCache.put(gameId, replay);
+        }
+        return replay;
+    }
+
+    private static double clampSpeed(double speed) {
+        return Double.isNaN(speed) ? 1 : Math.min(Math.max(speed, MIN_SPEED), MAX_SPEED);
+    }
+
+    /**
+     * A user's stream; only its scheduled steps touch its state, and they run one after another
+     */
+    private class ReplayStream {
+        private final String userEmail;
+        private final long gameId;
+        private volatile double speed;
+        private volatile ScheduledFuture<?> next;
+        private GameReplay replay;
+        private ReplayState state;
+
+        private ReplayStream(String userEmail, long gameId, double speed) {
+            this.userEmail = userEmail;
+            this.gameId = gameId;
+            this.speed = speed;
+        }
+
+        private void begin(int fromAction) {
+            replay = getReplay(gameId);
+            if (replay == null) {
+                finish("REPLAY_NOT_FOUND");
+                return;
+            }
+            state = replay.seek(Math.min(Math.max(fromAction, 0), replay.getActionCount()));
+            LOGGER.debug("Replaying game {} to {} from action {}", gameId, userEmail, state.getActionCount());
+            send();
+        }
+
+        private void step() {
+            replay.advance(state);
+            send();
+        }
+
+        // Send the current frame, then schedule the next action after its original delay
+        private void send() {
+            if (!isRunning()) {
+                return;
+            }
+            Map<String, Object> frame = replay.toFrame(state);
+            frame.put("speed", speed);
+            if (!webSocketService.sendMessage(userEmail, "REPLAY_FRAME", frame)) {
+                // The user left or cannot keep up
+                streams.remove(userEmail, this);
+                return;
+            }
+            if (state.getActionCount() >= replay.getActionCount()) {
+                finish(null);
+                return;
+            }
+            schedule(this::step, frameDelay());
+        }
+
+        private long frameDelay() {
+            List<GameAction> actions = replay.getRecord().actions();
+            int index = state.getActionCount();
+            long gap = index > 0
+                    ? Duration.between(actions.get(index - 1).getTimestamp(), actions.get(index).getTimestamp()).toMillis()
+                    : 0;
+            return Math.min(Math.max((long) (gap / speed), minFrameDelay), maxFrameDelay);
+        }
+
+        private void finish(String error) {
+            if (streams.remove(userEmail, this)) {
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("gameId", gameId);
+                data.put("action", state != null ? state.getActionCount() : 0);
+                if (error != null) {
+                    data.put("error", error);
+                }
+                webSocketService.sendMessage(userEmail, "REPLAY_END", data);
+            }
+        }
+
+        private void schedule(Runnable task, long delay) {
+            if (isRunning()) {
+                next = scheduler.schedule(() -> {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Replay of game {} to {} failed", gameId, userEmail, e);
+                        finish("REPLAY_FAILED");
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private boolean isRunning() {
+            return streams.get(userEmail) == this;
+        }
+
+        private void cancel() {
+            ScheduledFuture<?> future = next;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+
+/**
+ * Runs commands for each room one at a time on a shared bounded worker pool.
+ * Every room has its own mailbox; different rooms run in parallel, but a room
+ * is only ever mutated by one thread at a time, in submission order.
+ * Game state must only be read or written from inside a room command.
+ */
+@Component
+public class RoomCommandExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomCommandExecutor.class);
+
+    // Commands run per drain before the mailbox yields its worker to other rooms
+    private static final int DRAIN_BATCH_SIZE = 32;
+
+    private static final ThreadLocal<String> CURRENT_ROOM = new ThreadLocal<>();
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Value("${game.executor.threads:0}")
+    private int threads;
+
+    @Value("${game.executor.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${game.executor.mailbox-capacity:256}")
+    private int mailboxCapacity;
+
+    @Value("${game.executor.call-timeout:5000}")
+    private long callTimeout;
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor pool;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        // Each room has at most one drain task queued, so the pool queue is bounded by active rooms.
+        // When it is full the submitting thread drains the mailbox itself, which keeps rooms single-writer.
+        pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "room-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(callTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a command for a room without waiting for it
+     * @param roomId Room ID
+     * @param command Command to run
+     * @return true if queued, false if the room does not exist or its mailbox is full
+     */
+    public boolean execute(String roomId, Runnable command) {
+        boolean[] queued = {false};
+        // Queued under the map's per-key lock, so a mailbox is never retired while a command is being added
+        Mailbox mailbox = mailboxes.compute(roomId, (id, existing) -> {
+            if (existing == null) {
+                // Room IDs come from clients, only rooms that exist get a mailbox
+                if (!roomRepository.existsById(id)) {
+                    return null;
+                }
+                existing = new Mailbox(id);
+            }
+            if (existing.size.incrementAndGet() > mailboxCapacity) {
+                existing.size.decrementAndGet();
+            } else {
+                existing.commands.add(command);
+                queued[0] = true;
+            }
+            return existing;
+        });
+        if (mailbox == null) {
+            LOGGER.debug("No room {}, rejecting command", roomId);
+            return false;
+        }
+        if (!queued[0]) {
+            LOGGER.warn("Mailbox full for room: {}, rejecting command", roomId);
+            return false;
+        }
+        schedule(mailbox);
+        return true;
+    }
+
+    /**
+     * Run a command on a room's executor and wait for its result.
+     * Runs inline when already called from a command of the same room.
+     * @param roomId Room ID
+     * @param command Command to run
+     * @return Command result, or null if the room does not exist, its mailbox is full or the command failed or timed out
+     */
+    public <T> T call(String roomId, Supplier<T> command) {
+        if (roomId.equals(CURRENT_ROOM.get())) {
+            return command.get();
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        boolean queued = execute(roomId, () -> {
+            try {
+                future.complete(command.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        if (!queued) {
+            return null;
+        }
+        try {
+            return future.get(callTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            LOGGER.warn("Room command failed for room {}: {}", roomId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Retire a room's mailbox once the room has been deleted.
+     * Commands already queued still run; the mailbox is dropped once it is empty and no worker
+     * is draining it, so a room reusing the ID never runs alongside the old room's commands.
+     * @param roomId Room ID
+     */
+    public void retireRoom(String roomId) {
+        Mailbox mailbox = mailboxes.get(roomId);
+        if (mailbox != null) {
+            mailbox.retired = true;
+            removeIfIdle(mailbox);
+        }
+    }
+
+    /**
+     * Get the number of commands waiting for a room
+     * @param roomId Room ID
+     * @return Queued command count
+     */
+    public int getQueuedCommandCount(String roomId) {
+        Mailbox mailbox = mailboxes.get(roomId);
+        return mailbox != null ? mailbox.size.get() : 0;
+    }
+
+    private void schedule(Mailbox mailbox) {
+        if (mailbox.scheduled.compareAndSet(false, true)) {
+            pool.execute(() -> drain(mailbox));
+        }
+    }
+
+    private void drain(Mailbox mailbox) {
+        // A worker may drain another room inline when the pool queue is full
+        String previousRoom = CURRENT_ROOM.get();
+        CURRENT_ROOM.set(mailbox.roomId);
+        try {
+            for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+                Runnable command = mailbox.commands.poll();
+                if (command == null) {
+                    break;
+                }
+                mailbox.size.decrementAndGet();
+                try {
+                    command.run();
+                } catch (Throwable e) {
+                    LOGGER.error("Error running command for room {}", mailbox.roomId, e);
+                }
+            }
+        } finally {
+            if (previousRoom != null) {
+                CURRENT_ROOM.set(previousRoom);
+            } else {
+                CURRENT_ROOM.remove();
+            }
+            mailbox.scheduled.set(false);
+        }
+        // Commands may have arrived after the last poll and before the flag was cleared
+        if (!mailbox.commands.isEmpty()) {
+            schedule(mailbox);
+        } else if (mailbox.retired) {
+            removeIfIdle(mailbox);
+        }
+    }
+
+    // Commands are only added under the same per-key lock, so an empty unscheduled mailbox stays empty
+    private void removeIfIdle(Mailbox mailbox) {
+        mailboxes.computeIfPresent(mailbox.roomId, (id, existing) ->
+                existing == mailbox && existing.commands.isEmpty() && !existing.scheduled.get() ? null : existing);
+    }
+
+    private static class Mailbox {
+        private final String roomId;
+        private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Set once the room is deleted, the mailbox is dropped after its last command
+        private volatile boolean retired;
+
+        private Mailbox(String roomId) {
+            this.roomId = roomId;
+        }
+    }
+}
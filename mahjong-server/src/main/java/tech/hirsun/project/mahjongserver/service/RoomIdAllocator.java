@@ -0,0 +1,117 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Hands out room IDs from a free list in O(1), however full the ID space is.
+ * The free IDs are kept unordered in an array; allocating swaps a random one to the end
+ * and shrinks the list, releasing appends to it. Positions are tracked so that any ID
+ * can be taken out of the free list, e.g. when rooms are restored.
+ */
+@Component
+public class RoomIdAllocator {
+
+    // Room IDs are 1..maxRoomId, zero padded to the width of maxRoomId and at least 3 digits
+    @Value("${room.id.max:999}")
+    private int maxRoomId;
+
+    private int[] free;
+    // Index of each ID in free, -1 while the ID is in use; indexed by ID
+    private int[] position;
+    private int freeCount;
+    private String format;
+
+    @PostConstruct
+    public void init() {
+        if (maxRoomId <= 0) {
+            throw new IllegalStateException("room.id.max must be positive");
+        }
+        free = new int[maxRoomId];
+        position = new int[maxRoomId + 1];
+        position[0] = -1;
+        for (int id = 1; id <= maxRoomId; id++) {
+            free[id - 1] = id;
+            position[id] = id - 1;
+        }
+        freeCount = maxRoomId;
+        format = "%0" + Math.max(3, String.valueOf(maxRoomId).length()) + "d";
+    }
+
+    /**
+     * Allocate a random free room ID
+     * @return The room ID, or null if every ID is in use
+     */
+    public String allocate() {
+        int id;
+        synchronized (this) {
+            if (freeCount == 0) {
+                return null;
+            }
+            id = free[ThreadLocalRandom.current().nextInt(freeCount)];
+            take(id);
+        }
+        return String.format(format, id);
+    }
+
+    /**
+     * Mark a room ID as in use, for rooms that were not created through allocate
+     * @param roomId The room ID
+     * @return true if the ID was free, false if it was in use or is not a valid ID
+     */
+    public synchronized boolean reserve(String roomId) {
+        int id = parse(roomId);
+        if (id <= 0 || position[id] < 0) {
+            return false;
+        }
+        take(id);
+        return true;
+    }
+
+    /**
+     * Return a room ID to the free list once its room has been deleted
+     * @param roomId The room ID
+     */
+    public synchronized void release(String roomId) {
+        int id = parse(roomId);
+        if (id <= 0 || position[id] >= 0) {
+            return;
+        }
+        free[freeCount] = id;
+        position[id] = freeCount;
+        freeCount++;
+    }
+
+    /**
+     * @return Number of room IDs that can still be allocated
+     */
+    public synchronized int getFreeCount() {
+        return freeCount;
+    }
+
+    // Remove an ID from the free list by moving the last free ID into its place
+    private void take(int id) {
+        int index = position[id];
+        int last = free[--freeCount];
+        free[index] = last;
+        position[last] = index;
+        position[id] = -1;
+    }
+
+    // The numeric ID, or 0 if it is outside the ID space
+    private int parse(String roomId) {
+        if (roomId == null) {
+            return 0;
+        }
+        try {
+            int id = Integer.parseInt(roomId);
+            return id >= 1 && id <= maxRoomId ? id : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -1,46 +1,74 @@
 package tech.hirsun.project.mahjongserver.service;
 
-import java.util.Collection;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import tech.hirsun.project.mahjongserver.model.Game;
 import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.RoomView;
 import tech.hirsun.project.mahjongserver.model.User;
+import tech.hirsun.project.mahjongserver.persistence.GameEventLog;
 import tech.hirsun.project.mahjongserver.repository.RoomRepository;
 import tech.hirsun.project.mahjongserver.repository.UserRepository;
+import tech.hirsun.project.mahjongserver.schedule.RoomCleanupTask;
 import tech.hirsun.project.mahjongserver.util.RandomUtil;
 
 @Service
 public class RoomService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomService.class);
+
     @Autowired
     private RoomRepository roomRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private RoomCleanupTask roomCleanupTask;
+
+    @Autowired
+    private RoomIdAllocator roomIdAllocator;
+
+    @Autowired
+    private GameEventLog gameEventLog;
+
+    @Value("${room.expiration}")
+    private long roomExpiration;
+
     /**
      * Create a new room
      * @param creatorEmail Email of the room creator
-     * @return The created room
+     * @return The created room, or null if every room ID is in use
      */
     public Room createRoom(String creatorEmail) {
-        // Generate unique room ID
-        String roomId;
-        do {
-            roomId = RandomUtil.generateRoomNumber();
-        } while (roomRepository.existsById(roomId));
+        String roomId = roomIdAllocator.allocate();
+        if (roomId == null) {
+            LOGGER.warn("No free room ID, room not created for {}", creatorEmail);
+            return null;
+        }
 
         // Generate password
         String password = RandomUtil.generatePassword();
 
         // Create and save room
         Room room = new Room(roomId, password, creatorEmail);
-        return roomRepository.save(room);
+        room.setExpirationTime(room.getCreationTime().plus(Duration.ofMillis(roomExpiration)));
+        roomRepository.save(room);
+        gameEventLog.roomSaved(room);
+        roomCleanupTask.scheduleExpiry(room);
+        return room;
     }
 
     /**
@@ -53,11 +81,47 @@ public class RoomService {
     }
 
     /**
-     * Get all active rooms
-     * @return List of active rooms
+     * Get the view of a room, safe to read from any thread
+     * @param roomId Room ID
+     * @return The room's view as of its last save if found, null otherwise
+     */
+    public RoomView getRoomView(String roomId) {
+        return roomRepository.findViewById(roomId);
+    }
+
+    /**
+     * Get a page of active rooms, newest first
+     * @param status Only rooms with this status, or null for any status
+     * @param joinableOnly Only rooms that can still be joined
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of rooms to return
+     * @return Views of the rooms on the page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public List<RoomView> getActiveRooms(Room.RoomStatus status, boolean joinableOnly, String cursor, int limit) {
+        LocalDateTime afterCreationTime = null;
+        String afterRoomId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf('|');
+                afterCreationTime = LocalDateTime.parse(decoded.substring(0, separator));
+                afterRoomId = decoded.substring(separator + 1);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+        return roomRepository.findActivePage(status, joinableOnly, afterCreationTime, afterRoomId, limit);
+    }
+
+    /**
+     * Get the cursor of the page that follows a room
+     * @param room Last room of a page
+     * @return Opaque cursor for getActiveRooms
      */
-    public Collection<Room> getAllActiveRooms() {
-        return roomRepository.findAllActive();
+    public String getCursorAfter(RoomView room) {
+        String position = room.creationTime() + "|" + room.roomId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -75,6 +139,7 @@ public class RoomService {
             // Add player to room
             room.addPlayer(userEmail);
             roomRepository.save(room);
+            gameEventLog.roomSaved(room);
             return room;
         }
         
@@ -90,18 +155,18 @@ public class RoomService {
     public boolean startGame(String roomId, String userEmail) {
         Room room = roomRepository.findById(roomId);
         
-        System.out.println("StartGame request for room " + roomId + " from user " + userEmail);
+        LOGGER.debug("StartGame request for room {} from user {}", roomId, userEmail);
         
         if (room == null) {
-            System.out.println("Room not found: " + roomId);
+            LOGGER.debug("Room not found: {}", roomId);
             return false;
         }
         
         // 增加详细日志
-        System.out.println("Room status: " + room.getStatus());
-        System.out.println("Room creator: " + room.getCreatorEmail());
-        System.out.println("Player count: " + room.getPlayerEmails().size());
-        System.out.println("Current game: " + (room.getCurrentGame() != null ? "present" : "null"));
+        LOGGER.debug("Room status: {}", room.getStatus());
+        LOGGER.debug("Room creator: {}", room.getCreatorEmail());
+        LOGGER.debug("Player count: {}", room.getPlayerEmails().size());
+        LOGGER.debug("Current game: {}", room.getCurrentGame() != null ? "present" : "null");
         
         // 如果房间有游戏且游戏状态为FINISHED，但房间状态不是WAITING
         // 则自动将房间状态设置为WAITING
@@ -109,28 +174,29 @@ public class RoomService {
             room.getCurrentGame().getStatus() == Game.GameStatus.FINISHED && 
             room.getStatus() != Room.RoomStatus.WAITING) {
             
-            System.out.println("Room has finished game but status is not WAITING. Fixing status...");
+            LOGGER.debug("Room has finished game but status is not WAITING. Fixing status...");
             room.setStatus(Room.RoomStatus.WAITING);
             roomRepository.save(room);
+            gameEventLog.roomSaved(room);
         }
         
         // 检查用户是否是房主
         if (!room.getCreatorEmail().equals(userEmail)) {
-            System.out.println("User " + userEmail + " is not the creator of room " + roomId);
+            LOGGER.debug("User {} is not the creator of room {}", userEmail, roomId);
             return false;
         }
         
         // 检查游戏是否可以开始
         if (!room.canStartGame()) {
-            System.out.println("Cannot start game in room " + roomId + 
-                ". Need at least 2 players and room must be in waiting state");
+            LOGGER.debug("Cannot start game in room {}. Need at least 2 players and room must be in waiting state", roomId);
             return false;
         }
         
         // 可以开始游戏
-        System.out.println("Starting game in room " + roomId);
+        LOGGER.debug("Starting game in room {}", roomId);
         room.setStatus(Room.RoomStatus.PLAYING);
         roomRepository.save(room);
+        gameEventLog.roomSaved(room);
         return true;
     }
 
@@ -140,10 +206,13 @@ public class RoomService {
      * @return List of users in the room
      */
     public List<User> getPlayersInRoom(String roomId) {
-        Room room = roomRepository.findById(roomId);
+        RoomView room = roomRepository.findViewById(roomId);
         if (room != null) {
-            return room.getPlayerEmails().stream()
-                    .map(email -> userRepository.findByEmail(email))
+            return room.playerEmails().stream()
+                    .map(email -> {
+                        User user = userRepository.findByEmail(email);
+                        return user != null ? user : new User(email);
+                    })
                     .collect(Collectors.toList());
         }
         return List.of();
@@ -156,15 +225,7 @@ public class RoomService {
      * @return true if user is in the room, false otherwise
      */
     public boolean isUserInRoom(String roomId, String userEmail) {
-        Room room = roomRepository.findById(roomId);
-        return room != null && room.getPlayerEmails().contains(userEmail);
-    }
-
-    /**
-     * Delete expired rooms
-     * @return Number of rooms deleted
-     */
-    public int cleanupExpiredRooms() {
-        return roomRepository.deleteAllExpired();
+        RoomView room = roomRepository.findViewById(roomId);
+        return room != null && room.hasPlayer(userEmail);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,326 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+import tech.hirsun.project.mahjongserver.util.WinningHandUtil;
+
+/**
+ * Shanten (向听数) and tile acceptance hints for beginner tables.
+ * Each suit is decomposed once per distinct suit histogram: the best partial counts
+ * for every (pair, sets) combination are packed into one int and memoized in a flat
+ * table keyed by the base-5 suit key, so a full hint is mostly table lookups.
+ */
+@Service
+public class ShantenService {
+
+    // Number of honor keys (counts 0..4 for each of 7 kinds)
+    private static final int HONOR_KEY_COUNT = 78125; // 5^7
+
+    // Packed decomposition: 3 bits per (pair, sets) slot holding max partials + 1, bit 31 marks computed
+    private static final int COMPUTED = 1 << 31;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    // Memoized suit and honor decompositions, filled lazily; racy writes are idempotent
+    private final int[] suitTable = new int[WinningHandUtil.SUIT_KEY_COUNT];
+    private final int[] honorTable = new int[HONOR_KEY_COUNT];
+
+    /**
+     * Build the hint for a player: shanten, waiting tiles and the effect of every possible discard
+     * @param roomId Room ID
+     * @param userEmail User's email
+     * @return Hint data, or null if the player has no game in this room
+     */
+    public Map<String, Object> getHint(String roomId, String userEmail) {
+        Room room = roomRepository.findById(roomId);
+        if (room == null || room.getCurrentGame() == null) {
+            return null;
+        }
+        Game game = room.getCurrentGame();
+        if (game.getPlayerPosition(userEmail) < 0 || game.getStatus() != Game.GameStatus.IN_PROGRESS) {
+            return null;
+        }
+
+        int[] hand = game.getPlayerHandKindCounts(userEmail);
+        int[] revealed = game.getPlayerRevealedKindCounts(userEmail);
+        // Same sets as the win validator; revealed tiles that are not sets never help the hand
+        int fixedSets = Math.max(0, WinningHandUtil.countRevealedSets(revealed));
+        // Same rule as the win validator: any revealed tile rules out seven pairs and thirteen orphans
+        boolean concealed = Arrays.stream(revealed).allMatch(count -> count == 0);
+
+        // Tiles the player can see: own hand plus everything public
+        int[] visible = game.getPublicKindCounts();
+        for (int kind = 0; kind < TileUtil.KIND_COUNT; kind++) {
+            visible[kind] += hand[kind];
+        }
+
+        Map<String, Object> hint = new HashMap<>();
+        hint.put("roomId", roomId);
+        hint.put("shanten", shanten(hand, fixedSets, concealed));
+
+        int handSize = 0;
+        for (int count : hand) {
+            handSize += count;
+        }
+
+        if (handSize % 3 == 2) {
+            // Player must discard: evaluate each distinct tile kind in hand
+            List<Map<String, Object>> discards = new ArrayList<>();
+            int[] handCodes = game.getPlayerHandCodes(userEmail);
+            for (int kind = 0; kind < TileUtil.KIND_COUNT; kind++) {
+                if (hand[kind] == 0) {
+                    continue;
+                }
+                hand[kind]--;
+                int after = shanten(hand, fixedSets, concealed);
+                List<Integer> accepted = acceptedKinds(hand, fixedSets, concealed, after);
+                hand[kind]++;
+
+                Map<String, Object> option = new HashMap<>();
+                option.put("tile", TileUtil.toTile(firstCodeOfKind(handCodes, kind)));
+                option.put("shanten", after);
+                option.put("acceptedTiles", kindViews(accepted));
+                option.put("acceptedCount", remainingCount(accepted, visible));
+                discards.add(option);
+            }
+            discards.sort(Comparator.<Map<String, Object>>comparingInt(o -> (Integer) o.get("shanten"))
+                    .thenComparing(o -> (Integer) o.get("acceptedCount"), Comparator.reverseOrder()));
+            hint.put("discards", discards);
+        } else {
+            // Player is waiting: list the tiles that improve the hand
+            int current = (Integer) hint.get("shanten");
+            List<Integer> accepted = acceptedKinds(hand, fixedSets, concealed, current);
+            hint.put("waitingTiles", kindViews(accepted));
+            hint.put("acceptedCount", remainingCount(accepted, visible));
+        }
+        return hint;
+    }
+
+    /**
+     * Compute the shanten number of a hand; -1 means the hand is complete
+     * @param counts Kind counts of the concealed hand
+     * @param fixedSets Number of sets already revealed
+     * @param concealed Whether seven pairs and thirteen orphans are possible
+     * @return Shanten number
+     */
+    public int shanten(int[] counts, int fixedSets, boolean concealed) {
+        int result = standardShanten(counts, fixedSets);
+        if (concealed) {
+            result = Math.min(result, Math.min(sevenPairsShanten(counts), thirteenOrphansShanten(counts)));
+        }
+        return result;
+    }
+
+    private int standardShanten(int[] counts, int fixedSets) {
+        // best[pair * 5 + sets] = max partial sets, -1 if unreachable
+        int[] best = new int[10];
+        int[] next = new int[10];
+        Arrays.fill(best, -1);
+        best[Math.min(fixedSets, 4)] = 0;
+        for (int offset = 0; offset < 27; offset += 9) {
+            combine(best, suitDecomposition(WinningHandUtil.suitKey(counts, offset)), next);
+            int[] swap = best;
+            best = next;
+            next = swap;
+        }
+        combine(best, honorDecomposition(counts), next);
+        best = next;
+
+        int result = 8;
+        for (int pair = 0; pair <= 1; pair++) {
+            for (int sets = 0; sets <= 4; sets++) {
+                int partials = best[pair * 5 + sets];
+                if (partials >= 0) {
+                    result = Math.min(result, 8 - 2 * sets - Math.min(partials, 4 - sets) - pair);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Four of a kind counts as two pairs, matching WinningHandUtil.isSevenPairs
+    private int sevenPairsShanten(int[] counts) {
+        int pairs = 0;
+        for (int count : counts) {
+            pairs += count / 2;
+        }
+        return 6 - Math.min(pairs, 7);
+    }
+
+    private int thirteenOrphansShanten(int[] counts) {
+        int kinds = 0;
+        boolean pair = false;
+        for (int kind : new int[] {0, 8, 9, 17, 18, 26, 27, 28, 29, 30, 31, 32, 33}) {
+            if (counts[kind] > 0) {
+                kinds++;
+                if (counts[kind] >= 2) {
+                    pair = true;
+                }
+            }
+        }
+        return 13 - kinds - (pair ? 1 : 0);
+    }
+
+    // Kinds that lower the shanten number when drawn
+    private List<Integer> acceptedKinds(int[] hand, int fixedSets, boolean concealed, int current) {
+        List<Integer> accepted = new ArrayList<>();
+        for (int kind = 0; kind < TileUtil.KIND_COUNT; kind++) {
+            if (hand[kind] >= 4) {
+                continue;
+            }
+            hand[kind]++;
+            if (shanten(hand, fixedSets, concealed) < current) {
+                accepted.add(kind);
+            }
+            hand[kind]--;
+        }
+        return accepted;
+    }
+
+    private int remainingCount(List<Integer> kinds, int[] visible) {
+        int total = 0;
+        for (int kind : kinds) {
+            total += Math.max(0, 4 - visible[kind]);
+        }
+        return total;
+    }
+
+    private List<Map<String, Object>> kindViews(List<Integer> kinds) {
+        List<Map<String, Object>> views = new ArrayList<>(kinds.size());
+        for (int kind : kinds) {
+            Map<String, Object> view = new HashMap<>();
+            view.put("type", TileUtil.typeOfKind(kind));
+            view.put("value", TileUtil.valueOfKind(kind));
+            view.put("displayName", TileUtil.toTile(kind << 2).getDisplayName());
+            views.add(view);
+        }
+        return views;
+    }
+
+    private int firstCodeOfKind(int[] codes, int kind) {
+        for (int code : codes) {
+            if (TileUtil.kindOf(code) == kind) {
+                return code;
+            }
+        }
+        return kind << 2;
+    }
+
+    private void combine(int[] best, int packed, int[] next) {
+        Arrays.fill(next, -1);
+        for (int slot = 0; slot < 10; slot++) {
+            int partials = best[slot];
+            if (partials < 0) {
+                continue;
+            }
+            int pair = slot / 5;
+            int sets = slot % 5;
+            for (int groupSlot = 0; groupSlot < (pair == 0 ? 10 : 5); groupSlot++) {
+                int groupPartials = ((packed >>> (groupSlot * 3)) & 7) - 1;
+                if (groupPartials < 0) {
+                    continue;
+                }
+                int target = (pair + groupSlot / 5) * 5 + Math.min(sets + groupSlot % 5, 4);
+                int total = Math.min(partials + groupPartials, 4);
+                if (total > next[target]) {
+                    next[target] = total;
+                }
+            }
+        }
+    }
+
+    private int suitDecomposition(int key) {
+        int packed = suitTable[key];
+        if (packed == 0) {
+            int[] counts = new int[9];
+            WinningHandUtil.decodeSuitKey(key, counts);
+            packed = decompose(counts, true);
+            suitTable[key] = packed;
+        }
+        return packed;
+    }
+
+    private int honorDecomposition(int[] counts) {
+        int key = 0;
+        for (int kind = TileUtil.KIND_COUNT - 1; kind >= 27; kind--) {
+            key = key * 5 + counts[kind];
+        }
+        int packed = honorTable[key];
+        if (packed == 0) {
+            int[] honors = new int[7];
+            System.arraycopy(counts, 27, honors, 0, 7);
+            packed = decompose(honors, false);
+            honorTable[key] = packed;
+        }
+        return packed;
+    }
+
+    // Exhaustively split one group into sets, partial sets and an optional pair
+    private static int decompose(int[] counts, boolean sequences) {
+        int[] best = new int[10];
+        Arrays.fill(best, -1);
+        search(counts, 0, sequences, 0, 0, 0, best);
+        int packed = COMPUTED;
+        for (int slot = 0; slot < 10; slot++) {
+            packed |= (best[slot] + 1) << (slot * 3);
+        }
+        return packed;
+    }
+
+    private static void search(int[] c, int i, boolean sequences, int pair, int sets, int partials, int[] best) {
+        while (i < c.length && c[i] == 0) {
+            i++;
+        }
+        if (i == c.length) {
+            int slot = pair * 5 + Math.min(sets, 4);
+            best[slot] = Math.max(best[slot], Math.min(partials, 4));
+            return;
+        }
+        boolean canSequence = sequences && i + 2 < c.length;
+        if (c[i] >= 3) {
+            c[i] -= 3;
+            search(c, i, sequences, pair, sets + 1, partials, best);
+            c[i] += 3;
+        }
+        if (canSequence && c[i + 1] > 0 && c[i + 2] > 0) {
+            c[i]--; c[i + 1]--; c[i + 2]--;
+            search(c, i, sequences, pair, sets + 1, partials, best);
+            c[i]++; c[i + 1]++; c[i + 2]++;
+        }
+        if (c[i] >= 2) {
+            c[i] -= 2;
+            if (pair == 0) {
+                search(c, i, sequences, 1, sets, partials, best);
+            }
+            search(c, i, sequences, pair, sets, partials + 1, best);
+            c[i] += 2;
+        }
+        if (sequences && i + 1 < c.length && c[i + 1] > 0) {
+            c[i]--; c[i + 1]--;
+            search(c, i, sequences, pair, sets, partials + 1, best);
+            c[i]++; c[i + 1]++;
+        }
+        if (canSequence && c[i + 2] > 0) {
+            c[i]--; c[i + 2]--;
+            search(c, i, sequences, pair, sets, partials + 1, best);
+            c[i]++; c[i + 2]++;
+        }
+        // Leave one tile isolated
+        c[i]--;
+        search(c, i, sequences, pair, sets, partials, best);
+        c[i]++;
+    }
+}
@@ -1,31 +1,53 @@
 package tech.hirsun.project.mahjongserver.service;
 
-import java.io.IOException;
+import static tech.hirsun.project.mahjongserver.logging.SamplingTurboFilter.SAMPLED;
+
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
-import tech.hirsun.project.mahjongserver.model.Room;
+import io.micrometer.core.instrument.MeterRegistry;
+import tech.hirsun.project.mahjongserver.model.RoomView;
 import tech.hirsun.project.mahjongserver.repository.RoomRepository;
 import tech.hirsun.project.mahjongserver.repository.SessionRepository;
+import tech.hirsun.project.mahjongserver.util.BinaryProtocolUtil;
+import tech.hirsun.project.mahjongserver.util.DeflateUtil;
 
 @Service
 public class WebSocketService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketService.class);
+
     @Autowired
     private SessionRepository sessionRepository;
 
     @Autowired
     private RoomRepository roomRepository;
 
+    @Autowired
+    private OutboundMessageSender outboundMessageSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Frames at least this large are compressed for sessions that opted in
+    @Value("${websocket.compression.threshold:1024}")
+    private int compressionThreshold;
+
     private final ObjectMapper objectMapper = new ObjectMapper()
         .registerModule(new JavaTimeModule());
 
@@ -38,48 +60,58 @@ public class WebSocketService {
      */
     public boolean sendMessage(String userEmail, String type, Object data) {
         if (userEmail == null) {
-            System.err.println("Cannot send message to null user email");
+            LOGGER.warn("Cannot send message to null user email");
             return false;
         }
         
+        String roomId = data instanceof Map<?, ?> map && map.get("roomId") instanceof String id ? id : null;
+        return sendPreparedMessage(userEmail, new PreparedMessage(type, data, roomId));
+    }
+
+    // Queue a prepared message in the wire format the user's session negotiated
+    private boolean sendPreparedMessage(String userEmail, PreparedMessage prepared) {
         WebSocketSession session = sessionRepository.getSessionByUser(userEmail);
         if (session == null) {
-            System.err.println("No WebSocket session found for user: " + userEmail);
+            LOGGER.warn(SAMPLED, "No WebSocket session found for user: {}", userEmail);
+            countFailedSend("no_session");
             return false;
         }
         
         if (!session.isOpen()) {
-            System.err.println("WebSocket session is not open for user: " + userEmail);
+            LOGGER.warn(SAMPLED, "WebSocket session is not open for user: {}", userEmail);
+            countFailedSend("session_closed");
             return false;
         }
         
-        try {
-            Map<String, Object> message = new HashMap<>();
-            message.put("type", type);
-            message.put("data", data);
-            message.put("timestamp", System.currentTimeMillis());
-            
-            String payload = objectMapper.writeValueAsString(message);
-            System.out.println("Sending WebSocket message to " + userEmail + ": " + type + " (size: " + payload.length() + " bytes)");
-            
-            synchronized (session) {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(payload));
-                    return true;
-                } else {
-                    System.err.println("Session closed while trying to send message to: " + userEmail);
-                    return false;
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error sending WebSocket message to " + userEmail + ": " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        } catch (Exception e) {
-            System.err.println("Unexpected error sending WebSocket message to " + userEmail + ": " + e.getMessage());
-            e.printStackTrace();
+        WebSocketMessage<?> message = prepared.messageFor(session);
+        if (message == null) {
+            countFailedSend("encode_error");
             return false;
         }
+        
+        LOGGER.debug(SAMPLED, "Queueing WebSocket message to {}: {} (size: {} bytes)", userEmail, prepared.type, message.getPayloadLength());
+        
+        // Written by the session's outbound writer, the caller never blocks on the network
+        boolean queued = outboundMessageSender.send(session, message);
+        if (!queued) {
+            LOGGER.warn("Could not queue message to: {}, session closed or too slow", userEmail);
+            countFailedSend("rejected");
+        }
+        return queued;
+    }
+
+    private void countFailedSend(String reason) {
+        meterRegistry.counter("mahjong.ws.send.failed", "reason", reason).increment();
+    }
+
+    /**
+     * Check whether a user's session opted in to delta game state sync
+     * @param userEmail User's email
+     * @return true if the user should receive GAME_PATCH messages
+     */
+    public boolean isDeltaSync(String userEmail) {
+        WebSocketSession session = sessionRepository.getSessionByUser(userEmail);
+        return session != null && "delta".equals(session.getAttributes().get("syncMode"));
     }
 
     /**
@@ -89,10 +121,12 @@ public class WebSocketService {
      * @param data Message data
      */
     public void sendRoomMessage(String roomId, String type, Object data) {
-        Room room = roomRepository.findById(roomId);
+        RoomView room = roomRepository.findViewById(roomId);
         if (room != null) {
-            for (String userEmail : room.getPlayerEmails()) {
-                sendMessage(userEmail, type, data);
+            // Encode once per wire format, every player gets the same bytes
+            PreparedMessage prepared = new PreparedMessage(type, data, roomId);
+            for (String userEmail : room.playerEmails()) {
+                sendPreparedMessage(userEmail, prepared);
             }
         }
     }
@@ -116,7 +150,7 @@ public class WebSocketService {
                 dataMap.forEach((key, value) -> {
                     gameData.put(key.toString(), value);
                 });
-                System.out.println("Sending WIN_CLAIM with direct data access, keys: " + gameData.keySet());
+                LOGGER.debug("Sending WIN_CLAIM with direct data access, keys: {}", gameData.keySet());
             } else {
                 // 如果不是Map，仍然使用标准格式
                 gameData.put("gameData", data);
@@ -159,16 +193,109 @@ public class WebSocketService {
      * @param roomId Room ID
      */
     public void sendRoomStateUpdate(String roomId) {
-        Room room = roomRepository.findById(roomId);
+        RoomView room = roomRepository.findViewById(roomId);
         if (room != null) {
             Map<String, Object> roomData = new HashMap<>();
-            roomData.put("roomId", room.getRoomId());
-            roomData.put("status", room.getStatus().toString());
-            roomData.put("playerCount", room.getPlayerEmails().size());
-            roomData.put("creationTime", room.getCreationTime().toString());
+            roomData.put("roomId", room.roomId());
+            roomData.put("status", room.status().toString());
+            roomData.put("playerCount", room.playerEmails().size());
+            roomData.put("creationTime", room.creationTime().toString());
             roomData.put("isExpired", room.isExpired());
             
             sendRoomMessage(roomId, "ROOM_STATE_UPDATE", roomData);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * A message encoded lazily, at most once per wire format: JSON text or binary protocol,
+     * each optionally compressed for sessions that connected with ?compress=deflate.
+     */
+    private class PreparedMessage {
+        private final String type;
+        private final Object data;
+        private final String roomId;
+        private final long timestamp = System.currentTimeMillis();
+        private byte[] text;
+        // Immutable, so one instance serves every session; building it decodes the payload into a String
+        private TextMessage textMessage;
+        private byte[] binary;
+        private byte[] compressedText;
+        private byte[] compressedBinary;
+
+        private PreparedMessage(String type, Object data, String roomId) {
+            this.type = type;
+            this.data = data;
+            this.roomId = roomId;
+        }
+
+        // Build the frame for a session, or null if encoding failed; binary frames get their own buffer each time,
+        // since sending consumes it
+        private WebSocketMessage<?> messageFor(WebSocketSession session) {
+            boolean binaryProtocol = "binary".equals(session.getAttributes().get("protocol"));
+            // CONNECTED carries the dictionary, so it is never compressed
+            boolean compress = "deflate".equals(session.getAttributes().get("compress")) && !"CONNECTED".equals(type);
+            if (binaryProtocol) {
+                if (binary == null && (binary = encodeBinary()) == null) {
+                    return null;
+                }
+                if (compress && binary.length >= compressionThreshold) {
+                    if (compressedBinary == null) {
+                        long start = System.nanoTime();
+                        compressedBinary = record("binary+deflate", start, DeflateUtil.compress(binary));
+                    }
+                    return new BinaryMessage(compressedBinary);
+                }
+                return new BinaryMessage(binary);
+            }
+            if (text == null && (text = encodeText()) == null) {
+                return null;
+            }
+            if (compress && text.length >= compressionThreshold) {
+                if (compressedText == null) {
+                    long start = System.nanoTime();
+                    compressedText = record("json+deflate", start, DeflateUtil.compress(text));
+                }
+                return new BinaryMessage(compressedText);
+            }
+            if (textMessage == null) {
+                textMessage = new TextMessage(text);
+            }
+            return textMessage;
+        }
+
+        private byte[] encodeText() {
+            try {
+                Map<String, Object> message = new HashMap<>();
+                message.put("type", type);
+                message.put("data", data);
+                message.put("timestamp", timestamp);
+                long start = System.nanoTime();
+                return record("json", start, objectMapper.writeValueAsBytes(message));
+            } catch (Exception e) {
+                LOGGER.error("Error serializing WebSocket message {}", type, e);
+                return null;
+            }
+        }
+
+        private byte[] encodeBinary() {
+            try {
+                // Player emails become seat indices of the room's current game, read from its view
+                RoomView room = roomId != null ? roomRepository.findViewById(roomId) : null;
+                Map<String, Integer> seats = room != null && room.gameId() != null ? room.seats() : null;
+                long start = System.nanoTime();
+                return record("binary", start, BinaryProtocolUtil.encode(type, data, seats));
+            } catch (Exception e) {
+                LOGGER.error("Error encoding binary WebSocket message {}", type, e);
+                return null;
+            }
+        }
+
+        // Serialization time and size per message type and wire format, recorded once per encoding
+        private byte[] record(String format, long start, byte[] bytes) {
+            meterRegistry.timer("mahjong.ws.serialization", "type", type, "format", format)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meterRegistry.summary("mahjong.ws.message.bytes", "type", type, "format", format).record(bytes.length);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package tech.hirsun.project.mahjongserver.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.Tile;
+
+/**
+ * Compact binary encoding of WebSocket messages, used by clients that connect with {@code ?protocol=binary}.
+ * <p>
+ * Frame: version byte, message type (varint index into the type table, 0 = inline string),
+ * then for server frames the timestamp as a zigzag varint of milliseconds since {@link #EPOCH},
+ * then the data value.
+ * <p>
+ * Values are tagged. Tiles are one byte (tile code = id - 1), lists of tiles one byte per tile,
+ * players seated in the room's current game are one byte (seat index from {@code playerPositions}),
+ * and date-times are millisecond deltas from {@link #EPOCH}. Map keys are a varint: 0 = inline string,
+ * 1..4 = seat index + 1, larger values index the key table. {@code playerPositions} itself always
+ * uses inline keys so clients can build the seat table from it.
+ */
+public class BinaryProtocolUtil {
+
+    public static final int VERSION = 1;
+
+    /** Instant binary timestamps are relative to; clients receive it in CONNECTED */
+    public static final long EPOCH = System.currentTimeMillis();
+
+    // Value tags
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INT = 3;
+    private static final int DOUBLE = 4;
+    private static final int STRING = 5;
+    private static final int LIST = 6;
+    private static final int MAP = 7;
+    private static final int TILE = 8;
+    private static final int TILE_LIST = 9;
+    private static final int SEAT = 10;
+    private static final int TIME = 11;
+
+    // Append only: indexes are part of the protocol
+    private static final String[] MESSAGE_TYPES = {
+        "CONNECTED", "ERROR", "GAME_STATE", "GAME_PATCH", "ACTION", "TILE_DRAWN",
+        "GAME_STARTED", "GAME_END", "WIN_CLAIM", "WIN_DENIED", "SYSTEM_NOTIFICATION",
+        "ROOM_STATE_UPDATE", "USER_JOINED", "HINT",
+        "JOIN_ROOM", "LEAVE_ROOM", "START_GAME", "DRAW_TILE", "DISCARD_TILE", "TAKE_TILE",
+        "REVEAL_TILES", "HIDE_TILES", "CLAIM_WIN", "CONFIRM_WIN", "GET_GAME_STATE", "SYNC",
+        "SET_HINTS", "GET_HINT",
+        "REPLAY_FRAME", "REPLAY_END", "REPLAY_START", "REPLAY_SPEED", "REPLAY_STOP"
+    };
+
+    // Append only: indexes are part of the protocol
+    private static final String[] KEYS = {
+        "type", "data", "timestamp", "roomId", "status", "remainingTiles", "dealerEmail",
+        "gameId", "version", "actionSeq", "playerPositions", "hand", "revealedTiles",
+        "playerHandCounts", "discardPile", "recentActions", "winnerEmail", "isDraw",
+        "pendingWinner", "winConfirmations", "seq", "playerEmail", "tile", "tileId", "tileIds",
+        "gameData", "message", "code", "time", "fromVersion", "moves", "actions", "from", "to",
+        "fromSeat", "toSeat", "shanten", "discards", "waitingTiles", "acceptedTiles",
+        "acceptedCount", "value", "id", "displayName", "requestId", "enabled", "confirm",
+        "claimerEmail", "handTiles", "playerCount", "userEmail", "epoch", "protocol",
+        "action", "actionCount", "lastAction", "hands", "playerEmails", "speed", "fromAction", "error"
+    };
+
+    private static final Map<String, Integer> MESSAGE_TYPE_INDEX = index(MESSAGE_TYPES);
+    private static final Map<String, Integer> KEY_INDEX = index(KEYS);
+
+    private static final int SEAT_KEYS = 4;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule());
+
+    /**
+     * A decoded client frame
+     */
+    public static class Frame {
+        private final String type;
+        private final Object data;
+
+        private Frame(String type, Object data) {
+            this.type = type;
+            this.data = data;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Object getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Encode a server message
+     * @param type Message type
+     * @param data Message data
+     * @param seats Seat index by player email for the room the message belongs to, or null
+     * @return Encoded frame
+     */
+    public static byte[] encode(String type, Object data, Map<String, Integer> seats) {
+        Writer out = new Writer();
+        out.writeByte(VERSION);
+        writeName(out, type, MESSAGE_TYPE_INDEX);
+        out.writeVarLong(zigzag(System.currentTimeMillis() - EPOCH));
+        writeValue(out, data, seats);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a client frame: version byte, message type, data value.
+     * Tiles decode to maps with id, type and value so commands read the same as JSON ones.
+     * @param buffer Frame payload
+     * @return Decoded frame
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static Frame decode(ByteBuffer buffer) {
+        try {
+            int version = buffer.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary protocol version: " + version);
+            }
+            String type = readName(buffer, MESSAGE_TYPES);
+            Object data = buffer.hasRemaining() ? readValue(buffer) : null;
+            return new Frame(type, data);
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            throw new IllegalArgumentException("Malformed binary frame", e);
+        }
+    }
+
+    private static void writeValue(Writer out, Object value, Map<String, Integer> seats) {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            out.writeVarLong(zigzag(((Number) value).longValue()));
+        } else if (value instanceof Number n) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToLongBits(n.doubleValue()));
+        } else if (value instanceof String s) {
+            Integer seat = seats != null ? seats.get(s) : null;
+            if (seat != null) {
+                out.writeByte(SEAT);
+                out.writeByte(seat);
+            } else {
+                out.writeByte(STRING);
+                out.writeString(s);
+            }
+        } else if (value instanceof Enum<?> e) {
+            out.writeByte(STRING);
+            out.writeString(e.name());
+        } else if (value instanceof Tile tile) {
+            out.writeByte(TILE);
+            out.writeByte(tile.getId() - 1);
+        } else if (value instanceof LocalDateTime time) {
+            out.writeByte(TIME);
+            out.writeVarLong(zigzag(time.atZone(ZONE).toInstant().toEpochMilli() - EPOCH));
+        } else if (value instanceof Instant instant) {
+            out.writeByte(TIME);
+            out.writeVarLong(zigzag(instant.toEpochMilli() - EPOCH));
+        } else if (value instanceof Collection<?> collection) {
+            writeCollection(out, collection, seats);
+        } else if (value instanceof Map<?, ?> map) {
+            writeMap(out, map, seats);
+        } else if (value instanceof GameAction action) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("seq", action.getSeq());
+            fields.put("playerEmail", action.getPlayerEmail());
+            fields.put("type", action.getType());
+            fields.put("data", action.getData());
+            fields.put("timestamp", action.getTimestamp());
+            writeMap(out, fields, seats);
+        } else {
+            // Other objects go through their JSON shape
+            writeValue(out, OBJECT_MAPPER.convertValue(value, Map.class), seats);
+        }
+    }
+
+    private static void writeCollection(Writer out, Collection<?> collection, Map<String, Integer> seats) {
+        boolean tiles = !collection.isEmpty();
+        for (Object element : collection) {
+            if (!(element instanceof Tile)) {
+                tiles = false;
+                break;
+            }
+        }
+        out.writeByte(tiles ? TILE_LIST : LIST);
+        out.writeVarLong(collection.size());
+        for (Object element : collection) {
+            if (tiles) {
+                out.writeByte(((Tile) element).getId() - 1);
+            } else {
+                writeValue(out, element, seats);
+            }
+        }
+    }
+
+    private static void writeMap(Writer out, Map<?, ?> map, Map<String, Integer> seats) {
+        // A tile that went through its JSON shape
+        if (map.size() == 4 && map.get("id") instanceof Number id
+                && map.containsKey("type") && map.containsKey("value") && map.containsKey("displayName")) {
+            out.writeByte(TILE);
+            out.writeByte(id.intValue() - 1);
+            return;
+        }
+        out.writeByte(MAP);
+        out.writeVarLong(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Integer seat = seats != null ? seats.get(key) : null;
+            Integer keyIndex = KEY_INDEX.get(key);
+            if (seat != null) {
+                out.writeVarLong(1 + seat);
+            } else if (keyIndex != null) {
+                out.writeVarLong(1 + SEAT_KEYS + keyIndex);
+            } else {
+                out.writeVarLong(0);
+                out.writeString(key);
+            }
+            // The seat table is sent with inline keys
+            writeValue(out, entry.getValue(), "playerPositions".equals(key) ? null : seats);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        int tag = in.get() & 0xFF;
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case INT:
+                return unzigzag(readVarLong(in));
+            case DOUBLE:
+                return Double.longBitsToDouble(in.getLong());
+            case STRING:
+                return readString(in);
+            case LIST: {
+                int count = readCount(in);
+                List<Object> list = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case MAP: {
+                int count = readCount(in);
+                Map<String, Object> map = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String key = readName(in, null);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case TILE:
+                return tileView(in.get() & 0xFF);
+            case TILE_LIST: {
+                int count = readCount(in);
+                List<Object> tiles = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    tiles.add(tileView(in.get() & 0xFF));
+                }
+                return tiles;
+            }
+            case TIME:
+                return EPOCH + unzigzag(readVarLong(in));
+            case SEAT:
+                throw new IllegalArgumentException("Seat values are not accepted from clients");
+            default:
+                throw new IllegalArgumentException("Unknown value tag: " + tag);
+        }
+    }
+
+    private static Map<String, Object> tileView(int code) {
+        Tile tile = TileUtil.toTile(code);
+        Map<String, Object> view = new HashMap<>();
+        view.put("id", tile.getId());
+        view.put("type", tile.getType().name());
+        view.put("value", tile.getValue());
+        return view;
+    }
+
+    private static void writeName(Writer out, String name, Map<String, Integer> table) {
+        Integer index = table.get(name);
+        if (index != null) {
+            out.writeVarLong(index + 1);
+        } else {
+            out.writeVarLong(0);
+            out.writeString(name);
+        }
+    }
+
+    // Read a message type (table given) or a map key (table null)
+    private static String readName(ByteBuffer in, String[] table) {
+        // An index into a table, bounded by the table rather than by the frame length
+        long index = readVarLong(in);
+        if (index == 0) {
+            return readString(in);
+        }
+        if (table != null) {
+            if (index < 0 || index > table.length) {
+                throw new IllegalArgumentException("Unknown message type index: " + index);
+            }
+            return table[(int) index - 1];
+        }
+        if (index > 0 && index <= SEAT_KEYS) {
+            throw new IllegalArgumentException("Seat keys are not accepted from clients");
+        }
+        if (index < 0 || index - SEAT_KEYS > KEYS.length) {
+            throw new IllegalArgumentException("Unknown key index: " + index);
+        }
+        return KEYS[(int) index - SEAT_KEYS - 1];
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readCount(in);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(ByteBuffer in) {
+        long count = readVarLong(in);
+        if (count < 0 || count > in.capacity()) {
+            throw new IllegalArgumentException("Invalid length: " + count);
+        }
+        return (int) count;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get() & 0xFF;
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static Map<String, Integer> index(String[] names) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+        }
+        return index;
+    }
+
+    // Growable byte buffer, avoids ByteArrayOutputStream's synchronization
+    private static class Writer {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private void writeByte(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        private void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (v >>> shift);
+            }
+        }
+
+        private void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[length++] = (byte) v;
+        }
+
+        private void writeString(String s) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package tech.hirsun.project.mahjongserver.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Application-level frame compression for clients that connect with {@code ?compress=deflate}.
+ * Frames are zlib streams using a preset dictionary built from the message vocabulary
+ * (message types, keys, enum values and the JSON of every tile kind), so even a single
+ * GAME_STATE compresses well. Clients receive the dictionary text in CONNECTED; the zlib
+ * header carries its Adler-32 id.
+ */
+public class DeflateUtil {
+
+    /** Preset dictionary as sent to clients */
+    public static final String DICTIONARY_TEXT = buildDictionary();
+
+    private static final byte[] DICTIONARY = DICTIONARY_TEXT.getBytes(StandardCharsets.UTF_8);
+
+    // Deflaters hold native buffers, so each thread reuses one
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION));
+
+    /**
+     * Compress a frame payload with the preset dictionary
+     * @param payload Payload bytes
+     * @return zlib stream
+     */
+    public static byte[] compress(byte[] payload) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(payload);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, payload.length / 2)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    // zlib favours matches near the end of the dictionary, so the most frequent strings come last
+    private static String buildDictionary() {
+        StringBuilder dictionary = new StringBuilder();
+        dictionary.append("\"gameData\":{\"message\":\"time\":\"code\":\"ERROR\",\"SYSTEM_NOTIFICATION\"");
+        dictionary.append("\"ROOM_STATE_UPDATE\",\"playerCount\":\"creationTime\":\"isExpired\":false,");
+        dictionary.append("\"WIN_CLAIM\",\"claimerEmail\":\"handTiles\":[\"WIN_DENIED\",\"GAME_END\",\"isDraw\":");
+        dictionary.append("\"pendingWinner\":\"winConfirmations\":{\"winnerEmail\":null,\"requestId\":");
+        dictionary.append("\"GAME_PATCH\",\"fromVersion\":\"moves\":[{\"from\":\"WALL\",\"to\":\"HAND\",");
+        dictionary.append("\"fromSeat\":\"toSeat\":\"DISCARD\",\"REVEALED\",\"actions\":[");
+        dictionary.append("{\"seq\":\"playerEmail\":\"type\":\"DRAW\",\"DISCARD\",\"TAKE_TILE\",\"REVEAL_TILES\",");
+        dictionary.append("\"HIDE_TILES\",\"CLAIM_WIN\",\"CONFIRM_WIN\",\"DENY_WIN\",\"data\":null,\"timestamp\":[");
+        dictionary.append("{\"type\":\"GAME_STATE\",\"data\":{\"roomId\":\"status\":\"IN_PROGRESS\",");
+        dictionary.append("\"remainingTiles\":\"dealerEmail\":\"gameId\":\"version\":\"actionSeq\":");
+        dictionary.append("\"playerPositions\":{\"playerHandCounts\":{\"recentActions\":[");
+        dictionary.append("\"revealedTiles\":{\"discardPile\":[\"hand\":[");
+        ObjectMapper objectMapper = new ObjectMapper();
+        try {
+            for (int kind = 0; kind < TileUtil.KIND_COUNT; kind++) {
+                String json = objectMapper.writeValueAsString(TileUtil.toTile(kind << 2));
+                // Keep the part before the per-tile id, plus the display name
+                int idStart = json.indexOf("\"id\":");
+                dictionary.append(json, 0, idStart + 5);
+                dictionary.append(json.substring(json.indexOf(',', idStart)));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot build compression dictionary", e);
+        }
+        return dictionary.toString();
+    }
+}
@@ -2,7 +2,10 @@ package tech.hirsun.project.mahjongserver.util;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -21,6 +24,14 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    // Verified claims by token, so each token's signature is checked once in its lifetime
+    @Value("${jwt.cache.max-size:10000}")
+    private int cacheMaxSize = 10000;
+
+    private final Map<String, VerifiedToken> verifiedClaims = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
     public String extractEmail(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -35,7 +46,59 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(secret.getBytes()).parseClaimsJws(token).getBody();
+        VerifiedToken verified = verifiedClaims.get(token);
+        if (verified != null) {
+            if (verified.expiresAt() > System.currentTimeMillis()) {
+                cacheHits.increment();
+                return verified.claims();
+            }
+            // Parsing again throws the same ExpiredJwtException as an uncached token
+            verifiedClaims.remove(token);
+        }
+        cacheMisses.increment();
+        Claims claims = Jwts.parser().setSigningKey(secret.getBytes()).parseClaimsJws(token).getBody();
+        if (verifiedClaims.size() >= cacheMaxSize) {
+            evictClaims();
+        }
+        Date expiresAt = claims.getExpiration();
+        verifiedClaims.put(token, new VerifiedToken(claims, expiresAt != null ? expiresAt.getTime() : Long.MAX_VALUE));
+        return claims;
+    }
+
+    // Drop expired tokens, or every other entry if the cache is full of live ones
+    private void evictClaims() {
+        long now = System.currentTimeMillis();
+        verifiedClaims.values().removeIf(verified -> verified.expiresAt() <= now);
+        if (verifiedClaims.size() >= cacheMaxSize) {
+            int index = 0;
+            for (Iterator<VerifiedToken> it = verifiedClaims.values().iterator(); it.hasNext(); index++) {
+                it.next();
+                if (index % 2 == 0) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of token lookups answered from the verified claims cache
+     */
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return Number of token lookups that had to parse and verify the token
+     */
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * @return Number of tokens in the verified claims cache
+     */
+    public int getCacheSize() {
+        return verifiedClaims.size();
     }
 
     private Boolean isTokenExpired(String token) {
@@ -64,4 +127,7 @@ public class JwtUtil {
             return false;
         }
     }
-} 
\ No newline at end of file
+
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
+}
@@ -1,100 +1,178 @@
 package tech.hirsun.project.mahjongserver.util;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import tech.hirsun.project.mahjongserver.model.Tile;
 import tech.hirsun.project.mahjongserver.model.Tile.TileType;
+import tech.hirsun.project.mahjongserver.model.Wall;
 
 public class TileUtil {
 
+    /** Number of physical tiles in a full set */
+    public static final int TILE_COUNT = 136;
+
+    /** Number of distinct tile kinds (27 suited + 4 winds + 3 dragons) */
+    public static final int KIND_COUNT = 34;
+
+    /** Number of longs needed to hold one bit per physical tile */
+    public static final int TILE_SET_WORDS = (TILE_COUNT + 63) / 64;
+
+    // Shared DTO views indexed by tile code, built once
+    private static final Tile[] TILES = new Tile[TILE_COUNT];
+
+    static {
+        for (int code = 0; code < TILE_COUNT; code++) {
+            int kind = kindOf(code);
+            TILES[code] = new Tile(typeOfKind(kind), valueOfKind(kind), idOf(code));
+        }
+    }
+
     /**
-     * Creates a complete set of mahjong tiles (136 tiles)
-     * @return List of all tiles
+     * Gets the kind index (0..33) of a tile code.
+     * Kinds 0-8 are 万, 9-17 筒, 18-26 条, 27-30 风, 31-33 箭
+     * @param code Tile code (0..135)
+     * @return Kind index
      */
-    public static List<Tile> createFullSet() {
-        List<Tile> tiles = new ArrayList<>(136);
-        int id = 1;
-
-        // Create 万子 (Characters) - 9 values, 4 copies each
-        for (int i = 1; i <= 9; i++) {
-            for (int j = 0; j < 4; j++) {
-                tiles.add(new Tile(TileType.WAN, i, id++));
-            }
-        }
+    public static int kindOf(int code) {
+        return code >> 2;
+    }
 
-        // Create 筒子 (Dots) - 9 values, 4 copies each
-        for (int i = 1; i <= 9; i++) {
-            for (int j = 0; j < 4; j++) {
-                tiles.add(new Tile(TileType.TONG, i, id++));
-            }
-        }
+    /**
+     * Converts a wire tile ID (1..136) to its engine code (0..135)
+     * @param tileId Tile ID as sent to clients
+     * @return Tile code, or -1 if the ID is out of range
+     */
+    public static int codeOf(int tileId) {
+        return tileId >= 1 && tileId <= TILE_COUNT ? tileId - 1 : -1;
+    }
 
-        // Create 条子 (Bamboo) - 9 values, 4 copies each
-        for (int i = 1; i <= 9; i++) {
-            for (int j = 0; j < 4; j++) {
-                tiles.add(new Tile(TileType.TIAO, i, id++));
-            }
+    /**
+     * Converts a tile DTO to its engine code, checking that type and value match the ID
+     * @param tile Tile received from a client
+     * @return Tile code, or -1 if the tile is not part of a full set
+     */
+    public static int codeOf(Tile tile) {
+        if (tile == null) {
+            return -1;
         }
-
-        // Create 风牌 (Winds) - 4 values (东南西北), 4 copies each
-        for (int i = 1; i <= 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                tiles.add(new Tile(TileType.FENG, i, id++));
-            }
+        int code = codeOf(tile.getId());
+        if (code < 0) {
+            return -1;
         }
+        int kind = kindOf(code);
+        return typeOfKind(kind) == tile.getType() && valueOfKind(kind) == tile.getValue() ? code : -1;
+    }
 
-        // Create 箭牌 (Dragons) - 3 values (中发白), 4 copies each
-        for (int i = 1; i <= 3; i++) {
-            for (int j = 0; j < 4; j++) {
-                tiles.add(new Tile(TileType.JIAN, i, id++));
-            }
-        }
+    /**
+     * Converts an engine code (0..135) to the wire tile ID (1..136)
+     * @param code Tile code
+     * @return Tile ID
+     */
+    public static int idOf(int code) {
+        return code + 1;
+    }
+
+    /**
+     * Gets the shared DTO view of a tile code.
+     * The returned instance is shared and must not be modified.
+     * @param code Tile code (0..135)
+     * @return Tile view
+     */
+    public static Tile toTile(int code) {
+        return TILES[code];
+    }
 
-        return tiles;
+    /**
+     * Gets the tile type of a kind index
+     * @param kind Kind index (0..33)
+     * @return Tile type
+     */
+    public static TileType typeOfKind(int kind) {
+        if (kind < 9) return TileType.WAN;
+        if (kind < 18) return TileType.TONG;
+        if (kind < 27) return TileType.TIAO;
+        if (kind < 31) return TileType.FENG;
+        return TileType.JIAN;
     }
 
     /**
-     * Shuffles the provided list of tiles
-     * @param tiles The tiles to shuffle
-     * @return Shuffled tiles
+     * Gets the face value of a kind index (1-9 for suits, 1-4 for winds, 1-3 for dragons)
+     * @param kind Kind index (0..33)
+     * @return Face value
      */
-    public static List<Tile> shuffle(List<Tile> tiles) {
-        List<Tile> shuffled = new ArrayList<>(tiles);
-        Collections.shuffle(shuffled);
-        return shuffled;
+    public static int valueOfKind(int kind) {
+        if (kind < 27) return kind % 9 + 1;
+        if (kind < 31) return kind - 26;
+        return kind - 30;
     }
 
     /**
-     * Deals initial tiles to players
-     * @param tiles The deck to deal from
+     * Creates a shuffled wall of all tile codes
+     * @return Shuffled wall
+     */
+    public static Wall shuffledWall() {
+        return shuffledWall(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Creates a shuffled wall of all tile codes
+     * @param random Source of randomness
+     * @return Shuffled wall
+     */
+    public static Wall shuffledWall(Random random) {
+        byte[] codes = new byte[TILE_COUNT];
+        for (int i = 0; i < TILE_COUNT; i++) {
+            codes[i] = (byte) i;
+        }
+        // Fisher-Yates shuffle
+        for (int i = TILE_COUNT - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte tmp = codes[i];
+            codes[i] = codes[j];
+            codes[j] = tmp;
+        }
+        return new Wall(codes);
+    }
+
+    /**
+     * Deals initial tiles to players from the head of the wall
+     * @param wall The wall to deal from
      * @param playerCount Number of players
      * @param dealerIndex Index of the dealer
-     * @return List of hands for each player (dealer gets 14 tiles, others get 13)
+     * @return Tile codes of each player's hand as unsigned bytes (dealer gets 14 tiles, others get 13)
      */
-    public static List<List<Tile>> dealInitialTiles(List<Tile> tiles, int playerCount, int dealerIndex) {
-        List<List<Tile>> playerHands = new ArrayList<>(playerCount);
-        
-        // Initialize empty hands for each player
-        for (int i = 0; i < playerCount; i++) {
-            playerHands.add(new ArrayList<>());
+    public static byte[][] dealInitialTiles(Wall wall, int playerCount, int dealerIndex) {
+        byte[][] playerHands = new byte[playerCount][];
+        for (int player = 0; player < playerCount; player++) {
+            playerHands[player] = new byte[player == dealerIndex ? 14 : 13];
         }
+        int[] dealt = new int[playerCount];
         
         // Deal 13 tiles to each player
         for (int round = 0; round < 13; round++) {
             for (int player = 0; player < playerCount; player++) {
-                if (!tiles.isEmpty()) {
-                    playerHands.get(player).add(tiles.remove(0));
+                int code = wall.draw();
+                if (code >= 0) {
+                    playerHands[player][dealt[player]++] = (byte) code;
                 }
             }
         }
         
         // Give dealer an extra tile
-        if (!tiles.isEmpty() && dealerIndex >= 0 && dealerIndex < playerCount) {
-            playerHands.get(dealerIndex).add(tiles.remove(0));
+        if (dealerIndex >= 0 && dealerIndex < playerCount) {
+            int code = wall.draw();
+            if (code >= 0) {
+                playerHands[dealerIndex][dealt[dealerIndex]++] = (byte) code;
+            }
         }
         
+        for (int player = 0; player < playerCount; player++) {
+            if (dealt[player] < playerHands[player].length) {
+                playerHands[player] = Arrays.copyOf(playerHands[player], dealt[player]);
+            }
+        }
         return playerHands;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,215 @@
+package tech.hirsun.project.mahjongserver.util;
+
+import java.util.BitSet;
+
+/**
+ * Winning hand (和牌) checks driven by precomputed per-suit lookup tables.
+ * A suit is keyed by its 9 kind counts in base 5; the tables record which suit
+ * patterns split fully into sets (顺子/刻子), with or without exactly one pair.
+ * A full check is then a handful of table lookups.
+ */
+public class WinningHandUtil {
+
+    /** Number of distinct suit keys (counts 0..4 for each of 9 kinds) */
+    public static final int SUIT_KEY_COUNT = 1953125; // 5^9
+
+    // Suit patterns made only of sets
+    private static final BitSet SETS_ONLY = new BitSet(SUIT_KEY_COUNT);
+
+    // Suit patterns made of sets plus exactly one pair
+    private static final BitSet SETS_AND_PAIR = new BitSet(SUIT_KEY_COUNT);
+
+    // Kind indexes of terminals and honors for 十三幺
+    private static final int[] ORPHAN_KINDS = {0, 8, 9, 17, 18, 26, 27, 28, 29, 30, 31, 32, 33};
+
+    static {
+        int[] counts = new int[9];
+        buildTable(counts, 0, 0);
+        // Add one pair on top of every sets-only pattern
+        for (int key = SETS_ONLY.nextSetBit(0); key >= 0; key = SETS_ONLY.nextSetBit(key + 1)) {
+            decodeSuitKey(key, counts);
+            for (int kind = 0; kind < 9; kind++) {
+                if (counts[kind] <= 2) {
+                    counts[kind] += 2;
+                    SETS_AND_PAIR.set(suitKey(counts, 0));
+                    counts[kind] -= 2;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the base-5 key of the 9 counts starting at offset
+     * @param counts Kind counts
+     * @param offset Index of the first kind of the suit (0, 9 or 18)
+     * @return Suit key
+     */
+    public static int suitKey(int[] counts, int offset) {
+        int key = 0;
+        for (int i = offset + 8; i >= offset; i--) {
+            key = key * 5 + counts[i];
+        }
+        return key;
+    }
+
+    /**
+     * Decode a suit key into 9 counts
+     * @param key Suit key
+     * @param counts Array receiving the 9 counts
+     */
+    public static void decodeSuitKey(int key, int[] counts) {
+        for (int i = 0; i < 9; i++) {
+            counts[i] = key % 5;
+            key /= 5;
+        }
+    }
+
+    /**
+     * Count the sets (副露) formed by revealed tiles.
+     * A kind revealed four times is a kong and counts as one set; the rest must split fully
+     * into pungs and chows, otherwise the revealed tiles are not melds.
+     * @param revealedCounts Kind counts of the revealed tiles
+     * @return Number of sets, or -1 if the revealed tiles do not form sets
+     */
+    public static int countRevealedSets(int[] revealedCounts) {
+        int[] counts = new int[TileUtil.KIND_COUNT];
+        int kongs = 0;
+        int total = 0;
+        for (int kind = 0; kind < TileUtil.KIND_COUNT; kind++) {
+            if (revealedCounts[kind] == 4) {
+                kongs++;
+            } else {
+                counts[kind] = revealedCounts[kind];
+                total += counts[kind];
+            }
+        }
+        if (total % 3 != 0) {
+            return -1;
+        }
+        for (int offset = 0; offset < 27; offset += 9) {
+            if (!SETS_ONLY.get(suitKey(counts, offset))) {
+                return -1;
+            }
+        }
+        for (int kind = 27; kind < TileUtil.KIND_COUNT; kind++) {
+            if (counts[kind] != 0 && counts[kind] != 3) {
+                return -1;
+            }
+        }
+        return kongs + total / 3;
+    }
+
+    /**
+     * Check whether a concealed hand plus revealed tiles form a winning hand.
+     * The revealed tiles must form sets on their own, see {@link #countRevealedSets}; the
+     * concealed hand then has to complete the remaining sets and the pair.
+     * Seven pairs (七对) and thirteen orphans (十三幺) are only accepted with nothing revealed.
+     * @param handCounts Kind counts of the concealed hand
+     * @param revealedCounts Kind counts of the revealed tiles
+     * @return true if the tiles form a winning hand
+     */
+    public static boolean isWinningHand(int[] handCounts, int[] revealedCounts) {
+        int revealedSets = countRevealedSets(revealedCounts);
+        if (revealedSets < 0 || revealedSets > 4) {
+            return false;
+        }
+        int total = 0;
+        for (int kind = 0; kind < TileUtil.KIND_COUNT; kind++) {
+            total += handCounts[kind];
+        }
+        if (total != (4 - revealedSets) * 3 + 2) {
+            return false;
+        }
+        return isStandardWin(handCounts)
+                || (revealedSets == 0 && (isSevenPairs(handCounts) || isThirteenOrphans(handCounts)));
+    }
+
+    /**
+     * Check for sets and a pair
+     * @param counts Kind counts totalling 3n + 2 with n at most 4
+     */
+    public static boolean isStandardWin(int[] counts) {
+        boolean pairUsed = false;
+        for (int offset = 0; offset < 27; offset += 9) {
+            int key = suitKey(counts, offset);
+            if (SETS_ONLY.get(key)) {
+                continue;
+            }
+            if (pairUsed || !SETS_AND_PAIR.get(key)) {
+                return false;
+            }
+            pairUsed = true;
+        }
+        // Honors can only form triplets or the pair
+        for (int kind = 27; kind < TileUtil.KIND_COUNT; kind++) {
+            int count = counts[kind];
+            if (count == 0 || count == 3) {
+                continue;
+            }
+            if (pairUsed || count != 2) {
+                return false;
+            }
+            pairUsed = true;
+        }
+        return pairUsed;
+    }
+
+    /**
+     * Check for seven pairs; four of a kind counts as two pairs
+     * @param counts Kind counts totalling 14
+     */
+    public static boolean isSevenPairs(int[] counts) {
+        for (int kind = 0; kind < TileUtil.KIND_COUNT; kind++) {
+            if ((counts[kind] & 1) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check for thirteen orphans
+     * @param counts Kind counts totalling 14
+     */
+    public static boolean isThirteenOrphans(int[] counts) {
+        int orphanTotal = 0;
+        for (int kind : ORPHAN_KINDS) {
+            if (counts[kind] == 0) {
+                return false;
+            }
+            orphanTotal += counts[kind];
+        }
+        return orphanTotal == 14;
+    }
+
+    // Enumerate every combination of up to 4 sets, starting from set index `first` to skip permutations
+    private static void buildTable(int[] counts, int first, int sets) {
+        SETS_ONLY.set(suitKey(counts, 0));
+        if (sets == 4) {
+            return;
+        }
+        // Set indexes 0-8 are triplets, 9-15 are sequences starting at kind index - 9
+        for (int set = first; set < 16; set++) {
+            if (set < 9) {
+                if (counts[set] > 1) {
+                    continue;
+                }
+                counts[set] += 3;
+                buildTable(counts, set, sets + 1);
+                counts[set] -= 3;
+            } else {
+                int start = set - 9;
+                if (counts[start] == 4 || counts[start + 1] == 4 || counts[start + 2] == 4) {
+                    continue;
+                }
+                counts[start]++;
+                counts[start + 1]++;
+                counts[start + 2]++;
+                buildTable(counts, set, sets + 1);
+                counts[start]--;
+                counts[start + 1]--;
+                counts[start + 2]--;
+            }
+        }
+    }
+}
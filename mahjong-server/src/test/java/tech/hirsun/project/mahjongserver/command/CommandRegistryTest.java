@@ -0,0 +1,120 @@
+package tech.hirsun.project.mahjongserver.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import tech.hirsun.project.mahjongserver.model.Tile;
+
+class CommandRegistryTest {
+
+    private final CommandRegistry commandRegistry = new CommandRegistry();
+
+    private final List<String> handled = new ArrayList<>();
+
+    @BeforeEach
+    void register() {
+        // Same defaults as the application's ObjectMapper
+        ReflectionTestUtils.setField(commandRegistry, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        commandRegistry.register("DRAW_TILE", RoomCommand.class,
+                (userEmail, command) -> handled.add(userEmail + " draws in " + command.roomId()));
+        commandRegistry.register("DISCARD_TILE", DiscardTileCommand.class, (userEmail, command) -> { });
+        commandRegistry.register("REVEAL_TILES", TileIdsCommand.class, (userEmail, command) -> { });
+        commandRegistry.register("CONFIRM_WIN", ConfirmWinCommand.class, (userEmail, command) -> { });
+    }
+
+    private CommandDecodeException failure(String payload) {
+        return assertThrows(CommandDecodeException.class, () -> commandRegistry.decode(payload));
+    }
+
+    @Test
+    void bindsDataAfterTypeFromTheStream() {
+        CommandRegistry.DecodedCommand<?> decoded = commandRegistry.decode(
+                "{\"type\":\"DISCARD_TILE\",\"data\":{\"roomId\":\"001\",\"tile\":{\"type\":\"WAN\",\"value\":3,\"id\":9}}}");
+
+        assertEquals("DISCARD_TILE", decoded.getType());
+        assertEquals(new DiscardTileCommand("001", new Tile(Tile.TileType.WAN, 3, 9)), decoded.getCommand());
+    }
+
+    @Test
+    void buffersDataSentBeforeType() {
+        String payload = "{\"data\":{\"roomId\":\"001\",\"tileIds\":[5,6,7]},\"type\":\"REVEAL_TILES\"}";
+
+        TileIdsCommand command = assertInstanceOf(TileIdsCommand.class, commandRegistry.decode(payload).getCommand());
+        assertEquals(new TileIdsCommand("001", List.of(5, 6, 7)), command);
+    }
+
+    @Test
+    void skipsOtherFieldsAndRunsTheHandler() {
+        CommandRegistry.DecodedCommand<?> decoded = commandRegistry.decode(
+                "{\"id\":{\"nested\":[1,{\"deep\":true}]},\"type\":\"DRAW_TILE\",\"data\":{\"roomId\":\"001\",\"extra\":[1]}}");
+
+        decoded.handle("a@example.com");
+        assertEquals(List.of("a@example.com draws in 001"), handled);
+    }
+
+    @Test
+    void rejectsUnknownTypesInEitherFieldOrder() {
+        assertEquals(CommandDecodeException.UNKNOWN_TYPE, failure("{\"type\":\"FLY\",\"data\":{}}").getCode());
+        assertEquals(CommandDecodeException.UNKNOWN_TYPE, failure("{\"data\":{},\"type\":\"FLY\"}").getCode());
+        assertEquals(CommandDecodeException.UNKNOWN_TYPE, failure("{\"type\":\"FLY\"}").getCode());
+    }
+
+    @Test
+    void rejectsMalformedMessages() {
+        for (String payload : List.of("[1,2]", "{\"data\":{}}", "{\"type\":7}", "{\"type\":\"DRAW_TILE\",", "")) {
+            assertEquals(CommandDecodeException.MALFORMED_MESSAGE, failure(payload).getCode(), payload);
+        }
+    }
+
+    @Test
+    void reportsTheFieldOfAFailedRecordCheck() {
+        CommandDecodeException missing = failure("{\"type\":\"DRAW_TILE\"}");
+        assertEquals(CommandDecodeException.INVALID_COMMAND, missing.getCode());
+        assertEquals("Invalid DRAW_TILE data: roomId is required", missing.getMessage());
+        assertEquals("Invalid DRAW_TILE data: roomId is required",
+                failure("{\"type\":\"DRAW_TILE\",\"data\":null}").getMessage());
+        assertEquals("Invalid DRAW_TILE data: roomId is required",
+                failure("{\"data\":null,\"type\":\"DRAW_TILE\"}").getMessage());
+
+        assertEquals("Invalid DISCARD_TILE data: tile.type is required",
+                failure("{\"type\":\"DISCARD_TILE\",\"data\":{\"roomId\":\"001\",\"tile\":{\"id\":9}}}").getMessage());
+        assertEquals("Invalid CONFIRM_WIN data: confirm is required",
+                failure("{\"data\":{\"roomId\":\"001\"},\"type\":\"CONFIRM_WIN\"}").getMessage());
+        assertEquals("Invalid REVEAL_TILES data: tileIds must not contain null",
+                failure("{\"type\":\"REVEAL_TILES\",\"data\":{\"roomId\":\"001\",\"tileIds\":[1,null]}}").getMessage());
+    }
+
+    @Test
+    void reportsThePathOfAMistypedField() {
+        CommandDecodeException mistyped = failure(
+                "{\"type\":\"REVEAL_TILES\",\"data\":{\"roomId\":\"001\",\"tileIds\":[1,\"two\"]}}");
+        assertEquals(CommandDecodeException.INVALID_COMMAND, mistyped.getCode());
+        assertEquals(true, mistyped.getMessage().startsWith("Invalid REVEAL_TILES data: tileIds[1]: "),
+                mistyped.getMessage());
+    }
+
+    @Test
+    void convertsAlreadyParsedData() {
+        CommandRegistry.DecodedCommand<?> decoded = commandRegistry.decode("REVEAL_TILES",
+                Map.of("roomId", "001", "tileIds", List.of(5, 6)));
+        assertEquals(new TileIdsCommand("001", List.of(5, 6)), decoded.getCommand());
+
+        CommandDecodeException missing = assertThrows(CommandDecodeException.class,
+                () -> commandRegistry.decode("DRAW_TILE", null));
+        assertEquals("Invalid DRAW_TILE data: roomId is required", missing.getMessage());
+        assertEquals(CommandDecodeException.UNKNOWN_TYPE,
+                assertThrows(CommandDecodeException.class, () -> commandRegistry.decode("FLY", Map.of())).getCode());
+        assertEquals(CommandDecodeException.MALFORMED_MESSAGE,
+                assertThrows(CommandDecodeException.class, () -> commandRegistry.decode(null, Map.of())).getCode());
+    }
+}
@@ -0,0 +1,114 @@
+package tech.hirsun.project.mahjongserver.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.servlet.ServletException;
+import tech.hirsun.project.mahjongserver.model.User;
+import tech.hirsun.project.mahjongserver.repository.UserRepository;
+import tech.hirsun.project.mahjongserver.service.AuthService;
+import tech.hirsun.project.mahjongserver.util.JwtUtil;
+
+class JwtFilterTest {
+
+    private static final String SECRET = "test_jwt_secret_key_that_is_long_enough_for_hs256";
+
+    private final UserRepository userRepository = new UserRepository();
+
+    private final JwtFilter jwtFilter = new JwtFilter();
+
+    private JwtUtil jwtUtil;
+
+    private static JwtUtil jwtUtil(String secret) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", secret);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+        return jwtUtil;
+    }
+
+    @BeforeEach
+    void wire() {
+        jwtUtil = jwtUtil(SECRET);
+        AuthService authService = new AuthService();
+        ReflectionTestUtils.setField(authService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(authService, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(jwtFilter, "authService", authService);
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Run the filter once
+     * @param authorization Authorization header, null for none
+     * @return The authentication the rest of the chain sees
+     */
+    private Authentication filter(String authorization) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rooms");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockFilterChain chain = new MockFilterChain();
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), chain);
+        // Every request goes on, authenticated or not
+        assertSame(request, chain.getRequest());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void leavesRequestsWithoutABearerTokenAnonymous() throws ServletException, IOException {
+        assertNull(filter(null));
+        assertNull(filter("Basic YTpi"));
+        assertNull(filter("Bearer"));
+    }
+
+    @Test
+    void leavesRequestsWithABadTokenUnauthenticated() throws ServletException, IOException {
+        assertNull(filter("Bearer not.a.token"));
+        assertNull(filter("Bearer " + jwtUtil(SECRET + "_other").generateToken("a@example.com")));
+    }
+
+    @Test
+    void makesTheTokensUserThePrincipal() throws ServletException, IOException {
+        User saved = userRepository.save(new User("a@example.com", "Alice"));
+
+        Authentication authentication = filter("Bearer " + jwtUtil.generateToken("a@example.com"));
+        assertNotNull(authentication);
+        assertSame(saved, authentication.getPrincipal());
+        assertEquals(List.of("ROLE_USER"),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+
+        // A valid token for a user not seen yet still authenticates
+        SecurityContextHolder.clearContext();
+        User unknown = (User) filter("Bearer " + jwtUtil.generateToken("b@example.com")).getPrincipal();
+        assertEquals("b@example.com", unknown.getEmail());
+    }
+
+    @Test
+    void keepsAnExistingAuthentication() throws ServletException, IOException {
+        Authentication existing = new TestingAuthenticationToken("someone", null);
+        SecurityContextHolder.getContext().setAuthentication(existing);
+
+        assertSame(existing, filter("Bearer " + jwtUtil.generateToken("a@example.com")));
+    }
+}
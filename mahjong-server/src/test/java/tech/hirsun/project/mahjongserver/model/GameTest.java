@@ -0,0 +1,83 @@
+package tech.hirsun.project.mahjongserver.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+class GameTest {
+
+    private static final String A = "a@example.com";
+
+    private static final String B = "b@example.com";
+
+    private static Game dealtGame() {
+        Game game = new Game();
+        game.initialize("042", List.of(A, B), A);
+        game.dealFrom(TileUtil.shuffledWall(new Random(3)));
+        return game;
+    }
+
+    @Test
+    void journalsMovesWithIncreasingVersions() {
+        Game game = dealtGame();
+        long dealt = game.getVersion();
+        int code = game.drawTile(A);
+        game.discardTile(A, code);
+
+        List<TileMove> moves = game.getMovesSince(dealt);
+        assertEquals(2, moves.size());
+        assertEquals(dealt + 1, moves.get(0).getVersion());
+        assertEquals(dealt + 2, moves.get(1).getVersion());
+        assertEquals(game.getVersion(), moves.get(1).getVersion());
+        assertEquals(List.of(moves.get(1)), game.getMovesSince(dealt + 1));
+        assertTrue(game.getMovesSince(game.getVersion()).isEmpty());
+        assertNull(game.getMovesSince(game.getVersion() + 1));
+    }
+
+    @Test
+    void forgetsVersionsOnceTheirMovesAreEvicted() {
+        Game game = dealtGame();
+        long dealt = game.getVersion();
+        int code = game.drawTile(A);
+        game.discardTile(A, code);
+        long afterFirstDiscard = game.getVersion();
+        assertNotNull(game.getMovesSince(dealt));
+
+        // Two moves per round, without emptying the wall
+        for (int i = 0; i < Game.MOVE_JOURNAL_CAPACITY / 2; i++) {
+            assertTrue(game.takeDiscardedTile(B, code));
+            assertTrue(game.discardTile(B, code));
+        }
+
+        assertNull(game.getMovesSince(dealt));
+        assertNull(game.getMovesSince(afterFirstDiscard - 1));
+        List<TileMove> moves = game.getMovesSince(afterFirstDiscard);
+        assertNotNull(moves);
+        assertEquals(Game.MOVE_JOURNAL_CAPACITY, moves.size());
+        assertEquals(game.getVersion(), moves.get(moves.size() - 1).getVersion());
+    }
+
+    @Test
+    void hidesOnlyMovesBetweenPrivateZones() {
+        TileMove draw = new TileMove(1, 0, TileMove.Zone.WALL, -1, TileMove.Zone.HAND, 1);
+        assertTrue(draw.isVisibleTo(1));
+        assertFalse(draw.isVisibleTo(0));
+
+        TileMove discard = new TileMove(2, 0, TileMove.Zone.HAND, 1, TileMove.Zone.DISCARD, -1);
+        TileMove take = new TileMove(3, 0, TileMove.Zone.DISCARD, -1, TileMove.Zone.HAND, 1);
+        TileMove hide = new TileMove(4, 0, TileMove.Zone.REVEALED, 1, TileMove.Zone.HAND, 1);
+        for (TileMove move : List.of(discard, take, hide)) {
+            assertTrue(move.isVisibleTo(0));
+            assertTrue(move.isVisibleTo(1));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+class GameEventCodecTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_789);
+
+    private static GameEvent roundTrip(GameEvent event) {
+        ByteBuffer buffer = ByteBuffer.wrap(GameEventCodec.encode(event));
+        GameEvent decoded = GameEventCodec.decode(buffer);
+        assertFalse(buffer.hasRemaining(), "Bytes left after " + decoded);
+        return decoded;
+    }
+
+    private static GameAction action(String playerEmail, GameAction.ActionType type, Object data) {
+        return new GameAction(playerEmail, type, data, TIME);
+    }
+
+    @Test
+    void roundTripsRoomSaved() {
+        GameEvent.RoomSaved event = new GameEvent.RoomSaved("042", "secret", "a@example.com", TIME, TIME.plusDays(1),
+                Room.RoomStatus.PLAYING, true, List.of("a@example.com", "b@example.com"));
+        assertEquals(event, roundTrip(event));
+    }
+
+    @Test
+    void roundTripsRoomSavedWithNulls() {
+        GameEvent.RoomSaved event = new GameEvent.RoomSaved("042", null, "a@example.com", null, null,
+                null, false, List.of());
+        assertEquals(event, roundTrip(event));
+    }
+
+    @Test
+    void roundTripsRoomDeleted() {
+        GameEvent.RoomDeleted event = new GameEvent.RoomDeleted("042");
+        assertEquals(event, roundTrip(event));
+    }
+
+    @Test
+    void roundTripsGameStarted() {
+        byte[] wall = TileUtil.shuffledWall().getInitialOrder();
+        GameEvent.GameStarted event = new GameEvent.GameStarted("042", 1234567890123L, "b@example.com", TIME,
+                List.of("a@example.com", "b@example.com", "c@example.com"), wall);
+
+        GameEvent.GameStarted decoded = assertInstanceOf(GameEvent.GameStarted.class, roundTrip(event));
+
+        assertEquals(event.roomId(), decoded.roomId());
+        assertEquals(event.gameId(), decoded.gameId());
+        assertEquals(event.dealerEmail(), decoded.dealerEmail());
+        assertEquals(event.startTime(), decoded.startTime());
+        assertEquals(event.playersBySeat(), decoded.playersBySeat());
+        // Codes above 127 are stored as negative bytes
+        assertArrayEquals(wall, decoded.wall());
+    }
+
+    @Test
+    void roundTripsEveryActionType() {
+        List<GameAction> actions = List.of(
+                action("a@example.com", GameAction.ActionType.DRAW, null),
+                action("a@example.com", GameAction.ActionType.DISCARD, TileUtil.toTile(135)),
+                action("b@example.com", GameAction.ActionType.TAKE_TILE, TileUtil.toTile(0)),
+                action("b@example.com", GameAction.ActionType.REVEAL_TILES,
+                        List.of(TileUtil.toTile(4), TileUtil.toTile(5), TileUtil.toTile(130))),
+                action("b@example.com", GameAction.ActionType.HIDE_TILES, List.of(TileUtil.toTile(130))),
+                action("b@example.com", GameAction.ActionType.CLAIM_WIN, "游戏胜利"),
+                action("a@example.com", GameAction.ActionType.CONFIRM_WIN, null),
+                action("c@example.com", GameAction.ActionType.DENY_WIN, null));
+        assertEquals(GameAction.ActionType.values().length, actions.size());
+
+        for (GameAction action : actions) {
+            GameEvent.ActionRecorded event = new GameEvent.ActionRecorded("042", 7L, action);
+            assertEquals(event, roundTrip(event));
+        }
+    }
+
+    @Test
+    void roundTripsGameEnded() {
+        GameEvent.GameEnded won = new GameEvent.GameEnded("042", 7L, "b@example.com", TIME);
+        GameEvent.GameEnded drawn = new GameEvent.GameEnded("042", 8L, null, TIME);
+        assertEquals(won, roundTrip(won));
+        assertEquals(drawn, roundTrip(drawn));
+    }
+
+    @Test
+    void roundTripsActionsOfAGameBySeat() throws IOException {
+        List<String> players = List.of("a@example.com", "b@example.com");
+        List<GameAction> actions = List.of(
+                action("b@example.com", GameAction.ActionType.DISCARD, TileUtil.toTile(77)),
+                // Not seated: written with the email
+                action("x@example.com", GameAction.ActionType.CONFIRM_WIN, null));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (GameAction action : actions) {
+            GameEventCodec.writeAction(out, action, players);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        for (GameAction action : actions) {
+            assertEquals(action, GameEventCodec.readAction(buffer, players));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void roundTripsUserSaved() {
+        GameEvent.UserSaved event = new GameEvent.UserSaved("a@example.com", "东风");
+        assertEquals(event, roundTrip(event));
+        assertNull(roundTrip(event).roomId());
+    }
+
+    @Test
+    void rejectsUnknownEventTypes() {
+        assertThrows(IllegalArgumentException.class, () -> GameEventCodec.decode(ByteBuffer.wrap(new byte[] {99})));
+    }
+}
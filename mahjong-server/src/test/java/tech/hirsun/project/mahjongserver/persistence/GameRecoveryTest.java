@@ -0,0 +1,158 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import tech.hirsun.project.mahjongserver.MahjongServerApplication;
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+import tech.hirsun.project.mahjongserver.repository.UserRepository;
+import tech.hirsun.project.mahjongserver.schedule.SnapshotTask;
+import tech.hirsun.project.mahjongserver.service.AuthService;
+import tech.hirsun.project.mahjongserver.service.GameService;
+import tech.hirsun.project.mahjongserver.service.RoomCommandExecutor;
+import tech.hirsun.project.mahjongserver.service.RoomService;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+/**
+ * Plays part of a game, snapshots it, plays on and renames a user, then starts a second server from a
+ * copy of the data taken while the first one was still running, as a crash would leave it.
+ */
+class GameRecoveryTest {
+
+    private static final List<String> PLAYERS = List.of("a@example.com", "b@example.com", "c@example.com");
+
+    @TempDir
+    Path data;
+
+    private static ConfigurableApplicationContext start(Path dir) {
+        return new SpringApplicationBuilder(MahjongServerApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--persistence.wal.enabled=true",
+                "--persistence.wal.dir=" + dir.resolve("wal"),
+                // Every append is durable once it returns, so copying the files is a crash image
+                "--persistence.wal.sync-commit=true",
+                "--persistence.snapshot.enabled=true",
+                "--persistence.snapshot.dir=" + dir.resolve("snapshot"),
+                // Claims wait for the other players' confirmations
+                "--game.win-validation.enabled=false");
+    }
+
+    private static <T> T call(ConfigurableApplicationContext context, String roomId, Supplier<T> command) {
+        return context.getBean(RoomCommandExecutor.class).call(roomId, command);
+    }
+
+    private static int firstTileInHand(ConfigurableApplicationContext context, String roomId, String playerEmail) {
+        return call(context, roomId, () -> context.getBean(RoomRepository.class).findById(roomId)
+                .getCurrentGame().getPlayerHandCodes(playerEmail)[0]);
+    }
+
+    private static void drawAndDiscard(ConfigurableApplicationContext context, String roomId, String playerEmail) {
+        GameService gameService = context.getBean(GameService.class);
+        assertNotNull(call(context, roomId, () -> gameService.drawTile(roomId, playerEmail)));
+        int code = firstTileInHand(context, roomId, playerEmail);
+        assertTrue(call(context, roomId, () -> gameService.discardTile(roomId, playerEmail, TileUtil.toTile(code))));
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.walk(from)) {
+            for (Path path : files.toList()) {
+                Path target = to.resolve(from.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(path, target);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rebuildsTheGameFromSnapshotAndLogTail() throws IOException {
+        Path live = data.resolve("live");
+        Path crashed = data.resolve("crashed");
+        String roomId;
+        Map<String, Map<String, Object>> expected = new HashMap<>();
+        long expectedVersion;
+
+        try (ConfigurableApplicationContext context = start(live)) {
+            RoomService roomService = context.getBean(RoomService.class);
+            GameService gameService = context.getBean(GameService.class);
+            AuthService authService = context.getBean(AuthService.class);
+            for (String player : PLAYERS) {
+                authService.login(player);
+            }
+            Room room = roomService.createRoom(PLAYERS.get(0));
+            roomId = room.getRoomId();
+            String password = room.getPassword();
+            for (String player : PLAYERS.subList(1, PLAYERS.size())) {
+                assertNotNull(call(context, roomId, () -> roomService.joinRoom(roomId, password, player)));
+            }
+            // As the WebSocket start message does
+            assertNotNull(call(context, roomId, () -> gameService.initializeGame(roomId)));
+
+            // Before the snapshot
+            for (String player : PLAYERS) {
+                drawAndDiscard(context, roomId, player);
+            }
+            assertTrue(context.getBean(SnapshotTask.class).snapshot());
+            long snapshotLsn = context.getBean(WriteAheadLog.class).getLastLsn();
+
+            // After the snapshot: only in the log tail
+            authService.updateNickname(PLAYERS.get(0), "庄家");
+            authService.login("d@example.com");
+            drawAndDiscard(context, roomId, PLAYERS.get(0));
+            int taken = call(context, roomId, () -> context.getBean(RoomRepository.class).findById(roomId)
+                    .getCurrentGame().getDiscardPile().get(0).getId());
+            assertNotNull(call(context, roomId, () -> gameService.takeTile(roomId, PLAYERS.get(1), taken)));
+            int revealed = firstTileInHand(context, roomId, PLAYERS.get(1));
+            assertTrue(call(context, roomId,
+                    () -> gameService.revealTiles(roomId, PLAYERS.get(1), List.of(TileUtil.idOf(revealed)))));
+            assertTrue(call(context, roomId, () -> gameService.claimVictory(roomId, PLAYERS.get(1))));
+            // One of the two other players confirms, the claim stays pending
+            assertTrue(call(context, roomId, () -> gameService.confirmVictory(roomId, PLAYERS.get(2), true)));
+            assertTrue(context.getBean(WriteAheadLog.class).getLastLsn() > snapshotLsn);
+
+            for (String player : PLAYERS) {
+                expected.put(player, call(context, roomId, () -> gameService.getGameState(roomId, player)));
+            }
+            expectedVersion = call(context, roomId, () -> context.getBean(RoomRepository.class).findById(roomId)
+                    .getCurrentGame().getVersion());
+            copy(live, crashed);
+        }
+
+        try (ConfigurableApplicationContext context = start(crashed)) {
+            GameService gameService = context.getBean(GameService.class);
+            Game game = call(context, roomId, () -> context.getBean(RoomRepository.class).findById(roomId).getCurrentGame());
+            assertNotNull(game);
+            assertEquals(expectedVersion, (long) call(context, roomId, game::getVersion));
+            for (String player : PLAYERS) {
+                Map<String, Object> state = call(context, roomId, () -> gameService.getGameState(roomId, player));
+                assertEquals(expected.get(player), state);
+            }
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            assertEquals("庄家", userRepository.findByEmail(PLAYERS.get(0)).getNickname());
+            assertEquals("b", userRepository.findByEmail(PLAYERS.get(1)).getNickname());
+            assertNotNull(userRepository.findByEmail("d@example.com"));
+            Map<?, ?> confirmations = (Map<?, ?>) expected.get(PLAYERS.get(0)).get("winConfirmations");
+            assertEquals(Map.of(PLAYERS.get(0), false, PLAYERS.get(2), true), confirmations);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package tech.hirsun.project.mahjongserver.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog log(boolean syncCommit) {
+        WriteAheadLog log = new WriteAheadLog();
+        ReflectionTestUtils.setField(log, "enabled", true);
+        ReflectionTestUtils.setField(log, "directory", directory.toString());
+        ReflectionTestUtils.setField(log, "segmentSize", 1L << 20);
+        ReflectionTestUtils.setField(log, "queueCapacity", 1024);
+        ReflectionTestUtils.setField(log, "syncCommit", syncCommit);
+        ReflectionTestUtils.setField(log, "meterRegistry", new SimpleMeterRegistry());
+        return log;
+    }
+
+    private static byte[] payload(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Replay a fresh log over the directory, returning each record as "lsn:payload"
+    private List<String> replay(WriteAheadLog log) {
+        List<String> records = new ArrayList<>();
+        log.replay(0, (lsn, payload) -> {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            records.add(lsn + ":" + new String(bytes, StandardCharsets.UTF_8));
+        });
+        return records;
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().reduce((first, second) -> second).orElseThrow();
+        }
+    }
+
+    private void appendRaw(Path segment, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    @Test
+    void replaysRecordsInOrderAcrossRestarts() {
+        WriteAheadLog first = log(false);
+        first.replay(0, (lsn, payload) -> { });
+        first.start();
+        assertEquals(1, first.append(payload("a")));
+        assertEquals(2, first.append(payload("b")));
+        first.stop();
+
+        WriteAheadLog second = log(false);
+        assertEquals(List.of("1:a", "2:b"), replay(second));
+        second.start();
+        assertEquals(3, second.append(payload("c")));
+        second.stop();
+
+        assertEquals(List.of("1:a", "2:b", "3:c"), replay(log(false)));
+        List<String> afterTwo = new ArrayList<>();
+        log(false).replay(2, (lsn, payload) -> afterTwo.add(String.valueOf(lsn)));
+        assertEquals(List.of("3"), afterTwo);
+    }
+
+    @Test
+    void dropsATornTailAndKeepsAppendingAfterIt() throws IOException {
+        WriteAheadLog first = log(false);
+        first.replay(0, (lsn, payload) -> { });
+        first.start();
+        first.append(payload("a"));
+        first.append(payload("b"));
+        first.stop();
+        // A crash in the middle of a record: its header promises more bytes than were written
+        appendRaw(lastSegment(), new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 'x'});
+
+        WriteAheadLog second = log(false);
+        assertEquals(List.of("1:a", "2:b"), replay(second));
+        assertEquals(2, second.getLastLsn());
+        second.start();
+        second.append(payload("c"));
+        second.stop();
+
+        // The torn record stays at the end of its segment, later records go to a new one
+        assertEquals(List.of("1:a", "2:b", "3:c"), replay(log(false)));
+    }
+
+    @Test
+    void stopsAtACorruptRecord() throws IOException {
+        WriteAheadLog first = log(false);
+        first.replay(0, (lsn, payload) -> { });
+        first.start();
+        first.append(payload("a"));
+        first.append(payload("b"));
+        first.stop();
+        Path segment = lastSegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        // Flip the last payload byte, the record's checksum no longer matches
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(segment, bytes);
+
+        assertEquals(List.of("1:a"), replay(log(false)));
+    }
+
+    @Test
+    void syncCommitReturnsOnlyOnceTheRecordIsDurable() {
+        WriteAheadLog log = log(true);
+        log.replay(0, (lsn, payload) -> { });
+        log.start();
+        for (int i = 1; i <= 50; i++) {
+            long lsn = log.append(payload("r" + i));
+            assertEquals(i, lsn);
+            assertTrue(log.getDurableLsn() >= lsn);
+        }
+        log.stop();
+        assertEquals(50, replay(log(false)).size());
+    }
+
+    @Test
+    void rejectsAppendsOnceAWriteFails() throws IOException {
+        WriteAheadLog log = log(true);
+        log.replay(0, (lsn, payload) -> { });
+        log.start();
+        assertEquals(1, log.append(payload("a")));
+        // The segment goes away under the writer, as with a failed disk
+        ((FileChannel) ReflectionTestUtils.getField(log, "segment")).close();
+
+        assertEquals(-1, log.append(payload("b")));
+        assertTrue(log.isFailed());
+        assertFalse(log.isRunning());
+        assertEquals(-1, log.append(payload("c")));
+        log.stop();
+
+        assertEquals(List.of("1:a"), replay(log(false)));
+    }
+}
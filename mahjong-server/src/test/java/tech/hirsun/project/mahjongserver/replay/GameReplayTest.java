@@ -0,0 +1,145 @@
+package tech.hirsun.project.mahjongserver.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.GameRecord;
+import tech.hirsun.project.mahjongserver.model.Tile;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+
+class GameReplayTest {
+
+    private static List<Integer> ids(List<Tile> tiles) {
+        return tiles.stream().map(Tile::getId).sorted().toList();
+    }
+
+    // Hands and revealed tiles are compared as sets, the discard pile in order
+    private static String state(Game game) {
+        StringBuilder state = new StringBuilder();
+        for (String player : game.getPlayersBySeat()) {
+            state.append(ids(game.getPlayerHand(player))).append(ids(game.getPlayerRevealedTiles(player)));
+        }
+        return state.append(game.getDiscardPile().stream().map(Tile::getId).toList())
+                .append(game.getRemainingTilesCount()).toString();
+    }
+
+    private static String state(ReplayState replay, int playerCount) {
+        StringBuilder state = new StringBuilder();
+        for (int seat = 0; seat < playerCount; seat++) {
+            state.append(ids(replay.getHand(seat))).append(ids(replay.getRevealedTiles(seat)));
+        }
+        return state.append(replay.getDiscardPile().stream().map(Tile::getId).toList())
+                .append(replay.getRemainingTiles()).toString();
+    }
+
+    // Make a random legal move for a random player, returning the action to record
+    private static GameAction play(Game game, Random random) {
+        List<String> players = game.getPlayersBySeat();
+        String player = players.get(random.nextInt(players.size()));
+        switch (random.nextInt(5)) {
+            case 0 -> {
+                if (game.getRemainingTilesCount() > 0) {
+                    int code = game.drawTile(player);
+                    return new GameAction(player, GameAction.ActionType.DRAW, TileUtil.toTile(code));
+                }
+            }
+            case 1 -> {
+                int[] hand = game.getPlayerHandCodes(player);
+                if (hand.length > 0) {
+                    int code = hand[random.nextInt(hand.length)];
+                    game.discardTile(player, code);
+                    return new GameAction(player, GameAction.ActionType.DISCARD, TileUtil.toTile(code));
+                }
+            }
+            case 2 -> {
+                List<Tile> discardPile = game.getDiscardPile();
+                if (!discardPile.isEmpty()) {
+                    Tile tile = discardPile.get(random.nextInt(discardPile.size()));
+                    game.takeDiscardedTile(player, TileUtil.codeOf(tile));
+                    return new GameAction(player, GameAction.ActionType.TAKE_TILE, tile);
+                }
+            }
+            case 3 -> {
+                int[] hand = game.getPlayerHandCodes(player);
+                if (hand.length > 1) {
+                    int[] codes = {hand[0], hand[1]};
+                    game.revealPlayerTiles(player, codes);
+                    return new GameAction(player, GameAction.ActionType.REVEAL_TILES,
+                            List.of(TileUtil.toTile(codes[0]), TileUtil.toTile(codes[1])));
+                }
+            }
+            default -> {
+                List<Tile> revealed = game.getPlayerRevealedTiles(player);
+                if (!revealed.isEmpty()) {
+                    game.hidePlayerTiles(player, new int[] {TileUtil.codeOf(revealed.get(0))});
+                    return new GameAction(player, GameAction.ActionType.HIDE_TILES, List.of(revealed.get(0)));
+                }
+            }
+        }
+        // Moves no tiles
+        return new GameAction(player, GameAction.ActionType.CLAIM_WIN, "游戏胜利");
+    }
+
+    @Test
+    void seekMatchesPlayingStepByStep() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<String> players = List.of("a@example.com", "b@example.com", "c@example.com", "d@example.com")
+                    .subList(0, 2 + random.nextInt(3));
+            Game game = new Game();
+            game.initialize("042", players, players.get(random.nextInt(players.size())));
+            game.dealFrom(TileUtil.shuffledWall(random));
+
+            // The state after each action, as the live game saw it
+            List<String> states = new ArrayList<>();
+            states.add(state(game));
+            for (int i = 0; i < 150; i++) {
+                game.addAction(play(game, random));
+                states.add(state(game));
+            }
+            game.setStatus(Game.GameStatus.FINISHED);
+
+            // Checkpoints land between, on and around the seek targets
+            GameReplay replay = new GameReplay(GameRecord.of(game), 1 + random.nextInt(20));
+            assertEquals(150, replay.getActionCount());
+            for (int i = 0; i <= replay.getActionCount(); i++) {
+                assertEquals(states.get(i), state(replay.seek(i), players.size()), "Round " + round + " action " + i);
+            }
+
+            ReplayState stepped = replay.seek(random.nextInt(replay.getActionCount()));
+            while (replay.advance(stepped)) {
+                assertEquals(states.get(stepped.getActionCount()), state(stepped, players.size()));
+            }
+            assertEquals(replay.getActionCount(), stepped.getActionCount());
+            assertFalse(replay.advance(stepped));
+        }
+    }
+
+    @Test
+    void seekReturnsIndependentStates() {
+        Game game = new Game();
+        game.initialize("042", List.of("a@example.com", "b@example.com"), "a@example.com");
+        game.dealFrom(TileUtil.shuffledWall(new Random(1)));
+        int code = game.drawTile("a@example.com");
+        game.addAction(new GameAction("a@example.com", GameAction.ActionType.DRAW, TileUtil.toTile(code)));
+        game.discardTile("a@example.com", code);
+        game.addAction(new GameAction("a@example.com", GameAction.ActionType.DISCARD, TileUtil.toTile(code)));
+        game.setStatus(Game.GameStatus.FINISHED);
+        GameReplay replay = new GameReplay(GameRecord.of(game), 1);
+
+        ReplayState first = replay.seek(1);
+        String before = state(first, 2);
+        // Advancing one state must not move tiles in a checkpoint or another seek
+        replay.advance(replay.seek(1));
+        assertEquals(before, state(first, 2));
+        assertEquals(before, state(replay.seek(1), 2));
+    }
+}
@@ -0,0 +1,36 @@
+package tech.hirsun.project.mahjongserver.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import tech.hirsun.project.mahjongserver.model.Room;
+
+class RoomRepositoryTest {
+
+    @Test
+    void countsRoomsByStatusAcrossSavesAndDeletes() {
+        RoomRepository roomRepository = new RoomRepository();
+        Room first = new Room("001", null, "a@example.com");
+        Room second = new Room("002", null, "b@example.com");
+        roomRepository.save(first);
+        roomRepository.save(second);
+        // Saving again without a change must not count the room twice
+        roomRepository.save(first);
+        assertEquals(2, roomRepository.countByStatus(Room.RoomStatus.WAITING));
+
+        first.setStatus(Room.RoomStatus.PLAYING);
+        roomRepository.save(first);
+        first.addPlayer("c@example.com");
+        roomRepository.save(first);
+        assertEquals(1, roomRepository.countByStatus(Room.RoomStatus.WAITING));
+        assertEquals(1, roomRepository.countByStatus(Room.RoomStatus.PLAYING));
+
+        roomRepository.deleteById("001");
+        roomRepository.deleteById("001");
+        assertEquals(0, roomRepository.countByStatus(Room.RoomStatus.PLAYING));
+        roomRepository.clear();
+        assertEquals(0, roomRepository.countByStatus(Room.RoomStatus.WAITING));
+        assertEquals(0, roomRepository.countByStatus(Room.RoomStatus.FINISHED));
+    }
+}
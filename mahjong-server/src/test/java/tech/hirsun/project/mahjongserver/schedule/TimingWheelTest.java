@@ -0,0 +1,96 @@
+package tech.hirsun.project.mahjongserver.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final long START = 1_000_000;
+
+    @Test
+    void firesEachItemOnceAtItsDeadlineAcrossRounds() {
+        // 5 slots round up to 8, so deadlines up to 400 ticks wait out dozens of turns
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 5, START);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long deadline = START + random.nextInt(4000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        assertEquals(500, wheel.size());
+
+        Map<Long, Integer> fireCounts = new HashMap<>();
+        for (long now = START; now <= START + 4100; now += TICK) {
+            long time = now;
+            wheel.advance(now, deadline -> {
+                fireCounts.merge(deadline, 1, Integer::sum);
+                // Never early, and at the first tick at or after the deadline
+                assertTrue(deadline <= time, "Fired " + deadline + " early at " + time);
+                assertTrue(time - deadline < TICK, "Fired " + deadline + " late at " + time);
+            });
+        }
+
+        assertEquals(0, wheel.size());
+        Map<Long, Integer> expected = new HashMap<>();
+        deadlines.forEach(deadline -> expected.merge(deadline, 1, Integer::sum));
+        assertEquals(expected, fireCounts);
+    }
+
+    @Test
+    void catchesUpInTickOrder() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 4, START);
+        wheel.schedule(3, START + 250);
+        wheel.schedule(1, START + 15);
+        wheel.schedule(2, START + 41);
+
+        List<Integer> fired = new ArrayList<>();
+        assertEquals(3, wheel.advance(START + 1000, fired::add));
+
+        assertEquals(List.of(1, 2, 3), fired);
+        assertEquals(0, wheel.advance(START + 5000, fired::add));
+    }
+
+    @Test
+    void firesPastDeadlinesAtTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 8, START);
+        wheel.advance(START + 500, item -> { });
+        wheel.schedule("late", START + 100);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(START + 500, fired::add);
+        assertEquals(List.of(), fired);
+        wheel.advance(START + 510, fired::add);
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void schedulesFromTheHandler() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 8, START);
+        wheel.schedule(0, START + 10);
+
+        List<Integer> fired = new ArrayList<>();
+        for (long now = START; now <= START + 2000; now += TICK) {
+            long time = now;
+            wheel.advance(now, item -> {
+                fired.add(item);
+                if (item < 3) {
+                    // Lands several turns ahead of the current slot
+                    wheel.schedule(item + 1, time + 300);
+                }
+            });
+        }
+
+        assertEquals(List.of(0, 1, 2, 3), fired);
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,134 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.GameAction;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.model.Tile;
+import tech.hirsun.project.mahjongserver.model.TileMove;
+import tech.hirsun.project.mahjongserver.persistence.GameEventLog;
+import tech.hirsun.project.mahjongserver.persistence.WriteAheadLog;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+
+class GameServiceTest {
+
+    private static final String ROOM_ID = "042";
+
+    private static final String A = "a@example.com";
+
+    private static final String B = "b@example.com";
+
+    private final GameService gameService = new GameService();
+
+    private Game game;
+
+    @BeforeEach
+    void startGame() {
+        RoomRepository roomRepository = new RoomRepository();
+        // Not started: nothing is logged
+        GameEventLog gameEventLog = new GameEventLog();
+        ReflectionTestUtils.setField(gameEventLog, "writeAheadLog", new WriteAheadLog());
+        ReflectionTestUtils.setField(gameService, "roomRepository", roomRepository);
+        ReflectionTestUtils.setField(gameService, "gameEventLog", gameEventLog);
+
+        Room room = new Room(ROOM_ID, null, A);
+        room.addPlayer(B);
+        roomRepository.save(room);
+        game = gameService.initializeGame(ROOM_ID);
+        assertNotNull(game);
+    }
+
+    private Map<String, Object> patchSince(String playerEmail, Map<String, Object> state) {
+        return gameService.getGamePatch(ROOM_ID, playerEmail, (Long) state.get("gameId"),
+                (Long) state.get("version"), (Long) state.get("actionSeq"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> moves(Map<String, Object> patch) {
+        return (List<Map<String, Object>>) patch.get("moves");
+    }
+
+    @Test
+    void hidesOtherPlayersDraws() {
+        Map<String, Object> stateOfA = gameService.getGameState(ROOM_ID, A);
+        Map<String, Object> stateOfB = gameService.getGameState(ROOM_ID, B);
+        Tile drawn = gameService.drawTile(ROOM_ID, A);
+        assertNotNull(drawn);
+
+        Map<String, Object> move = moves(patchSince(B, stateOfB)).get(0);
+        assertEquals(TileMove.Zone.WALL, move.get("from"));
+        assertEquals(TileMove.Zone.HAND, move.get("to"));
+        assertEquals(0, move.get("toSeat"));
+        assertFalse(move.containsKey("tile"));
+        // The drawing player sees the tile
+        assertEquals(drawn, moves(patchSince(A, stateOfA)).get(0).get("tile"));
+
+        // A discard is public
+        assertTrue(gameService.discardTile(ROOM_ID, A, drawn));
+        List<Map<String, Object>> moves = moves(patchSince(B, stateOfB));
+        assertEquals(2, moves.size());
+        assertEquals(TileMove.Zone.DISCARD, moves.get(1).get("to"));
+        assertEquals(drawn, moves.get(1).get("tile"));
+    }
+
+    @Test
+    void patchLinesUpWithTheFollowingState() {
+        Map<String, Object> before = gameService.getGameState(ROOM_ID, B);
+        for (String player : List.of(A, B, A)) {
+            Tile drawn = gameService.drawTile(ROOM_ID, player);
+            assertTrue(gameService.discardTile(ROOM_ID, player, drawn));
+        }
+
+        Map<String, Object> patch = patchSince(B, before);
+        Map<String, Object> after = gameService.getGameState(ROOM_ID, B);
+        assertEquals(after.get("gameId"), patch.get("gameId"));
+        assertEquals(after.get("version"), patch.get("version"));
+        assertEquals(after.get("actionSeq"), patch.get("actionSeq"));
+        assertEquals(after.get("remainingTiles"), patch.get("remainingTiles"));
+        assertEquals(6, moves(patch).size());
+
+        @SuppressWarnings("unchecked")
+        List<GameAction> actions = (List<GameAction>) patch.get("actions");
+        @SuppressWarnings("unchecked")
+        List<GameAction> recentActions = (List<GameAction>) after.get("recentActions");
+        assertEquals(6, actions.size());
+        assertEquals(recentActions.subList(recentActions.size() - actions.size(), recentActions.size()), actions);
+
+        // Nothing happened since: an empty patch at the same position
+        Map<String, Object> empty = patchSince(B, after);
+        assertEquals(after.get("version"), empty.get("version"));
+        assertTrue(moves(empty).isEmpty());
+        assertTrue(((List<?>) empty.get("actions")).isEmpty());
+    }
+
+    @Test
+    void asksForTheFullStateOnceTheJournalHasMovedOn() {
+        Map<String, Object> before = gameService.getGameState(ROOM_ID, B);
+        Tile drawn = gameService.drawTile(ROOM_ID, A);
+        assertTrue(gameService.discardTile(ROOM_ID, A, drawn));
+        // Take and discard the same tile until the first moves are evicted
+        for (int i = 0; i < Game.MOVE_JOURNAL_CAPACITY / 2; i++) {
+            assertNotNull(gameService.takeTile(ROOM_ID, B, drawn.getId()));
+            assertTrue(gameService.discardTile(ROOM_ID, B, drawn));
+        }
+
+        assertNull(patchSince(B, before));
+        // Another game, or a version from the future, also needs the full state
+        Map<String, Object> now = gameService.getGameState(ROOM_ID, B);
+        assertNull(gameService.getGamePatch(ROOM_ID, B, game.getGameId() + 1, game.getVersion(), 0));
+        assertNull(gameService.getGamePatch(ROOM_ID, B, game.getGameId(), game.getVersion() + 1, 0));
+        assertNotNull(patchSince(B, now));
+    }
+}
@@ -0,0 +1,145 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+class OutboundMessageSenderTest {
+
+    private OutboundMessageSender sender;
+
+    private OutboundMessageSender sender(long sendTimeLimit, int queueCapacity) {
+        sender = new OutboundMessageSender();
+        ReflectionTestUtils.setField(sender, "threads", 1);
+        ReflectionTestUtils.setField(sender, "sendTimeLimit", sendTimeLimit);
+        ReflectionTestUtils.setField(sender, "bufferSizeLimit", 1L << 20);
+        ReflectionTestUtils.setField(sender, "queueCapacity", queueCapacity);
+        sender.start();
+        return sender;
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        sender.stop();
+    }
+
+    // A session whose writes block until the latch opens; closing it opens the latch, as a real close aborts the write
+    private static WebSocketSession session(String id, CountDownLatch writable, List<WebSocketMessage<?>> sent)
+            throws Exception {
+        AtomicBoolean open = new AtomicBoolean(true);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenAnswer(invocation -> open.get());
+        doAnswer(invocation -> {
+            writable.await();
+            sent.add(invocation.getArgument(0));
+            return null;
+        }).when(session).sendMessage(any());
+        doAnswer(invocation -> {
+            open.set(false);
+            writable.countDown();
+            return null;
+        }).when(session).close(any(CloseStatus.class));
+        return session;
+    }
+
+    @Test
+    void sendsFramesInOrder() throws Exception {
+        sender(10_000, 100);
+        List<WebSocketMessage<?>> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession session = session("s1", new CountDownLatch(0), sent);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(sender.send(session, new TextMessage("m" + i)));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.size() < 50 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(50, sent.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("m" + i, sent.get(i).getPayload());
+        }
+        assertEquals(0, sender.getQueueDepth("s1"));
+        verify(session, never()).close(any(CloseStatus.class));
+    }
+
+    @Test
+    void closesASessionWhoseQueueOverflows() throws Exception {
+        sender(10_000, 3);
+        CountDownLatch writable = new CountDownLatch(1);
+        WebSocketSession session = session("s1", writable, new CopyOnWriteArrayList<>());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(sender.send(session, new TextMessage("m" + i)));
+        }
+
+        assertFalse(sender.send(session, new TextMessage("overflow")));
+        verify(session, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, sender.getDroppedSessionCount());
+        // The queue is discarded and later frames are refused until the close is handled
+        assertFalse(sender.send(session, new TextMessage("late")));
+        sender.remove("s1");
+        assertEquals(0, sender.getTotalQueueDepth());
+        assertEquals(1, sender.getDroppedSessionCount());
+    }
+
+    @Test
+    void closesASessionWhoseSendStalls() throws Exception {
+        sender(200, 100);
+        CountDownLatch writable = new CountDownLatch(1);
+        List<WebSocketMessage<?>> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession stalled = session("s1", writable, sent);
+        assertTrue(sender.send(stalled, new TextMessage("stuck")));
+
+        verify(stalled, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, sender.getDroppedSessionCount());
+        sender.remove("s1");
+
+        // The writer is free again for other sessions
+        List<WebSocketMessage<?>> other = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        WebSocketSession healthy = session("s2", new CountDownLatch(0), other);
+        doAnswer(invocation -> {
+            other.add(invocation.getArgument(0));
+            delivered.countDown();
+            return null;
+        }).when(healthy).sendMessage(any());
+        assertTrue(sender.send(healthy, new TextMessage("ok")));
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void forgetsAQueueCreatedAfterTheSessionClosed() throws Exception {
+        sender(10_000, 100);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        // Open when first checked, closed (and already removed) by the time the queue exists
+        when(session.isOpen()).thenReturn(true, false);
+
+        assertFalse(sender.send(session, new TextMessage("m")));
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(sender, "outbounds")).isEmpty());
+        verify(session, never()).sendMessage(any());
+    }
+}
@@ -0,0 +1,166 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+
+class RoomCommandExecutorTest {
+
+    private final RoomRepository roomRepository = new RoomRepository();
+
+    private final RoomCommandExecutor executor = new RoomCommandExecutor();
+
+    @BeforeEach
+    void start() {
+        ReflectionTestUtils.setField(executor, "roomRepository", roomRepository);
+        ReflectionTestUtils.setField(executor, "threads", 4);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 100);
+        ReflectionTestUtils.setField(executor, "mailboxCapacity", 10_000);
+        ReflectionTestUtils.setField(executor, "callTimeout", 200L);
+        executor.start();
+        for (String roomId : List.of("001", "002", "003")) {
+            roomRepository.save(new Room(roomId, null, "a@example.com"));
+        }
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        executor.stop();
+    }
+
+    private Map<?, ?> mailboxes() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(executor, "mailboxes");
+    }
+
+    private void awaitNoMailboxes() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!mailboxes().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(mailboxes().isEmpty());
+    }
+
+    @Test
+    void runsEachRoomsCommandsOneAtATimeInOrder() {
+        List<String> roomIds = List.of("001", "002", "003");
+        List<List<Integer>> runs = new ArrayList<>();
+        List<AtomicInteger> running = new ArrayList<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        for (int room = 0; room < roomIds.size(); room++) {
+            runs.add(new CopyOnWriteArrayList<>());
+            running.add(new AtomicInteger());
+        }
+
+        // Interleave the rooms so their mailboxes are drained in parallel
+        for (int i = 0; i < 3000; i++) {
+            int room = i % roomIds.size();
+            int sequence = i / roomIds.size();
+            assertTrue(executor.execute(roomIds.get(room), () -> {
+                if (running.get(room).incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                runs.get(room).add(sequence);
+                running.get(room).decrementAndGet();
+            }));
+        }
+        // A call queues behind every command already sent to its room
+        for (String roomId : roomIds) {
+            assertEquals(Boolean.TRUE, executor.call(roomId, () -> true));
+        }
+
+        assertEquals(0, overlaps.get());
+        for (List<Integer> run : runs) {
+            assertEquals(1000, run.size());
+            for (int i = 0; i < run.size(); i++) {
+                assertEquals(i, run.get(i));
+            }
+        }
+    }
+
+    @Test
+    void keepsATimedOutCallInItsPlace() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        assertTrue(executor.execute("001", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            order.add("blocker");
+        }));
+
+        // Gives up waiting, but its command stays queued ahead of later ones
+        assertNull(executor.call("001", () -> order.add("timed out")));
+        assertTrue(executor.execute("001", () -> order.add("later")));
+        release.countDown();
+
+        assertEquals(Boolean.TRUE, executor.call("001", () -> true));
+        assertEquals(List.of("blocker", "timed out", "later"), order);
+    }
+
+    @Test
+    void runsInlineWhenCalledFromTheSameRoom() {
+        assertEquals("inner", executor.call("001", () -> executor.call("001", () -> "inner")));
+    }
+
+    @Test
+    void doesNotRecreateTheMailboxOfADeletedRoom() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        assertTrue(executor.execute("001", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            order.add("blocker");
+        }));
+        assertTrue(executor.execute("001", () -> order.add("queued")));
+
+        roomRepository.deleteById("001");
+        executor.retireRoom("001");
+        // Commands queued before the retirement still run, then the mailbox goes away
+        release.countDown();
+        awaitNoMailboxes();
+        assertEquals(List.of("blocker", "queued"), order);
+
+        assertFalse(executor.execute("001", () -> order.add("after delete")));
+        assertNull(executor.call("001", () -> "after delete"));
+        assertTrue(mailboxes().isEmpty());
+        assertEquals(0, executor.getQueuedCommandCount("001"));
+        assertEquals(List.of("blocker", "queued"), order);
+
+        // Unknown rooms never get a mailbox
+        assertFalse(executor.execute("999", () -> order.add("unknown")));
+        assertTrue(mailboxes().isEmpty());
+    }
+
+    @Test
+    void retiresAnIdleMailboxAtOnce() {
+        assertEquals(Boolean.TRUE, executor.call("002", () -> true));
+        assertEquals(1, mailboxes().size());
+
+        roomRepository.deleteById("002");
+        executor.retireRoom("002");
+        assertTrue(mailboxes().isEmpty());
+        assertFalse(executor.execute("002", () -> { }));
+    }
+}
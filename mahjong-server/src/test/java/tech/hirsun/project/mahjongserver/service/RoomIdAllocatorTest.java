@@ -0,0 +1,97 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RoomIdAllocatorTest {
+
+    private static RoomIdAllocator allocator(int maxRoomId) {
+        RoomIdAllocator allocator = new RoomIdAllocator();
+        ReflectionTestUtils.setField(allocator, "maxRoomId", maxRoomId);
+        allocator.init();
+        return allocator;
+    }
+
+    @Test
+    void allocatesEveryIdOnceThenRunsOut() {
+        RoomIdAllocator allocator = allocator(20);
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(allocator.allocate());
+        }
+
+        Set<String> expected = new HashSet<>();
+        for (int id = 1; id <= 20; id++) {
+            expected.add(String.format("%03d", id));
+        }
+        assertEquals(expected, ids);
+        assertEquals(0, allocator.getFreeCount());
+        assertNull(allocator.allocate());
+    }
+
+    @Test
+    void reusesReleasedIds() {
+        RoomIdAllocator allocator = allocator(3);
+        String first = allocator.allocate();
+        allocator.allocate();
+        allocator.allocate();
+
+        allocator.release(first);
+        assertEquals(1, allocator.getFreeCount());
+        assertEquals(first, allocator.allocate());
+    }
+
+    @Test
+    void neverAllocatesReservedIds() {
+        RoomIdAllocator allocator = allocator(10);
+        assertTrue(allocator.reserve("007"));
+        // Restored rooms may carry IDs without padding
+        assertTrue(allocator.reserve("3"));
+        assertFalse(allocator.reserve("007"));
+        assertEquals(8, allocator.getFreeCount());
+
+        for (int i = 0; i < 8; i++) {
+            String id = allocator.allocate();
+            assertNotEquals("007", id);
+            assertNotEquals("003", id);
+        }
+        assertNull(allocator.allocate());
+
+        allocator.release("007");
+        assertEquals("007", allocator.allocate());
+    }
+
+    @Test
+    void ignoresInvalidAndFreeIds() {
+        RoomIdAllocator allocator = allocator(10);
+        assertFalse(allocator.reserve("000"));
+        assertFalse(allocator.reserve("011"));
+        assertFalse(allocator.reserve("abc"));
+        assertFalse(allocator.reserve(null));
+
+        // Releasing an ID that is already free must not add it twice
+        allocator.release("005");
+        allocator.release("999");
+        assertEquals(10, allocator.getFreeCount());
+    }
+
+    @Test
+    void padsIdsToTheWidthOfTheLargestId() {
+        RoomIdAllocator allocator = allocator(12345);
+        assertTrue(allocator.reserve("42"));
+        for (int i = 0; i < 12344; i++) {
+            assertEquals(5, allocator.allocate().length());
+        }
+        allocator.release("00042");
+        assertEquals("00042", allocator.allocate());
+    }
+}
@@ -0,0 +1,142 @@
+package tech.hirsun.project.mahjongserver.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import tech.hirsun.project.mahjongserver.model.Game;
+import tech.hirsun.project.mahjongserver.model.Room;
+import tech.hirsun.project.mahjongserver.repository.RoomRepository;
+import tech.hirsun.project.mahjongserver.util.TileUtil;
+import tech.hirsun.project.mahjongserver.util.WinningHandUtil;
+
+class ShantenServiceTest {
+
+    private final ShantenService shantenService = new ShantenService();
+
+    // Kinds: 0-8 万, 9-17 筒, 18-26 条, 27-30 风, 31-33 箭
+    private static int[] counts(int... kinds) {
+        int[] counts = new int[TileUtil.KIND_COUNT];
+        for (int kind : kinds) {
+            counts[kind]++;
+        }
+        return counts;
+    }
+
+    // Give a player the first free copy of each kind
+    private static void deal(Game game, String playerEmail, int... kinds) {
+        for (int kind : kinds) {
+            int code = kind * 4;
+            while (game.isTileInPlayerHand(playerEmail, code)) {
+                code++;
+            }
+            game.addTileToPlayerHand(playerEmail, code);
+        }
+    }
+
+    private Game gameInRoom() {
+        RoomRepository roomRepository = new RoomRepository();
+        ReflectionTestUtils.setField(shantenService, "roomRepository", roomRepository);
+        Room room = new Room("1001", null, "a@example.com");
+        room.addPlayer("a@example.com");
+        room.addPlayer("b@example.com");
+        Game game = new Game();
+        game.initialize(room.getRoomId(), room.getPlayerEmails(), "a@example.com");
+        room.setCurrentGame(game);
+        roomRepository.save(room);
+        return game;
+    }
+
+    @Test
+    void completeStandardHandIsMinusOne() {
+        // 123万 456筒 789条 东东东 中中
+        int[] hand = counts(0, 1, 2, 12, 13, 14, 24, 25, 26, 27, 27, 27, 31, 31);
+        assertEquals(-1, shantenService.shanten(hand, 0, true));
+    }
+
+    @Test
+    void singleWaitIsTenpai() {
+        // 123万 456筒 789条 东东东 中, waiting on 中
+        int[] hand = counts(0, 1, 2, 12, 13, 14, 24, 25, 26, 27, 27, 27, 31);
+        assertEquals(0, shantenService.shanten(hand, 0, true));
+    }
+
+    @Test
+    void countsRevealedSets() {
+        // Revealed 东东东, concealed 123万 456筒 789条 中中
+        int[] hand = counts(0, 1, 2, 12, 13, 14, 24, 25, 26, 31, 31);
+        assertEquals(-1, shantenService.shanten(hand, 1, false));
+    }
+
+    @Test
+    void sevenPairsOnlyWhenConcealed() {
+        // 11万 99万 11筒 99筒 11条 99条 东东
+        int[] hand = counts(0, 0, 8, 8, 9, 9, 17, 17, 18, 18, 26, 26, 27, 27);
+        assertEquals(-1, shantenService.shanten(hand, 0, true));
+        assertEquals(3, shantenService.shanten(hand, 0, false));
+    }
+
+    @Test
+    void thirteenOrphansOnlyWhenConcealed() {
+        // 19万 19筒 19条 东南西北中发白 + 1万
+        int[] hand = counts(0, 8, 9, 17, 18, 26, 27, 28, 29, 30, 31, 32, 33, 0);
+        assertEquals(-1, shantenService.shanten(hand, 0, true));
+        assertEquals(0, shantenService.shanten(counts(0, 8, 9, 17, 18, 26, 27, 28, 29, 30, 31, 32, 33), 0, true));
+    }
+
+    @Test
+    void unrelatedTilesAreFarFromStandardHand() {
+        // 147万 258筒 369条 东南西北中, no pair and no partial set
+        int[] hand = counts(0, 3, 6, 10, 13, 16, 20, 23, 26, 27, 28, 29, 30, 31);
+        assertEquals(8, shantenService.shanten(hand, 0, false));
+        // Seven pairs and thirteen orphans are both 6 away
+        assertEquals(6, shantenService.shanten(hand, 0, true));
+    }
+
+    @Test
+    void hintIgnoresSevenPairsOnceATileIsRevealed() {
+        Game game = gameInRoom();
+        // 11万 99万 11筒 99筒 11条 99条 东东
+        deal(game, "a@example.com", 0, 0, 8, 8, 9, 9, 17, 17, 18, 18, 26, 26, 27, 27);
+
+        Map<String, Object> hint = shantenService.getHint("1001", "a@example.com");
+        assertNotNull(hint);
+        assertEquals(-1, hint.get("shanten"));
+
+        // A revealed pair is not a set, but it still rules out seven pairs
+        game.revealPlayerTiles("a@example.com", new int[] {27 * 4, 27 * 4 + 1});
+        hint = shantenService.getHint("1001", "a@example.com");
+        // Six concealed pairs: one away from seven pairs, three away from a standard hand
+        assertEquals(3, hint.get("shanten"));
+    }
+
+    @Test
+    void hintCountsOnlyRevealedTilesThatFormSets() {
+        Game game = gameInRoom();
+        // Concealed 456筒 789条 东东东 中中
+        deal(game, "a@example.com", 12, 13, 14, 24, 25, 26, 27, 27, 27, 31, 31);
+
+        // Revealed 159万 are three tiles but no set, the hand cannot win as it is
+        deal(game, "a@example.com", 0, 4, 8);
+        game.revealPlayerTiles("a@example.com", new int[] {0, 4 * 4, 8 * 4});
+        assertFalse(WinningHandUtil.isWinningHand(game.getPlayerHandKindCounts("a@example.com"),
+                game.getPlayerRevealedKindCounts("a@example.com")));
+        assertEquals(1, shantenService.getHint("1001", "a@example.com").get("shanten"));
+
+        // Revealed 123万 instead completes it
+        game.hidePlayerTiles("a@example.com", new int[] {0, 4 * 4, 8 * 4});
+        game.discardTile("a@example.com", 4 * 4);
+        game.discardTile("a@example.com", 8 * 4);
+        deal(game, "a@example.com", 1, 2);
+        game.revealPlayerTiles("a@example.com", new int[] {0, 4, 8});
+        assertTrue(WinningHandUtil.isWinningHand(game.getPlayerHandKindCounts("a@example.com"),
+                game.getPlayerRevealedKindCounts("a@example.com")));
+        assertEquals(-1, shantenService.getHint("1001", "a@example.com").get("shanten"));
+    }
+}
@@ -0,0 +1,130 @@
+package tech.hirsun.project.mahjongserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import tech.hirsun.project.mahjongserver.model.Tile;
+
+class BinaryProtocolUtilTest {
+
+    // Server frames carry a timestamp after the message type, client frames do not
+    private static byte[] clientFrame(String type, Object data, Map<String, Integer> seats) {
+        byte[] server = BinaryProtocolUtil.encode(type, data, seats);
+        boolean inlineType = server[1] == 0;
+        int typeEnd = skipVarint(server, 1);
+        if (inlineType) {
+            // Short names only: a one-byte length, then the UTF-8 bytes
+            typeEnd += 1 + server[typeEnd];
+        }
+        int timestampEnd = skipVarint(server, typeEnd);
+        byte[] client = new byte[server.length - (timestampEnd - typeEnd)];
+        System.arraycopy(server, 0, client, 0, typeEnd);
+        System.arraycopy(server, timestampEnd, client, typeEnd, server.length - timestampEnd);
+        return client;
+    }
+
+    private static BinaryProtocolUtil.Frame roundTrip(String type, Object data, Map<String, Integer> seats) {
+        return BinaryProtocolUtil.decode(ByteBuffer.wrap(clientFrame(type, data, seats)));
+    }
+
+    private static int skipVarint(byte[] bytes, int offset) {
+        while ((bytes[offset] & 0x80) != 0) {
+            offset++;
+        }
+        return offset + 1;
+    }
+
+    private static Map<String, Object> tileView(int code) {
+        Tile tile = TileUtil.toTile(code);
+        Map<String, Object> view = new HashMap<>();
+        view.put("id", tile.getId());
+        view.put("type", tile.getType().name());
+        view.put("value", tile.getValue());
+        return view;
+    }
+
+    @Test
+    void roundTripsScalarsAndNesting() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("roomId", "1234");
+        data.put("version", 300L);
+        data.put("fromVersion", -5);
+        data.put("speed", 1.5);
+        data.put("enabled", true);
+        data.put("isDraw", false);
+        data.put("winnerEmail", null);
+        data.put("customKey", List.of("a", 1L, List.of()));
+        data.put("nested", Map.of("message", "你好"));
+
+        BinaryProtocolUtil.Frame frame = roundTrip("SYNC", data, null);
+
+        assertEquals("SYNC", frame.getType());
+        Map<String, Object> expected = new HashMap<>(data);
+        // Integers decode as longs
+        expected.put("fromVersion", -5L);
+        assertEquals(expected, frame.getData());
+    }
+
+    @Test
+    void roundTripsTilesAsTileViews() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("tile", TileUtil.toTile(0));
+        data.put("tiles", List.of(TileUtil.toTile(135), TileUtil.toTile(64)));
+
+        BinaryProtocolUtil.Frame frame = roundTrip("REVEAL_TILES", data, null);
+
+        assertEquals(Map.of("tile", tileView(0), "tiles", List.of(tileView(135), tileView(64))), frame.getData());
+    }
+
+    @Test
+    void keepsInlineMessageTypes() {
+        BinaryProtocolUtil.Frame frame = roundTrip("NOT_IN_TABLE", null, null);
+        assertEquals("NOT_IN_TABLE", frame.getType());
+        assertNull(frame.getData());
+    }
+
+    @Test
+    void decodesTypeIndexesLargerThanTheFrame() {
+        // Two bytes: the version and the type index, which is above the frame length
+        BinaryProtocolUtil.Frame frame = roundTrip("REPLAY_STOP", null, null);
+        assertEquals("REPLAY_STOP", frame.getType());
+    }
+
+    @Test
+    void sendsSeatTableWithInlineKeys() {
+        Map<String, Integer> seats = Map.of("a@example.com", 0, "b@example.com", 1);
+
+        BinaryProtocolUtil.Frame frame = roundTrip("GAME_STATE", Map.of("playerPositions", seats), seats);
+
+        assertEquals(Map.of("playerPositions", Map.of("a@example.com", 0L, "b@example.com", 1L)), frame.getData());
+    }
+
+    @Test
+    void rejectsSeatsFromClients() {
+        Map<String, Integer> seats = Map.of("a@example.com", 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> roundTrip("ACTION", Map.of("playerEmail", "a@example.com"), seats));
+        assertThrows(IllegalArgumentException.class,
+                () -> roundTrip("ACTION", Map.of("a@example.com", 1), seats));
+    }
+
+    @Test
+    void rejectsMalformedFrames() {
+        byte[] frame = clientFrame("SYNC", Map.of("roomId", "1234"), null);
+        byte[] wrongVersion = frame.clone();
+        wrongVersion[0] = (byte) (BinaryProtocolUtil.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocolUtil.decode(ByteBuffer.wrap(wrongVersion)));
+        byte[] truncated = Arrays.copyOf(frame, frame.length - 2);
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocolUtil.decode(ByteBuffer.wrap(truncated)));
+    }
+}
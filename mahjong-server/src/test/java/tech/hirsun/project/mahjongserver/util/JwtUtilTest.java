@@ -0,0 +1,104 @@
+package tech.hirsun.project.mahjongserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.ExpiredJwtException;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "test_jwt_secret_key_that_is_long_enough_for_hs256";
+
+    private static JwtUtil jwtUtil(String secret, long expiration, int cacheMaxSize) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", secret);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", expiration);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", cacheMaxSize);
+        return jwtUtil;
+    }
+
+    @Test
+    void verifiesEachTokenOnce() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000, 100);
+        String token = jwtUtil.generateToken("a@example.com");
+
+        assertEquals("a@example.com", jwtUtil.extractEmail(token));
+        assertEquals(1, jwtUtil.getCacheMissCount());
+        assertEquals(0, jwtUtil.getCacheHitCount());
+
+        assertEquals("a@example.com", jwtUtil.extractEmail(token));
+        assertTrue(jwtUtil.validateToken(token));
+        assertEquals(1, jwtUtil.getCacheMissCount());
+        assertEquals(2, jwtUtil.getCacheHitCount());
+        assertEquals(1, jwtUtil.getCacheSize());
+    }
+
+    @Test
+    void doesNotCacheTokensThatFailVerification() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000, 100);
+        String forged = jwtUtil(SECRET + "_other", 60_000, 100).generateToken("a@example.com");
+
+        assertFalse(jwtUtil.validateToken(forged));
+        assertFalse(jwtUtil.validateToken(forged));
+        assertFalse(jwtUtil.validateToken("not.a.token"));
+        assertEquals(0, jwtUtil.getCacheSize());
+        assertEquals(0, jwtUtil.getCacheHitCount());
+        assertEquals(3, jwtUtil.getCacheMissCount());
+    }
+
+    @Test
+    void stopsAnsweringFromTheCacheOnceTheTokenExpires() throws InterruptedException {
+        // The exp claim has second precision, so the token expires one to two seconds from now
+        JwtUtil jwtUtil = jwtUtil(SECRET, 2000, 100);
+        String token = jwtUtil.generateToken("a@example.com");
+        assertTrue(jwtUtil.validateToken(token));
+        assertEquals(1, jwtUtil.getCacheSize());
+
+        Thread.sleep(2100);
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.extractEmail(token));
+        assertFalse(jwtUtil.validateToken(token));
+        assertEquals(0, jwtUtil.getCacheSize());
+        assertEquals(0, jwtUtil.getCacheHitCount());
+        assertEquals(3, jwtUtil.getCacheMissCount());
+    }
+
+    @Test
+    void evictsExpiredTokensBeforeLiveOnes() throws InterruptedException {
+        JwtUtil shortLived = jwtUtil(SECRET, 2000, 2);
+        String expiring = shortLived.generateToken("a@example.com");
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000, 2);
+        String live = jwtUtil.generateToken("b@example.com");
+        jwtUtil.extractEmail(expiring);
+        jwtUtil.extractEmail(live);
+        assertEquals(2, jwtUtil.getCacheSize());
+
+        Thread.sleep(2100);
+        jwtUtil.extractEmail(jwtUtil.generateToken("c@example.com"));
+        assertEquals(2, jwtUtil.getCacheSize());
+        // The live token is still cached
+        long misses = jwtUtil.getCacheMissCount();
+        jwtUtil.extractEmail(live);
+        assertEquals(misses, jwtUtil.getCacheMissCount());
+    }
+
+    @Test
+    void staysWithinItsSizeWhenFullOfLiveTokens() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000, 4);
+        for (int i = 0; i < 20; i++) {
+            String token = jwtUtil.generateToken("player" + i + "@example.com");
+            assertEquals("player" + i + "@example.com", jwtUtil.extractEmail(token));
+            assertTrue(jwtUtil.getCacheSize() <= 4);
+
+            // The newest token is always kept
+            long hits = jwtUtil.getCacheHitCount();
+            jwtUtil.extractEmail(token);
+            assertEquals(hits + 1, jwtUtil.getCacheHitCount());
+        }
+        assertEquals(20, jwtUtil.getCacheMissCount());
+    }
+}
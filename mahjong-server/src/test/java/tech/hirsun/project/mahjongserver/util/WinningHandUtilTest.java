@@ -0,0 +1,96 @@
+package tech.hirsun.project.mahjongserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class WinningHandUtilTest {
+
+    // Kinds: 0-8 万, 9-17 筒, 18-26 条, 27-30 风, 31-33 箭
+    private static int[] counts(int... kinds) {
+        int[] counts = new int[TileUtil.KIND_COUNT];
+        for (int kind : kinds) {
+            counts[kind]++;
+        }
+        return counts;
+    }
+
+    @Test
+    void acceptsSetsAndPair() {
+        // 123万 456筒 789条 东东东 中中
+        int[] hand = counts(0, 1, 2, 12, 13, 14, 24, 25, 26, 27, 27, 27, 31, 31);
+        assertTrue(WinningHandUtil.isWinningHand(hand, new int[TileUtil.KIND_COUNT]));
+    }
+
+    @Test
+    void acceptsOverlappingSequencesInOneSuit() {
+        // 11122233344455万
+        int[] hand = counts(0, 0, 0, 1, 1, 1, 2, 2, 2, 3, 3, 3, 4, 4);
+        assertTrue(WinningHandUtil.isWinningHand(hand, new int[TileUtil.KIND_COUNT]));
+    }
+
+    @Test
+    void rejectsHandWithoutPair() {
+        // 123万 456筒 789条 东东东 中发
+        int[] hand = counts(0, 1, 2, 12, 13, 14, 24, 25, 26, 27, 27, 27, 31, 32);
+        assertFalse(WinningHandUtil.isWinningHand(hand, new int[TileUtil.KIND_COUNT]));
+    }
+
+    @Test
+    void rejectsHonorSequence() {
+        // 东南西 is not a set
+        int[] hand = counts(0, 1, 2, 3, 4, 5, 6, 7, 8, 27, 28, 29, 31, 31);
+        assertFalse(WinningHandUtil.isWinningHand(hand, new int[TileUtil.KIND_COUNT]));
+    }
+
+    @Test
+    void rejectsWrongTileCount() {
+        int[] hand = counts(0, 1, 2, 12, 13, 14, 24, 25, 26, 31, 31);
+        assertFalse(WinningHandUtil.isWinningHand(hand, new int[TileUtil.KIND_COUNT]));
+    }
+
+    @Test
+    void countsRevealedKongAsOneSet() {
+        // Revealed 白白白白, concealed 123万 456筒 789条 中中
+        int[] hand = counts(0, 1, 2, 12, 13, 14, 24, 25, 26, 31, 31);
+        int[] revealed = counts(33, 33, 33, 33);
+        assertTrue(WinningHandUtil.isWinningHand(hand, revealed));
+    }
+
+    @Test
+    void acceptsRevealedPungAndChow() {
+        // Revealed 东东东 456筒, concealed 123万 789条 中中
+        int[] hand = counts(0, 1, 2, 24, 25, 26, 31, 31);
+        int[] revealed = counts(27, 27, 27, 12, 13, 14);
+        assertTrue(WinningHandUtil.isWinningHand(hand, revealed));
+    }
+
+    @Test
+    void rejectsRevealedTilesThatAreNotSets() {
+        // Revealed 5条 alone would finish the concealed 46条, but it is not a set
+        int[] hand = counts(0, 1, 2, 12, 13, 14, 27, 27, 27, 22, 24, 31, 31);
+        assertFalse(WinningHandUtil.isWinningHand(hand, counts(23)));
+        // Revealed 123万 plus a split 5条
+        int[] rest = counts(12, 13, 14, 27, 27, 27, 22, 24, 31, 31);
+        assertFalse(WinningHandUtil.isWinningHand(rest, counts(0, 1, 2, 23)));
+        assertEquals(-1, WinningHandUtil.countRevealedSets(counts(0, 1, 2, 23)));
+        assertEquals(2, WinningHandUtil.countRevealedSets(counts(0, 1, 2, 33, 33, 33, 33)));
+    }
+
+    @Test
+    void acceptsSevenPairsOnlyWhenConcealed() {
+        int[] hand = counts(0, 0, 4, 4, 10, 10, 15, 15, 20, 20, 27, 27, 33, 33);
+        assertTrue(WinningHandUtil.isWinningHand(hand, new int[TileUtil.KIND_COUNT]));
+
+        int[] concealed = counts(0, 0, 4, 4, 10, 10, 15, 15, 20, 20, 27, 27);
+        assertFalse(WinningHandUtil.isWinningHand(concealed, counts(33, 33)));
+    }
+
+    @Test
+    void acceptsThirteenOrphans() {
+        int[] hand = counts(0, 8, 9, 17, 18, 26, 27, 28, 29, 30, 31, 32, 33, 33);
+        assertTrue(WinningHandUtil.isWinningHand(hand, new int[TileUtil.KIND_COUNT]));
+    }
+}